@@ -1,5 +1,8 @@
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Abstraction to Represent an Event with a Name, a Date, a Location, a Ticket Price and a number of Tickets.
@@ -12,13 +15,58 @@ public class AbstractEvent implements Event
     // Name and Date are immutable fields for all Events.
     final private String aName;
     final private LocalDate aDate;
-    // N.B. Use Optional to support the creation of 'Coming Soon' event w/ UNKNOWN Location, TicketPrice,
-    // and number of Tickets.
-    private Optional<Location> aLocation;
-    private Optional<Double> aTicketPrice;
-    private Optional<Integer> aNumTickets;
+    // N.B. Location, TicketPrice and number of Tickets are stored as primitives (no Optional / boxed objects per Event).
+    // 'Coming Soon' Events w/ UNKNOWN values are supported by a null Location and the presence flags below, the
+    // getters still wrap the values in an Optional.
+    final private Location aLocation; // null for 'ComingSoon' Event
+    final private double aTicketPrice;
+    final private int aNumTickets;
+    final private byte aPresence; // bitset of PRICE_PRESENT / TICKETS_PRESENT
 
-    private Integer aPercentage = 20; // Default Percentage = 20% profit percentage per ticket.
+    private static final byte PRICE_PRESENT = 1;
+    private static final byte TICKETS_PRESENT = 2;
+
+    static final int NO_OVERRIDE = -1;
+
+    // Profit Percentage of the Event : read from the table of percentages per type of Event shared by all the Events
+    // hosted on EventBrite, unless a percentage has been set for this Event only (per-event override).
+    private volatile ProfitPercentages aPercentages; // null if not hosted (DEFAULT_PERCENTAGE is then used)
+    // Overrides are kept newest first, each w/ the clock of the table when it was made, so a reader pinned to an older
+    // Snapshot of the table still reads the override it saw (see ProfitPercentages.Snapshot).
+    private volatile PercentageOverride aOverride; // null if never overridden (N.B. volatile : read by the profit passes of others)
+    private volatile boolean aHosted = false; // TRUE once the Event is hosted on EventBrite (not only part of a Festival)
+
+    private volatile List<Festival> aFestivals; // Festivals this Event is part of (null if none, copy-on-write : read w/o locking)
+
+    /**
+     * Immutable per-event override of the Profit Percentage, stamped w/ the clock of the table of percentages.
+     */
+    private static final class PercentageOverride
+    {
+        final private int aPercentage;
+        final private long aClock;
+        private volatile PercentageOverride aPrevious; // older override (null once no pinned Snapshot can see it)
+
+        PercentageOverride(int pPercentage, long pClock, PercentageOverride pPrevious)
+        {
+            this.aPercentage = pPercentage;
+            this.aClock = pClock;
+            this.aPrevious = pPrevious;
+        }
+
+        /**
+         * Drops the overrides hidden from every Snapshot pinned at or after pOldest.
+         */
+        void prune(long pOldest)
+        {
+            for (PercentageOverride override = this; override != null; override = override.aPrevious) {
+                if (override.aClock <= pOldest) {
+                    override.aPrevious = null;
+                    return;
+                }
+            }
+        }
+    }
 
     /**
      * Creates an Event with the following parameters :
@@ -40,21 +88,146 @@ public class AbstractEvent implements Event
         assert pName != null && pDate != null;
         this.aName=pName;
         this.aDate=pDate;
-        this.aLocation=pLocation;
-        this.aTicketPrice=pTicketPrice;
-        this.aNumTickets=pNumTickets;
+        this.aLocation=pLocation.orElse(null);
+        this.aTicketPrice=pTicketPrice.isPresent() ? pTicketPrice.get() : 0.0;
+        this.aNumTickets=pNumTickets.isPresent() ? pNumTickets.get() : 0;
+        this.aPresence=(byte) ((pTicketPrice.isPresent() ? PRICE_PRESENT : 0) | (pNumTickets.isPresent() ? TICKETS_PRESENT : 0));
     }
 
     /**
-     * Updates the Profit Percentage for an Event with the percentage method argument.
+     * Overrides the Profit Percentage of this Event only w/ the percentage method argument.
+     * The override takes precedence over the percentage set for its type of Event. Once the Event is attached to a
+     * table, the override is published and notified while holding the override lock of the table, so a listener
+     * (e.g. ProfitAggregates.add) never sees it published but not notified yet. The listeners are told again once
+     * the override is done and no lock is held anymore (e.g. to wait for it to be durable).
      * @param pPercentage
      *              new Percentage to update for the Event
      * @pre pPercentage != null && pPercentage >= 0 && pPercentage<=100
      */
     @Override
     public void updatePercentage(Integer pPercentage) {
-        assert pPercentage != null || pPercentage >= 0 || pPercentage<=100;
-        this.aPercentage = pPercentage;
+        assert pPercentage != null && pPercentage >= 0 && pPercentage<=100;
+        ProfitPercentages percentages;
+        synchronized (this) {
+            int previous = getOverride();
+            percentages = aPercentages;
+            if (percentages == null) { // N.B. cannot be attached meanwhile (see attach)
+                this.aOverride = new PercentageOverride(pPercentage, 0, null); // no Snapshot of a table can pin an Event not attached to it
+                for (Festival festival : getFestivals()) festival.invalidateProfit();
+                return;
+            }
+            synchronized (percentages.getOverrideLock()) {
+                percentages.publishOverride(clock -> this.aOverride = new PercentageOverride(pPercentage, clock, aOverride));
+                aOverride.prune(percentages.getOldestPinned());
+                for (Festival festival : getFestivals()) festival.invalidateProfit(); // only along the path to the affected Festivals
+                percentages.notifyOverride(this, previous, pPercentage);
+            }
+        }
+        percentages.notifyOverrideDone(this);
+    }
+
+    /**
+     * Attaches the Event to the table of Profit Percentages per type of Event it must read its percentage from.
+     * N.B. Synchronized w/ updatePercentage : an override is either made before (and read when the Event is hosted)
+     * or notified to the listeners of the table.
+     * @param pPercentages
+     *              table of Profit Percentages shared by all the Events hosted on EventBrite
+     * @pre pPercentages != null
+     */
+    synchronized void attach(ProfitPercentages pPercentages) {
+        assert pPercentages != null;
+        this.aPercentages = pPercentages;
+    }
+
+    /**
+     * Marks the Event as hosted on EventBrite.
+     * N.B. Called while holding the override lock of the table (see ProfitAggregates.add) : the Event is attached
+     * to it already, so the monitor of the Event is not taken (updatePercentage takes them the other way around).
+     * @pre pPercentages != null && getPercentages() == pPercentages
+     */
+    void host(ProfitPercentages pPercentages) {
+        assert pPercentages != null && aPercentages == pPercentages;
+        this.aHosted = true;
+    }
+
+    /**
+     * @return TRUE if the Event is hosted on EventBrite.
+     */
+    boolean isHosted() {
+        return aHosted;
+    }
+
+    /**
+     * @return the table of Profit Percentages the Event is attached to (null if not attached).
+     */
+    ProfitPercentages getPercentages() {
+        return aPercentages;
+    }
+
+    /**
+     * @return TRUE if the Event is attached to a table of Profit Percentages.
+     */
+    boolean isAttached() {
+        return aPercentages != null;
+    }
+
+    /**
+     * @return number of the current version of the table of Profit Percentages (0 if not attached).
+     */
+    long getPercentagesVersion() {
+        if (aPercentages == null) return 0;
+        return aPercentages.getCurrentVersion().getNumber();
+    }
+
+    /**
+     * @return per-event override of the Profit Percentage, or NO_OVERRIDE.
+     */
+    int getOverride() {
+        PercentageOverride override = aOverride;
+        return override == null ? NO_OVERRIDE : override.aPercentage;
+    }
+
+    /**
+     * Records that the Event is part of a Festival.
+     * @pre pFestival != null
+     */
+    synchronized void addFestival(Festival pFestival) {
+        assert pFestival != null;
+        if (aFestivals == null) aFestivals = new CopyOnWriteArrayList<>();
+        aFestivals.add(pFestival);
+    }
+
+    /**
+     * @return Festivals this Event is part of (empty if none).
+     */
+    List<Festival> getFestivals() {
+        List<Festival> festivals = aFestivals;
+        if (festivals == null) return new ArrayList<>();
+        return new ArrayList<>(festivals);
+    }
+
+    /**
+     * @return Profit Percentage of the Event (per-event override, or percentage of its type of Event).
+     */
+    protected int getPercentage() {
+        PercentageOverride override = aOverride;
+        if (override != null) return override.aPercentage;
+        if (aPercentages == null) return ProfitPercentages.DEFAULT_PERCENTAGE;
+        return aPercentages.getPercentage(getClass());
+    }
+
+    /**
+     * @return Profit Percentage of the Event as of a pinned Snapshot (latest override made before the Snapshot, or
+     * percentage of its type of Event in the pinned version of the table).
+     * @pre pSnapshot != null
+     */
+    protected int getPercentage(ProfitPercentages.Snapshot pSnapshot) {
+        assert pSnapshot != null;
+        for (PercentageOverride override = aOverride; override != null; override = override.aPrevious) {
+            if (override.aClock <= pSnapshot.getClock()) return override.aPercentage;
+        }
+        if (aPercentages == null) return ProfitPercentages.DEFAULT_PERCENTAGE;
+        return pSnapshot.getVersion().getPercentage(getClass());
     }
 
     /**
@@ -68,7 +241,7 @@ public class AbstractEvent implements Event
     @Override
     public boolean isEqual(Event pEvent) {
         assert pEvent != null;
-        if (aDate.isEqual(pEvent.getDate()) && aLocation.equals(pEvent.getLocation())) return true;
+        if (aDate.isEqual(pEvent.getDate()) && getLocation().equals(pEvent.getLocation())) return true;
         return false;
     }
 
@@ -79,8 +252,20 @@ public class AbstractEvent implements Event
      */
     @Override
     public Double getProfit() {
-        if (aTicketPrice.isPresent() && aNumTickets.isPresent()) { // Check that necessary values are present a.k.a. Concrete Event!
-            return aTicketPrice.get() * aNumTickets.get() * aPercentage;
+        if (aPresence == (PRICE_PRESENT | TICKETS_PRESENT)) { // Check that necessary values are present a.k.a. Concrete Event!
+            return aTicketPrice * aNumTickets * getPercentage();
+        }
+        return 0.0; // 'ComingSoon' Event
+    }
+
+    /**
+     * Computes the expected Profit of the Event as of a pinned Snapshot of the Profit Percentages (same formula
+     * as getProfit, w/ the percentage visible in the Snapshot).
+     * @pre pSnapshot != null
+     */
+    double getProfit(ProfitPercentages.Snapshot pSnapshot) {
+        if (aPresence == (PRICE_PRESENT | TICKETS_PRESENT)) {
+            return aTicketPrice * aNumTickets * getPercentage(pSnapshot);
         }
         return 0.0; // 'ComingSoon' Event
     }
@@ -106,7 +291,7 @@ public class AbstractEvent implements Event
      */
     @Override
     public Optional<Location> getLocation() {
-        return aLocation;
+        return Optional.ofNullable(aLocation);
     }
 
     /**
@@ -114,7 +299,8 @@ public class AbstractEvent implements Event
      */
     @Override
     public Optional<Double> getPrice() {
-        return aTicketPrice;
+        if ((aPresence & PRICE_PRESENT) != 0) return Optional.of(aTicketPrice);
+        return Optional.empty();
     }
 
     /**
@@ -122,6 +308,7 @@ public class AbstractEvent implements Event
      */
     @Override
     public Optional<Integer> getNumTickets() {
-        return aNumTickets;
+        if ((aPresence & TICKETS_PRESENT) != 0) return Optional.of(aNumTickets);
+        return Optional.empty();
     }
 }
@@ -0,0 +1,848 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Micro-benchmarks of the performance-sensitive paths of the Event Management software.
+ * Run with : java Benchmark [section] (runs every section when no section is given).
+ * N.B. Numbers are indicative only (no forking like a JMH harness). The "paths" section warms up every benchmark
+ * and reports the time AND the bytes allocated per operation (like the gc profiler of JMH) :
+ *      java Benchmark paths [baseline file]
+ * saves its results in the baseline file the first time, and compares them to it afterwards.
+ */
+public class Benchmark {
+
+    private static final int NUM_EVENTS = 1_000_000;
+    private static final int NUM_ROUNDS = 10;
+    private static final int NUM_IMPORTED_EVENTS = 100_000;
+    private static final int NUM_SNAPSHOT_EVENTS = 200_000;
+    private static final int NUM_LOGGED_EVENTS = 20_000;
+    private static final int NUM_VIP_EVENTS = 200_000;
+    private static final int NUM_VIPS = 50;
+    private static final int NUM_BOOKED_TICKETS = 1_000_000;
+    private static final int[] BOOKING_THREADS = {1, 2, 4, 8, 16, 32, 64};
+    private static final int NUM_HOLDS = 1_000_000;
+    private static final int[] NUM_INGESTED_EVENTS = {1_000, 10_000, 100_000, 1_000_000};
+    private static final int NUM_PATH_EVENTS = 100_000;
+    private static final int NUM_WARMUP_ITERATIONS = 5;
+    private static final int NUM_MEASURED_ITERATIONS = 10;
+    private static volatile double sink; // results of the benchmarked operations (so they are not optimized away)
+
+    public static void main(String[] args) {
+        String section = args.length > 0 ? args[0] : "all";
+        if (section.equals("all") || section.equals("store")) benchmarkEventStore();
+        if (section.equals("all") || section.equals("import")) benchmarkImport();
+        if (section.equals("all") || section.equals("snapshot")) benchmarkSnapshot();
+        if (section.equals("all") || section.equals("log")) benchmarkLog();
+        if (section.equals("all") || section.equals("vips")) benchmarkVIPs();
+        if (section.equals("all") || section.equals("dates")) benchmarkDateRange();
+        if (section.equals("all") || section.equals("booking")) benchmarkBooking();
+        if (section.equals("all") || section.equals("holds")) benchmarkHolds();
+        if (section.equals("all") || section.equals("paths")) benchmarkPaths(args.length > 1 ? Paths.get(args[1]) : null);
+    }
+
+    /* ****************************************************************************************************************
+                        EVENT STORE : HEAP PER EVENT AND SCAN SPEED VS. BOXED OPTIONAL FIELDS
+     **************************************************************************************************************** */
+    /**
+     * Compares the heap per Event and the speed of a price-range scan of :
+     *      (1) Events w/ boxed Optional fields (= former layout of AbstractEvent, see LegacyEvent)
+     *      (2) Events w/ primitive fields (= current AbstractEvent)
+     *      (3) the primitive columns of the EventStore
+     */
+    private static void benchmarkEventStore() {
+        System.out.println("EVENT STORE BENCHMARK ("+NUM_EVENTS+" events) : ");
+        Location[] locations = Location.values();
+
+        long before = usedHeap();
+        List<LegacyEvent> legacyEvents = new ArrayList<>(NUM_EVENTS);
+        for (int i = 0; i < NUM_EVENTS; i++) {
+            legacyEvents.add(new LegacyEvent("Event", LocalDate.of(2022,1,1), Optional.of(locations[i % locations.length]), Optional.of((double) (i % 100)), Optional.of(i % 500)));
+        }
+        long legacyHeap = usedHeap() - before;
+
+        before = usedHeap();
+        List<Event> events = new ArrayList<>(NUM_EVENTS);
+        for (int i = 0; i < NUM_EVENTS; i++) {
+            events.add(new AbstractEvent("Event", LocalDate.of(2022,1,1), Optional.of(locations[i % locations.length]), Optional.of((double) (i % 100)), Optional.of(i % 500)));
+        }
+        long eventHeap = usedHeap() - before;
+
+        before = usedHeap();
+        EventStore store = new EventStore();
+        for (Event event : events) store.add(event);
+        long storeHeap = usedHeap() - before;
+
+        System.out.println("Heap per event (boxed Optional fields)  : "+legacyHeap/NUM_EVENTS+" bytes");
+        System.out.println("Heap per event (primitive fields)       : "+eventHeap/NUM_EVENTS+" bytes");
+        System.out.println("Heap per event (EventStore columns)     : "+storeHeap/NUM_EVENTS+" bytes");
+
+        Filter filter = new Filter_ByPriceRange(10.0, 30.0);
+        int legacyCount = 0, eventCount = 0, storeCount = 0;
+        long legacyTime = Long.MAX_VALUE, eventTime = Long.MAX_VALUE, storeTime = Long.MAX_VALUE;
+        for (int round = 0; round < NUM_ROUNDS; round++) {
+            long start = System.nanoTime();
+            legacyCount = 0;
+            for (LegacyEvent event : legacyEvents) {
+                if (event.aLocation.isPresent() && event.aTicketPrice.get() >= 10.0 && event.aTicketPrice.get() <= 30.0) legacyCount++;
+            }
+            legacyTime = Math.min(legacyTime, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            eventCount = filter.filtering(events).size();
+            eventTime = Math.min(eventTime, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            storeCount = store.countInPriceRange(10.0, 30.0);
+            storeTime = Math.min(storeTime, System.nanoTime() - start);
+        }
+        assert legacyCount == eventCount && eventCount == storeCount;
+        System.out.println("Price range scan (boxed Optional fields) : "+legacyTime/1_000_000.0+" ms");
+        System.out.println("Price range scan (Filter over Events)    : "+eventTime/1_000_000.0+" ms");
+        System.out.println("Price range scan (EventStore columns)    : "+storeTime/1_000_000.0+" ms");
+
+        // Adds interleaved w/ look-ups : the Price index only merges the new Events past a threshold
+        int numInterleaved = 20_000;
+        long indexTime = 0, scanTime = 0;
+        for (int i = 0; i < numInterleaved; i++) {
+            store.add(events.get(i));
+            long start = System.nanoTime();
+            int indexCount = store.getPriceIndex().count(10.0, 30.0);
+            indexTime += System.nanoTime() - start;
+            if (i % 100 == 0) { // the scan is too slow to run on every add
+                start = System.nanoTime();
+                storeCount = store.countInPriceRange(10.0, 30.0);
+                scanTime += (System.nanoTime() - start) * 100;
+                assert indexCount == storeCount;
+            }
+        }
+        System.out.println("Add + price look-up (Price index)        : "+indexTime/1000.0/numInterleaved+" us per add");
+        System.out.println("Add + price range scan (columns)         : "+scanTime/1000.0/numInterleaved+" us per add");
+        System.out.println();
+    }
+
+    /* ****************************************************************************************************************
+                            IMPORT : CSV VS. JSON-LINES VS. (PRETTY-PRINTED) JSON ARRAY
+     **************************************************************************************************************** */
+    /**
+     * Imports the same Events from a CSV file, a JSON-lines file and a pretty-printed JSON array (one key per line)
+     * and checks that every format hosts the same Events : all the rows are accepted but the Gala w/ a null VIP,
+     * and the row w/o tickets (null) is a 'ComingSoon' Event.
+     */
+    private static void benchmarkImport() {
+        System.out.println("IMPORT BENCHMARK ("+NUM_IMPORTED_EVENTS+" events) : ");
+        Path directory;
+        try {
+            directory = Files.createTempDirectory("import");
+            try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(directory.resolve("events.csv")));
+                 PrintWriter lines = new PrintWriter(Files.newBufferedWriter(directory.resolve("events.jsonl")));
+                 PrintWriter array = new PrintWriter(Files.newBufferedWriter(directory.resolve("events.json")))) {
+                csv.println("type,name,date,location,price,tickets,artist,rating,vips");
+                array.println("[");
+                LocalDate first = LocalDate.of(2022,1,1);
+                Location[] locations = Location.values();
+                for (int i = 0; i < NUM_IMPORTED_EVENTS + 2; i++) {
+                    String type = i == NUM_IMPORTED_EVENTS + 1 ? "Gala" : new String[] {"Concert", "Gala", "Screening", "Workshop"}[i % 4];
+                    String date = first.plusDays(i / locations.length).toString();
+                    String location = locations[i % locations.length].name();
+                    String tickets = i == NUM_IMPORTED_EVENTS ? null : String.valueOf(10 + i % 100); // 'ComingSoon' Event
+                    String vips = i == NUM_IMPORTED_EVENTS + 1 ? "[\"Bob\", null]" : "[\"Bob\"]"; // invalid Gala
+                    csv.println(type+",Event "+i+","+date+","+(i == NUM_IMPORTED_EVENTS + 1 ? "Nowhere" : location)+","+(5.0 + i % 50)
+                            +","+(tickets == null ? "" : tickets)+",Artist,G,Bob");
+                    lines.println("{\"type\":\""+type+"\",\"name\":\"Event "+i+"\",\"date\":\""+date+"\",\"location\":\""+location
+                            +"\",\"price\":"+(5.0 + i % 50)+",\"tickets\":"+tickets+",\"artist\":\"Artist\",\"rating\":\"G\",\"vips\":"+vips+"}");
+                    array.println("  {");
+                    array.println("    \"type\": \""+type+"\",");
+                    array.println("    \"name\": \"Event "+i+"\",");
+                    array.println("    \"date\": \""+date+"\",");
+                    array.println("    \"location\": \""+location+"\",");
+                    array.println("    \"price\": "+(5.0 + i % 50)+",");
+                    array.println("    \"artist\": \"Artist\",");
+                    array.println("    \"rating\": \"G\",");
+                    array.println("    \"vips\": "+vips.replace("[", "[\n      ").replace(", ", ",\n      ").replace("]", "\n    ]")+",");
+                    array.println("    \"tickets\": "+tickets); // N.B. a literal at the end of a line
+                    array.println(i == NUM_IMPORTED_EVENTS + 1 ? "  }" : "  },");
+                }
+                array.println("]");
+            }
+        } catch (IOException e) {
+            System.out.println("Import benchmark was UNSUCCESSFUL : "+e.getMessage());
+            return;
+        }
+
+        boolean success = true;
+        double expectedProfit = Double.NaN;
+        for (String file : new String[] {"events.csv", "events.jsonl", "events.json"}) {
+            EventManagement management = new EventManagement();
+            management.addVIP("Bob");
+            long start = System.nanoTime();
+            ImportReport report = management.importEvents(directory.resolve(file).toString());
+            long importTime = System.nanoTime() - start;
+            System.out.println(String.format("Import %-32s : ", file)+importTime/1_000_000.0+" ms");
+            // N.B. CSV has no null : the last Gala is rejected for its Location instead
+            success &= report != null && report.getAccepted() == NUM_IMPORTED_EVENTS + 1 && report.getInvalid() == 1;
+            List<Event> hosted = management.getHostedEvents();
+            success &= hosted.stream().anyMatch(event -> event.getName().equals("Event "+NUM_IMPORTED_EVENTS) && event.getPrice().isEmpty());
+            if (Double.isNaN(expectedProfit)) expectedProfit = management.getExpectedProfit();
+            success &= Math.abs(management.getExpectedProfit() - expectedProfit) < 1e-6 * expectedProfit;
+        }
+        try {
+            for (String file : new String[] {"events.csv", "events.jsonl", "events.json"}) Files.delete(directory.resolve(file));
+            Files.delete(directory);
+        } catch (IOException e) {
+            System.out.println("Import benchmark could not delete "+directory+" : "+e.getMessage());
+        }
+        System.out.println("Same Events in every format             : "+(success ? "OK" : "FAILED"));
+        System.out.println();
+    }
+
+    /* ****************************************************************************************************************
+                    SNAPSHOT : STARTUP TIME (LOAD OF A SNAPSHOT VS. RE-HOSTING EVERY EVENT) + ROUND TRIP
+     **************************************************************************************************************** */
+    /**
+     * Compares the time to rebuild a catalog of Events by hosting every Event again (= add commands) w/ the time to
+     * load it from a snapshot, and checks that the loaded catalog is the same as the saved one.
+     */
+    private static void benchmarkSnapshot() {
+        System.out.println("SNAPSHOT BENCHMARK ("+NUM_SNAPSHOT_EVENTS+" events) : ");
+        long start = System.nanoTime();
+        EventManagement management = buildCatalog(NUM_SNAPSHOT_EVENTS);
+        long hostTime = System.nanoTime() - start;
+
+        Path file;
+        try {
+            file = Files.createTempFile("events", ".snapshot");
+        } catch (IOException e) {
+            System.out.println("Snapshot benchmark was UNSUCCESSFUL : "+e.getMessage());
+            return;
+        }
+        start = System.nanoTime();
+        management.saveSnapshot(file.toString());
+        long saveTime = System.nanoTime() - start;
+
+        EventManagement loaded = null;
+        long loadTime = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            start = System.nanoTime();
+            loaded = EventManagement.loadSnapshot(file.toString());
+            loadTime = Math.min(loadTime, System.nanoTime() - start);
+        }
+        try {
+            System.out.println("Snapshot size                           : "+Files.size(file)/1024+" KB");
+            Files.delete(file);
+        } catch (IOException e) {
+            System.out.println("Snapshot benchmark could not delete "+file+" : "+e.getMessage());
+        }
+
+        System.out.println("Startup by hosting every event          : "+hostTime/1_000_000.0+" ms");
+        System.out.println("Save snapshot                           : "+saveTime/1_000_000.0+" ms");
+        System.out.println("Startup by loading snapshot (mmap)      : "+loadTime/1_000_000.0+" ms");
+        System.out.println("Round trip                              : "+(loaded != null && isSameCatalog(management, loaded) ? "OK" : "FAILED"));
+        System.out.println();
+    }
+
+    /* ****************************************************************************************************************
+                        WRITE-AHEAD LOG : COST OF LOGGING EVERY CHANGE PER DURABILITY MODE + REPLAY
+     **************************************************************************************************************** */
+    /**
+     * Measures the time to host Events w/ each durability mode of the write-ahead log (vs. w/o log), and the time
+     * to recover them by replaying the log.
+     */
+    private static void benchmarkLog() {
+        System.out.println("WRITE-AHEAD LOG BENCHMARK ("+NUM_LOGGED_EVENTS+" events) : ");
+        long start = System.nanoTime();
+        buildCatalog(NUM_LOGGED_EVENTS);
+        System.out.println("Host events w/o log                     : "+(System.nanoTime() - start)/1_000_000.0+" ms");
+        for (WriteAheadLog.Durability durability : WriteAheadLog.Durability.values()) {
+            try {
+                Path directory = Files.createTempDirectory("events");
+                String snapshot = directory.resolve("events.snapshot").toString(), log = directory.resolve("events.log").toString();
+                start = System.nanoTime();
+                EventManagement management = EventManagement.recover(snapshot, log, durability);
+                hostCatalog(management, NUM_LOGGED_EVENTS);
+                long hostTime = System.nanoTime() - start;
+                management.closeLog();
+                long closeTime = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                EventManagement recovered = EventManagement.recover(snapshot, log, durability);
+                long replayTime = System.nanoTime() - start;
+                boolean same = recovered != null && isSameCatalog(management, recovered);
+                if (recovered != null) recovered.closeLog();
+                Files.delete(Paths.get(log));
+                Files.delete(directory);
+
+                System.out.println(String.format("%-40s: ", "Host events w/ "+durability+" log (+ close)")+hostTime/1_000_000.0+" ms (+ "+(closeTime - hostTime)/1_000_000.0+" ms)");
+                System.out.println(String.format("%-40s: ", "Replay "+durability+" log")+replayTime/1_000_000.0+" ms ("+(same ? "OK" : "FAILED")+")");
+            } catch (IOException e) {
+                System.out.println("Write-ahead log benchmark was UNSUCCESSFUL : "+e.getMessage());
+            }
+        }
+        System.out.println();
+    }
+
+    /* ****************************************************************************************************************
+                    VIPS : HEAP OF THE GUEST LISTS + MEMBERSHIP CHECKS VS. A LIST OF NAMES PER EVENT
+     **************************************************************************************************************** */
+    /**
+     * Compares a list of VIP names per Event (= former layout of Concert / Gala) w/ the GuestLists of the VIPRegistry :
+     * heap of the guest lists, time to check if a VIP is invited to every Event, and time to find all the Events
+     * a VIP is invited to (scan vs. Index_ByVIP).
+     */
+    private static void benchmarkVIPs() {
+        System.out.println("VIP BENCHMARK ("+NUM_VIP_EVENTS+" events, "+NUM_VIPS+" VIPs) : ");
+        EventManagement management = new EventManagement();
+        for (int i = 0; i < NUM_VIPS; i++) management.addVIP("VIP "+i);
+        List<String> vips = management.getVIPs();
+        List<List<String>> guests = new ArrayList<>(NUM_VIP_EVENTS);
+        for (int i = 0; i < NUM_VIP_EVENTS; i++) {
+            // Most Events invite all the VIPs of EventBrite, the others a few of them
+            guests.add(i % 4 == 0 ? vips.subList(i % NUM_VIPS, Math.min(NUM_VIPS, i % NUM_VIPS + 3)) : vips);
+        }
+
+        long before = usedHeap();
+        List<List<String>> lists = new ArrayList<>(NUM_VIP_EVENTS);
+        for (List<String> names : guests) lists.add(new ArrayList<>(names)); // copy per Event
+        long listHeap = usedHeap() - before;
+
+        before = usedHeap();
+        List<GuestList> guestLists = new ArrayList<>(NUM_VIP_EVENTS);
+        for (List<String> names : guests) guestLists.add(VIPRegistry.getInstance().guestList(names));
+        long guestListHeap = usedHeap() - before;
+
+        System.out.println("Heap per guest list (list of names)     : "+listHeap/NUM_VIP_EVENTS+" bytes");
+        System.out.println("Heap per guest list (GuestList)         : "+guestListHeap/NUM_VIP_EVENTS+" bytes");
+
+        String vip = "VIP "+(NUM_VIPS - 1);
+        int listCount = 0, guestListCount = 0;
+        long listTime = Long.MAX_VALUE, guestListTime = Long.MAX_VALUE;
+        for (int round = 0; round < NUM_ROUNDS; round++) {
+            long start = System.nanoTime();
+            listCount = 0;
+            for (List<String> names : lists) {
+                if (names.contains(vip)) listCount++;
+            }
+            listTime = Math.min(listTime, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            guestListCount = 0;
+            for (GuestList guestList : guestLists) {
+                if (guestList.isInvited(vip)) guestListCount++;
+            }
+            guestListTime = Math.min(guestListTime, System.nanoTime() - start);
+        }
+        assert listCount == guestListCount;
+        System.out.println("Is invited (List.contains)              : "+listTime/1_000_000.0+" ms");
+        System.out.println("Is invited (GuestList bitmap)           : "+guestListTime/1_000_000.0+" ms");
+
+        LocalDate first = LocalDate.of(2022,1,1);
+        for (int i = 0; i < NUM_VIP_EVENTS; i++) {
+            management.addGalaEvent("Gala "+i, first.plusDays(i), Location.BellCentre, 10.0, 100, guests.get(i));
+        }
+        int scanCount = 0, indexCount = 0;
+        long scanTime = Long.MAX_VALUE, indexTime = Long.MAX_VALUE;
+        for (int round = 0; round < NUM_ROUNDS; round++) {
+            long start = System.nanoTime();
+            scanCount = 0;
+            for (Event event : management.getHostedEvents()) {
+                if (event instanceof Gala && ((Gala) event).isInvited(vip)) scanCount++;
+            }
+            scanTime = Math.min(scanTime, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            indexCount = management.getEventsOfVIP(vip).size();
+            indexTime = Math.min(indexTime, System.nanoTime() - start);
+        }
+        System.out.println("Events of a VIP (scan)                  : "+scanTime/1_000_000.0+" ms");
+        System.out.println("Events of a VIP (Index_ByVIP)           : "+indexTime/1_000_000.0+" ms ("+(scanCount == indexCount ? "OK" : "FAILED")+")");
+
+        // The names of a guest list come back as they were given (order and duplicates), and a null VIP is rejected
+        List<String> given = List.of("VIP 3", "VIP 1", "VIP 3");
+        boolean sameNames = VIPRegistry.getInstance().guestList(given).getNames().equals(given);
+        boolean nullRejected = false;
+        try {
+            VIPRegistry.getInstance().guestList(Arrays.asList("VIP 1", null));
+        } catch (IllegalArgumentException e) {
+            nullRejected = true;
+        }
+        System.out.println("Names of a guest list                   : "+(sameNames && nullRejected ? "OK" : "FAILED"));
+        System.out.println();
+    }
+
+    /* ****************************************************************************************************************
+                        DATE RANGE : CALENDAR INDEX VS. SCAN OF ALL THE EVENTS
+     **************************************************************************************************************** */
+    /**
+     * Compares the time to find the Events of a date range ("this weekend", "the next 30 days") by testing every
+     * Event w/ the time of the plan using the calendar index, alone and combined w/ a Location filter.
+     */
+    private static void benchmarkDateRange() {
+        System.out.println("DATE RANGE BENCHMARK ("+NUM_EVENTS+" events) : ");
+        Location[] locations = Location.values();
+        EventStore store = new EventStore();
+        List<Event> events = new ArrayList<>(NUM_EVENTS);
+        LocalDate first = LocalDate.of(2022,1,1);
+        for (int i = 0; i < NUM_EVENTS; i++) {
+            Event event = new AbstractEvent("Event", first.plusDays(i % 3650), Optional.of(locations[i % locations.length]), Optional.of((double) (i % 100)), Optional.of(i % 500));
+            events.add(event);
+            store.add(event);
+        }
+        LocalDate saturday = LocalDate.of(2025,6,7);
+        benchmarkDateRange("This weekend", store, events, List.of(new Filter_ByDateRange(saturday, saturday.plusDays(1))));
+        benchmarkDateRange("Next 30 days", store, events, List.of(new Filter_ByDateRange(saturday, saturday.plusDays(29))));
+        benchmarkDateRange("Next 30 days @BellCentre", store, events, List.of(new Filter_ByLocation(Location.BellCentre), new Filter_ByDateRange(saturday, saturday.plusDays(29))));
+        System.out.println();
+    }
+
+    private static void benchmarkDateRange(String pName, EventStore pStore, List<Event> pEvents, List<Filter> pFilters) {
+        int scanCount = 0, indexCount = 0;
+        long scanTime = Long.MAX_VALUE, indexTime = Long.MAX_VALUE;
+        for (int round = 0; round < NUM_ROUNDS; round++) {
+            long start = System.nanoTime();
+            scanCount = 0;
+            for (Event event : FilteredResult.lazy(pEvents, pFilters)) scanCount++;
+            scanTime = Math.min(scanTime, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            indexCount = 0;
+            for (Event event : FilteredResult.lazy(pStore, pFilters)) indexCount++;
+            indexTime = Math.min(indexTime, System.nanoTime() - start);
+        }
+        System.out.println(String.format("%-40s: ", pName+" (scan)")+scanTime/1_000_000.0+" ms");
+        System.out.println(String.format("%-40s: ", pName+" (index)")+indexTime/1_000_000.0+" ms ("+(scanCount == indexCount ? "OK" : "FAILED")+")");
+        System.out.print(new FilteredResult(pStore, pFilters).explain());
+    }
+
+    /* ****************************************************************************************************************
+                BOOKING : THROUGHPUT AND LATENCY OF RESERVE + CONFIRM / RELEASE ON A SINGLE (HOT) EVENT
+     **************************************************************************************************************** */
+    /**
+     * Sells all the tickets of a single Concert (= on-sale spike) w/ 1 to 64 threads : each thread reserves one
+     * ticket at a time and confirms it (1 reservation in 10 is released instead, like an abandoned cart) until the
+     * Concert is sold out. Reports the bookings per second and the latency percentiles of reserve + confirm / release,
+     * and checks that exactly all the tickets are sold (never oversold).
+     */
+    private static void benchmarkBooking() {
+        System.out.println("BOOKING BENCHMARK ("+NUM_BOOKED_TICKETS+" tickets of a single event) : ");
+        for (int numThreads : BOOKING_THREADS) {
+            EventManagement management = new EventManagement();
+            management.addConcertEvent("On sale", LocalDate.of(2022,1,1), Location.BellCentre, 50.0, NUM_BOOKED_TICKETS, "Artist", List.of());
+            Event concert = management.getHostedEvents().get(0);
+            long[][] latencies = new long[numThreads][];
+            int[] counts = new int[numThreads];
+            List<Thread> threads = new ArrayList<>();
+            CountDownLatch ready = new CountDownLatch(numThreads), go = new CountDownLatch(1);
+            for (int t = 0; t < numThreads; t++) {
+                int thread = t;
+                threads.add(new Thread(() -> {
+                    long[] samples = new long[1024];
+                    int count = 0;
+                    ready.countDown();
+                    try {
+                        go.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    while (true) {
+                        long start = System.nanoTime();
+                        Reservation reservation = management.reserveTickets(concert, 1);
+                        if (reservation == null) break; // sold out
+                        if (reservation.getId() % 10 == 0) management.releaseReservation(reservation);
+                        else management.confirmReservation(reservation);
+                        if (count == samples.length) samples = Arrays.copyOf(samples, count * 2);
+                        samples[count++] = System.nanoTime() - start;
+                    }
+                    latencies[thread] = samples;
+                    counts[thread] = count;
+                }));
+            }
+            for (Thread thread : threads) thread.start();
+            try {
+                ready.await();
+                long start = System.nanoTime();
+                go.countDown();
+                for (Thread thread : threads) thread.join();
+                long time = System.nanoTime() - start;
+
+                int numSamples = 0;
+                for (int count : counts) numSamples += count;
+                long[] all = new long[numSamples];
+                int offset = 0;
+                for (int t = 0; t < numThreads; t++) {
+                    System.arraycopy(latencies[t], 0, all, offset, counts[t]);
+                    offset += counts[t];
+                }
+                Arrays.sort(all);
+                boolean exact = management.getSoldTickets(concert) == NUM_BOOKED_TICKETS && management.getAvailableTickets(concert) == 0;
+                System.out.println(String.format("%2d threads : %,12.0f bookings/s   p50 %,7d ns   p99 %,9d ns   p99.9 %,10d ns   max %,12d ns (%s)",
+                        numThreads, numSamples / (time / 1_000_000_000.0), percentile(all, 0.50), percentile(all, 0.99),
+                        percentile(all, 0.999), all[all.length - 1], exact ? "OK" : "OVERSOLD / UNDERSOLD"));
+            } catch (InterruptedException e) {
+                System.out.println("Booking benchmark was INTERRUPTED");
+                return;
+            }
+        }
+        System.out.println();
+    }
+
+    /* ****************************************************************************************************************
+                        HOLDS : TIMING WHEEL VS. SCAN OF THE OPEN HOLDS ON EVERY EXPIRY
+     **************************************************************************************************************** */
+    /**
+     * Holds one ticket NUM_HOLDS times for 1 to 15 minutes (on a ManualClock), confirms half of the Holds, then moves
+     * the clock by 1 second until they have all expired. Compares the expiry by the timing wheel to a scan of the open
+     * Holds at every second (= what expiring w/o the wheel costs).
+     */
+    private static void benchmarkHolds() {
+        System.out.println("HOLDS BENCHMARK ("+NUM_HOLDS+" holds of 1 to 15 minutes) : ");
+        ManualClock clock = new ManualClock(0);
+        EventManagement management = new EventManagement(clock);
+        management.addConcertEvent("On sale", LocalDate.of(2022,1,1), Location.BellCentre, 50.0, NUM_HOLDS, "Artist", List.of());
+        Event concert = management.getHostedEvents().get(0);
+        Random random = new Random(0);
+        Hold[] holds = new Hold[NUM_HOLDS];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < NUM_HOLDS; i++) holds[i] = management.holdTickets(concert, 1, 60_000 + random.nextInt(14 * 60_000));
+        long holdTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < NUM_HOLDS; i += 2) management.confirmHold(holds[i]);
+        long confirmTime = System.nanoTime() - start;
+
+        Hold[] open = new Hold[NUM_HOLDS / 2]; // open Holds of the scan (the expired ones are swapped out)
+        int numOpen = 0;
+        for (int i = 1; i < NUM_HOLDS; i += 2) open[numOpen++] = holds[i];
+        long scanTime = 0, expireTime = 0, numVisited = 0;
+        int numExpired = 0;
+        for (long now = 0; now <= 15 * 60_000 + Command_HoldTickets.TICK_MILLIS; now = clock.advance(1000)) {
+            start = System.nanoTime();
+            numVisited += numOpen;
+            for (int i = 0; i < numOpen; ) { // N.B. only removes : the wheel releases them
+                if (open[i].getDeadline() <= now) open[i] = open[--numOpen];
+                else i++;
+            }
+            scanTime += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            numExpired += management.expireHolds();
+            expireTime += System.nanoTime() - start;
+        }
+        boolean exact = numExpired == NUM_HOLDS / 2 && management.getNumHolds() == 0 && management.getSoldTickets(concert) == NUM_HOLDS / 2
+                && management.getAvailableTickets(concert) == NUM_HOLDS / 2;
+        System.out.println("Hold (schedule in the wheel)     : "+holdTime / NUM_HOLDS+" ns/hold");
+        System.out.println("Confirm (cancel in the wheel)    : "+confirmTime / (NUM_HOLDS / 2)+" ns/confirm");
+        System.out.println("Expiry by the timing wheel       : "+expireTime / 1_000_000.0+" ms ("+numExpired+" holds expired, "+(exact ? "OK" : "TICKETS LOST")+")");
+        System.out.println("Expiry by scanning the open holds: "+scanTime / 1_000_000.0+" ms ("+numVisited+" holds visited)");
+        System.out.println();
+    }
+
+    /* ****************************************************************************************************************
+                        PATHS : TIME AND ALLOCATION PER OPERATION OF THE EVENT MANAGEMENT API
+     **************************************************************************************************************** */
+    /**
+     * Measures the time and the bytes allocated per operation of :
+     *      (1) ingest : add*Event of 10^3 to 10^6 Events in a new EventManagement
+     *      (2) filterHostedEvents w/ every combination of the Filters (Location, Price Range, Date Range)
+     *      (3) FilteredResult.getExpectedProfit (computed, and memoized by a pinned result), and the top 20 Events by
+     *          profit (bounded heap vs. sort of all the matches)
+     *      (4) setProfit* repricing of every type of Event
+     *      (5) Festival.createFestival of 2 to 100 Events
+     *      (6) recording in the Metrics (must not allocate)
+     * @param pBaseline
+     *              file of the results to compare to (saved there if it does not exist), or null
+     */
+    private static void benchmarkPaths(Path pBaseline) {
+        System.out.println("PATHS BENCHMARK ("+NUM_WARMUP_ITERATIONS+" warm-up + "+NUM_MEASURED_ITERATIONS+" measured iterations) : ");
+        Map<String, double[]> baseline = readBaseline(pBaseline);
+        Map<String, double[]> results = new LinkedHashMap<>();
+
+        for (int numEvents : NUM_INGESTED_EVENTS) {
+            int numIterations = Math.max(1, Math.min(NUM_MEASURED_ITERATIONS, 1_000_000 / numEvents));
+            measure(results, baseline, "ingest "+numEvents+" events", numIterations, numEvents, iteration -> {
+                EventManagement management = new EventManagement();
+                hostEvents(management, numEvents);
+                sink = management.getHostedEvents().size();
+            });
+        }
+
+        EventManagement management = buildCatalog(NUM_PATH_EVENTS);
+        for (int mask = 1; mask < 8; mask++) { // every combination of the 3 Filters
+            management.resetFilters();
+            if ((mask & 1) != 0) management.setFilterByLocation(Location.BellCentre);
+            if ((mask & 2) != 0) management.setFilterByPriceRange(20.0, 40.0);
+            if ((mask & 4) != 0) management.setFilterByDateRange(LocalDate.of(2022,3,1), LocalDate.of(2022,5,31));
+            measure(results, baseline, "filter "+management.filterHostedEvents().getFilters(), NUM_MEASURED_ITERATIONS, 100, iteration -> {
+                for (int i = 0; i < 100; i++) sink = management.filterHostedEvents().getExpectedProfit();
+            });
+        }
+
+        management.resetFilters();
+        management.setFilterByLocation(Location.BellCentre);
+        FilteredResult pinned = management.filterHostedEvents();
+        FilteredResult unpinned = new FilteredResult(management.getStore(), List.of(new Filter_ByLocation(Location.BellCentre)));
+        measure(results, baseline, "expected profit (computed)", NUM_MEASURED_ITERATIONS, 100, iteration -> {
+            for (int i = 0; i < 100; i++) sink = unpinned.getExpectedProfit();
+        });
+        measure(results, baseline, "expected profit (pinned, memoized)", NUM_MEASURED_ITERATIONS, 100_000, iteration -> {
+            for (int i = 0; i < 100_000; i++) sink = pinned.getExpectedProfit();
+        });
+        measure(results, baseline, "top 20 by profit [Location = BellCentre]", NUM_MEASURED_ITERATIONS, 10, iteration -> {
+            for (int i = 0; i < 10; i++) sink = management.getTopHostedEvents(Ranking.Key.PROFIT, true, 20).size();
+        });
+        measure(results, baseline, "all matches sorted by profit [Location = BellCentre]", NUM_MEASURED_ITERATIONS, 10, iteration -> {
+            for (int i = 0; i < 10; i++) { // = what the top 20 cost w/o a bounded heap
+                List<Event> matches = new ArrayList<>();
+                for (Event event : management.filterHostedEventsLazily()) matches.add(event);
+                matches.sort((a, b) -> Double.compare(b.getProfit(), a.getProfit()));
+                sink = matches.subList(0, 20).size();
+            }
+        });
+
+        String[] types = {"Concert", "Gala", "Screening", "Workshop"};
+        for (String type : types) {
+            measure(results, baseline, "setProfit"+type, NUM_MEASURED_ITERATIONS, 1000, iteration -> {
+                for (int i = 0; i < 1000; i++) {
+                    int percentage = (iteration * 1000 + i) % 101;
+                    switch (type) {
+                        case "Concert": management.setProfitConcert(percentage); break;
+                        case "Gala": management.setProfitGala(percentage); break;
+                        case "Screening": management.setProfitScreening(percentage); break;
+                        default: management.setProfitWorkshop(percentage);
+                    }
+                }
+                sink = management.getExpectedProfit();
+            });
+        }
+
+        // N.B. a Festival registers itself in its events : every call gets its own events, so they are not shared
+        // by the Festivals of all the iterations
+        for (int numMembers : new int[] {2, 10, 100}) {
+            List<List<Event>> members = new ArrayList<>();
+            for (int i = 0; i < (NUM_WARMUP_ITERATIONS + NUM_MEASURED_ITERATIONS) * 100; i++) {
+                List<Event> events = new ArrayList<>(numMembers);
+                for (int m = 0; m < numMembers; m++) {
+                    events.add(new AbstractEvent("Event", LocalDate.of(2022,1,1).plusDays(m), Optional.of(Location.BellCentre), Optional.of(10.0 + m), Optional.of(100)));
+                }
+                members.add(events);
+            }
+            measure(results, baseline, "createFestival of "+numMembers+" events", NUM_MEASURED_ITERATIONS, 100, iteration -> {
+                for (int i = 0; i < 100; i++) sink = Festival.createFestival("Festival", members.get(iteration * 100 + i)).getProfit();
+            });
+        }
+
+        Metrics metrics = new Metrics();
+        LongAdder counter = metrics.counter("benchmark.counter");
+        LatencyHistogram histogram = metrics.histogram("benchmark.latency");
+        measure(results, baseline, "metrics counter increment", NUM_MEASURED_ITERATIONS, 1_000_000, iteration -> {
+            for (int i = 0; i < 1_000_000; i++) counter.increment();
+        });
+        measure(results, baseline, "metrics histogram record", NUM_MEASURED_ITERATIONS, 1_000_000, iteration -> {
+            for (int i = 0; i < 1_000_000; i++) histogram.record(i * 37L);
+        });
+        sink = counter.sum() + histogram.getPercentile(99);
+
+        if (pBaseline != null && baseline.isEmpty()) {
+            List<String> lines = new ArrayList<>();
+            results.forEach((name, result) -> lines.add(name+"\t"+result[0]+"\t"+result[1]));
+            try {
+                Files.write(pBaseline, lines);
+                System.out.println("Baseline saved in "+pBaseline);
+            } catch (IOException e) {
+                System.out.println("Baseline could NOT be saved in "+pBaseline);
+            }
+        }
+        System.out.println();
+    }
+
+    private interface Iteration {
+        void run(int pIteration);
+    }
+
+    /**
+     * Runs a benchmark (NUM_WARMUP_ITERATIONS discarded, then pNumIterations measured) and prints its time and bytes
+     * allocated per operation (average of the measured iterations, allocation of the current thread only), w/ the
+     * difference to the baseline if it has the same benchmark.
+     * @param pNumOps
+     *              number of operations per iteration
+     */
+    private static void measure(Map<String, double[]> pResults, Map<String, double[]> pBaseline, String pName, int pNumIterations, int pNumOps, Iteration pIteration) {
+        for (int i = 0; i < Math.min(NUM_WARMUP_ITERATIONS, pNumIterations); i++) pIteration.run(i);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long gcCount = gcCount(), time = 0, allocated = 0;
+        for (int i = 0; i < pNumIterations; i++) {
+            long bytes = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            pIteration.run(NUM_WARMUP_ITERATIONS + i);
+            time += System.nanoTime() - start;
+            allocated += threads.getThreadAllocatedBytes(thread) - bytes;
+        }
+        double[] result = {(double) time / pNumIterations / pNumOps, (double) allocated / pNumIterations / pNumOps};
+        pResults.put(pName, result);
+        double[] previous = pBaseline.get(pName);
+        String delta = previous == null ? "" : String.format("   (%+.1f%% time, %+.1f%% alloc. vs. baseline)",
+                100 * (result[0] / previous[0] - 1), previous[1] == 0 ? 0.0 : 100 * (result[1] / previous[1] - 1));
+        System.out.println(String.format("%,14.1f ns/op %,14.1f B/op %,6d GCs   %s%s", result[0], result[1], gcCount() - gcCount, pName, delta));
+    }
+
+    /**
+     * @return the results of a baseline file (name -> {ns/op, B/op}), empty if there is none.
+     */
+    private static Map<String, double[]> readBaseline(Path pBaseline) {
+        Map<String, double[]> baseline = new HashMap<>();
+        if (pBaseline == null || !Files.exists(pBaseline)) return baseline;
+        try {
+            for (String line : Files.readAllLines(pBaseline)) {
+                String[] fields = line.split("\t");
+                baseline.put(fields[0], new double[] {Double.parseDouble(fields[1]), Double.parseDouble(fields[2])});
+            }
+            System.out.println("Compared to the baseline "+pBaseline);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Baseline "+pBaseline+" could NOT be read");
+        }
+        return baseline;
+    }
+
+    /**
+     * @return number of garbage collections since the JVM started.
+     */
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) count += Math.max(0, collector.getCollectionCount());
+        return count;
+    }
+
+    /**
+     * Hosts pNumEvents Events of every type at distinct Dates and Locations (no Festival / override).
+     */
+    private static void hostEvents(EventManagement pManagement, int pNumEvents) {
+        Location[] locations = {Location.BellCentre, Location.OlympicStadium, Location.ParcJeanDrapeau, Location.PlaceDesArts};
+        LocalDate start = LocalDate.of(2022,1,1);
+        List<String> vips = List.of();
+        for (int i = 0; i < pNumEvents; i++) {
+            LocalDate date = start.plusDays(i / locations.length);
+            Location location = locations[i % locations.length];
+            double price = 10.0 + i % 90;
+            switch (i % 4) {
+                case 0: pManagement.addConcertEvent("Concert "+i, date, location, price, 100, "Artist", vips); break;
+                case 1: pManagement.addGalaEvent("Gala "+i, date, location, price, 100, vips); break;
+                case 2: pManagement.addScreeningEvent("Screening "+i, date, location, price, 100, Screening.Rating.G); break;
+                default: pManagement.addWorkshopEvent("Workshop "+i / 100, date, location, 25.0, 40);
+            }
+        }
+    }
+
+    /**
+     * @return the pPercentile (in [0, 1]) of sorted values.
+     * @pre pSorted.length > 0
+     */
+    private static long percentile(long[] pSorted, double pPercentile) {
+        return pSorted[Math.min(pSorted.length - 1, (int) Math.ceil(pPercentile * pSorted.length) - 1)];
+    }
+
+    /**
+     * @return a catalog of (about) pNumEvents Events of every type, w/ series of Workshops, Festivals, VIPs,
+     *              per-type percentages and per-event overrides.
+     */
+    private static EventManagement buildCatalog(int pNumEvents) {
+        EventManagement management = new EventManagement();
+        hostCatalog(management, pNumEvents);
+        return management;
+    }
+
+    /**
+     * Hosts the catalog of buildCatalog in an EventManagement.
+     */
+    private static void hostCatalog(EventManagement pManagement, int pNumEvents) {
+        for (int i = 0; i < 10; i++) pManagement.addVIP("VIP "+i);
+        List<String> vips = pManagement.getVIPs().subList(0, 3);
+        Location[] locations = {Location.BellCentre, Location.OlympicStadium, Location.ParcJeanDrapeau, Location.PlaceDesArts};
+        LocalDate start = LocalDate.of(2022,1,1);
+        for (int i = 0; i < pNumEvents; i++) {
+            LocalDate date = start.plusDays(i / locations.length);
+            Location location = locations[i % locations.length];
+            double price = 10.0 + i % 90;
+            int tickets = 50 + i % 450;
+            switch (i % 5) {
+                case 0: pManagement.addConcertEvent("Concert "+i, date, location, price, tickets, "Artist "+i % 100, vips); break;
+                case 1: pManagement.addGalaEvent("Gala "+i, date, location, price, tickets, vips); break;
+                case 2: pManagement.addScreeningEvent("Screening "+i, date, location, price, tickets, Screening.Rating.PG_13); break;
+                case 3: pManagement.addWorkshopEvent("Workshop "+i / 100, date, location, 25.0, 40); break;
+                default: pManagement.addWorkshopEvent("Coming soon "+i, date, null, null, null);
+            }
+        }
+        List<Event> hosted = pManagement.getHostedEvents();
+        for (int i = 0; i + 2 < hosted.size(); i += 1000) {
+            pManagement.addFestival("Festival "+i, hosted.subList(i, i + 3));
+            hosted.get(i + 1).updatePercentage(35);
+        }
+        pManagement.setProfitConcert(30);
+        pManagement.setProfitWorkshop(10);
+    }
+
+    /**
+     * @return TRUE if both catalogs host the same Events (same order and fields), VIPs and Expected Profit.
+     */
+    private static boolean isSameCatalog(EventManagement pExpected, EventManagement pActual) {
+        List<Event> expected = pExpected.getHostedEvents();
+        List<Event> actual = pActual.getHostedEvents();
+        if (expected.size() != actual.size() || !pExpected.getVIPs().equals(pActual.getVIPs())) return false;
+        for (int i = 0; i < expected.size(); i++) {
+            Event e = expected.get(i), a = actual.get(i);
+            if (e.getClass() != a.getClass() || !e.getName().equals(a.getName()) || !e.getDate().equals(a.getDate())
+                    || !e.getLocation().equals(a.getLocation()) || !e.getPrice().equals(a.getPrice())
+                    || !e.getNumTickets().equals(a.getNumTickets()) || !e.getProfit().equals(a.getProfit())) return false;
+            if (e instanceof Workshop && ((Workshop) e).getPrerequisites().size() != ((Workshop) a).getPrerequisites().size()) return false;
+            if (e instanceof Festival && ((Festival) e).getFestivalEventsList().size() != ((Festival) a).getFestivalEventsList().size()) return false;
+            if (e instanceof Gala && !((Gala) e).getGuestList().equals(((Gala) a).getGuestList())) return false;
+            if (e instanceof Concert && !((Concert) e).getGuestList().equals(((Concert) a).getGuestList())) return false;
+        }
+        return pExpected.getExpectedProfit() == pActual.getExpectedProfit()
+                && pExpected.getExpectedProfitWorkshop() == pActual.getExpectedProfitWorkshop();
+    }
+
+    /**
+     * Former layout of AbstractEvent (boxed Optional fields + boxed percentage), kept as a baseline.
+     */
+    private static final class LegacyEvent {
+        final private String aName;
+        final private LocalDate aDate;
+        private Optional<Location> aLocation;
+        private Optional<Double> aTicketPrice;
+        private Optional<Integer> aNumTickets;
+        private Integer aPercentage = 20;
+
+        LegacyEvent(String pName, LocalDate pDate, Optional<Location> pLocation, Optional<Double> pTicketPrice, Optional<Integer> pNumTickets) {
+            this.aName = pName;
+            this.aDate = pDate;
+            this.aLocation = pLocation;
+            this.aTicketPrice = pTicketPrice;
+            this.aNumTickets = pNumTickets;
+        }
+    }
+
+    /**
+     * @return the heap currently in use (after requesting a garbage collection).
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
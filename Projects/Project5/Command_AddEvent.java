@@ -1,16 +1,56 @@
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 /**
  * The Add Event Command allows the creation of all types of Events (Concert / Gala / Workshop / Screening ),
  * Then, it compared the new Event Object with all the other previously-created-ones to avoid the creation
  * of Duplicates Events.
+ *
+ * Thread-safety : Events are added concurrently. The check for a Duplicate and the hosting of a 'Unique' Event are
+ * done while holding the lock of the stripe of its (Date, Location), so Events at different Dates / Locations are
+ * added in parallel and two Events at the same Date and Location are never both hosted. A Workshop joins its series
+ * (a concurrent map, never locked) once it is published, in O(log k) for a series of k Workshops.
  */
 public class Command_AddEvent {
 
-    List<Event> aEvents = new ArrayList<>(); // List of all 'Unique' Events that have been created using the Event Management
+    private static final int NUM_STRIPES = 64; // number of locks striping the (Date, Location) of the Events (power of 2)
+
+    // Index of all 'Unique' Events by (Date, Location) to detect duplicates in constant time
+    private Map<ConflictKey, Event> aConflictIndex = new ConcurrentHashMap<>();
+    // Index of all Concrete Workshops by series (Name, Location, Price, Number of Tickets), each series sorted by Date
+    // N.B. The prerequisites of a Workshop are a view of its series (see Workshop.joinSeries)
+    private Map<SeriesKey, ConcurrentSkipListMap<LocalDate, Workshop>> aSeriesIndex = new ConcurrentHashMap<>();
+    // Locks of the stripes of (Date, Location)
+    final private Object[] aStripes = new Object[NUM_STRIPES];
+    // Table of Profit Percentages per type of Event that all the created Events read their percentage from
+    final private ProfitPercentages aPercentages;
+
+    /**
+     * Creates the Add Event Command w/ its own table of Profit Percentages.
+     */
+    public Command_AddEvent()
+    {
+        this(new ProfitPercentages());
+    }
+
+    /**
+     * Creates the Add Event Command.
+     * @param pPercentages
+     *              table of Profit Percentages per type of Event shared by all the created Events
+     * @pre pPercentages != null
+     */
+    public Command_AddEvent(ProfitPercentages pPercentages)
+    {
+        if (pPercentages == null) throw new IllegalArgumentException();
+        this.aPercentages = pPercentages;
+        for (int i = 0; i < NUM_STRIPES; i++) aStripes[i] = new Object();
+    }
 
     /**
      * Method to host a new concert event with NO DUPLICATES ALLOWED (= No previous Event created with same Location and Date)
@@ -21,9 +61,11 @@ public class Command_AddEvent {
         if (pName == null || pDate == null || pLocation == null || pTicketPrice == null || pNumTickets == null || pArtist == null || pVIPs == null) throw new IllegalArgumentException();
         Event newEvent = new Concert(pName,pDate,pLocation,pTicketPrice,pNumTickets,pArtist,pVIPs);
 
-        if (!isPresent(newEvent)) { // Check if Event with same Location and Date has already been created
-            aEvents.add(newEvent);
-            return newEvent;
+        synchronized (stripe(newEvent)) {
+            if (!isPresent(newEvent)) { // Check if Event with same Location and Date has already been created
+                host(newEvent);
+                return newEvent;
+            }
         }
         return null;
     }
@@ -37,9 +79,11 @@ public class Command_AddEvent {
         if (pName == null || pDate == null || pLocation == null || pTicketPrice == null || pNumTickets == null || pVIPs == null) throw new IllegalArgumentException();
         Event newEvent = new Gala(pName,pDate,pLocation,pTicketPrice,pNumTickets,pVIPs);
 
-        if (!isPresent(newEvent)) { // Check if Event with same Location and Date has already been created
-            aEvents.add(newEvent);
-            return newEvent;
+        synchronized (stripe(newEvent)) {
+            if (!isPresent(newEvent)) { // Check if Event with same Location and Date has already been created
+                host(newEvent);
+                return newEvent;
+            }
         }
         return null;
     }
@@ -53,9 +97,11 @@ public class Command_AddEvent {
         if (pName == null || pDate == null || pLocation == null || pRating == null) throw new IllegalArgumentException();
         Event newEvent = new Screening(pName,pDate,pLocation,pTicketPrice,pNumTickets,pRating);
 
-        if (!isPresent(newEvent)) { // Check if Event with same Location and Date has already been created
-            aEvents.add(newEvent);
-            return newEvent;
+        synchronized (stripe(newEvent)) {
+            if (!isPresent(newEvent)) { // Check if Event with same Location and Date has already been created
+                host(newEvent);
+                return newEvent;
+            }
         }
         return null;
     }
@@ -68,98 +114,208 @@ public class Command_AddEvent {
     {
         if (pName == null || pDate == null || pLocation == null) throw new IllegalArgumentException();
 
-        List<Workshop> prerequisites = findPrerequisites(pName,pDate,pLocation,pTicketPrice,pNumTickets);
-
-        Workshop newEvent = new Workshop(pName,pDate,pLocation,pTicketPrice,pNumTickets,prerequisites);
-        updatePrerequisites(newEvent);
+        Workshop newEvent = new Workshop(pName,pDate,pLocation,pTicketPrice,pNumTickets,new ArrayList<>());
 
-        if (!isPresent(newEvent)) { // Check if Event with same Location and Date has already been created
-            aEvents.add(newEvent);
-            return newEvent;
+        synchronized (stripe(newEvent)) {
+            if (!isPresent(newEvent)) { // Check if Event with same Location and Date has already been created
+                // N.B. Prerequisites are linked once the Workshop is published (see linkPrerequisites), so duplicates
+                // never become prerequisites
+                host(newEvent);
+                return newEvent;
+            }
         }
         return null;
     }
 
     /**
      * Method to host a new Festival event with NO DUPLICATES ALLOWED
-     * @pre pName != null && aEvents != null
+     * @pre pName != null && pEvents != null
      */
     public Event addEvent_Festival(String pName, List<Event> pEvents)
     {
         if (pName == null || pEvents == null) throw new IllegalArgumentException();
         Event newEvent = Festival.createFestival(pName,pEvents);
-        if (!isPresent(newEvent)) {
-            aEvents.add(newEvent);
-            return newEvent;
+        synchronized (stripe(newEvent)) {
+            if (!isPresent(newEvent)) {
+                host(newEvent);
+                return newEvent;
+            }
         }
         return null;
     }
 
     /**
-     * Find all possible prerequisites of a new Workshop being created by going through
-     * th list of all Event created and match any other Workshop with same Name, same Location, and ulterior Date.
-     * @param pName
-     *          Name of Workshop being Created
-     * @param pDate
-     *          Date of Workshop being Created
-     * @param pLocation
-     *          Location of Workshop being Created
-     * @return list of all Workshop events that have matched as prerequisites of the Workshop being created
+     * Restores an Event hosted on EventBrite (e.g. from a snapshot, see EventSnapshot) w/o validating it :
+     * the Event is known to be 'Unique'. N.B. A Workshop is then linked like a new one (see linkPrerequisites).
+     * @param pEvent
+     *              Event to restore
+     * @pre pEvent != null && !isPresent(pEvent)
      */
-    private List<Workshop> findPrerequisites(String pName, LocalDate pDate, Optional<Location> pLocation, Optional<Double> pTicketPrice, Optional<Integer> pNumTickets)
+    void restore(Event pEvent)
     {
-        assert pName != null && pDate != null && pLocation != null;
-        List<Workshop> aPrerequisites = new ArrayList<>();
-
-        if (!aEvents.isEmpty()) {
-            for (Event event : aEvents) {
-                if (event instanceof Workshop) {
-                    if (event.getLocation().isPresent() && event.getPrice().isPresent() && event.getNumTickets().isPresent()) {
-                        if (event.getName().equals(pName) && event.getDate().isBefore(pDate) && event.getLocation().get().equals(pLocation.get()) && event.getPrice().get().equals(pTicketPrice.get()) && event.getNumTickets().get().equals(pNumTickets.get()))  {
-                            aPrerequisites.add((Workshop)event);
-                        }
-                    }
-                }
-            }
+        assert pEvent != null && !isPresent(pEvent);
+        synchronized (stripe(pEvent)) {
+            host(pEvent);
         }
-        return aPrerequisites;
     }
 
     /**
-     * Update (if applicable) the prerequisites list of all the Workshop hosted on EventBrite
-     * if a Workshop being created is a prerequisites of one.
+     * Links a new Workshop w/ the Workshops of its series (Workshops with same Name, Location, Price and Number of
+     * Tickets) : the Workshops with an earlier Date become its prerequisites, and it becomes a prerequisite of the
+     * Workshops with a later Date. O(log k) for a series of k Workshops : the prerequisites are a view of the series,
+     * so neither the new Workshop nor the later ones copy them (see Workshop.joinSeries).
+     * N.B. Called by EventManagement once the Workshop is published in the store, so a Workshop is never the
+     * prerequisite of another before it is hosted (e.g. in a snapshot).
      * @param pWorkshop
-     *              Workshop Event being created
+     *              Workshop Event hosted by addEvent_Workshop (or restored)
+     * @pre pWorkshop != null
      */
-    private void updatePrerequisites(Workshop pWorkshop) {
+    void linkPrerequisites(Workshop pWorkshop)
+    {
         assert pWorkshop != null;
-        if (pWorkshop !=null && !aEvents.isEmpty() && pWorkshop.getLocation().isPresent() && pWorkshop.getPrice().isPresent() && pWorkshop.getNumTickets().isPresent()) {
-            for (Event event : aEvents) {
-                if (event instanceof Workshop) {
-                    if (event.getLocation().isPresent() && event.getNumTickets().isPresent() && event.getPrice().isPresent()) {
-                        if (event.getName().equals(pWorkshop.getName()) && event.getDate().isAfter(pWorkshop.getDate()) && event.getLocation().get().equals(pWorkshop.getLocation().get()) && event.getPrice().get().equals(pWorkshop.getPrice().get()) && event.getNumTickets().get().equals(pWorkshop.getNumTickets().get())) {
-                            ((Workshop) event).addPrerequisite(pWorkshop);
-                        }
-                    }
-                }
-            }
-        }
+        SeriesKey key = SeriesKey.of(pWorkshop);
+        if (key == null) return; // 'ComingSoon' Workshops do not belong to any series
+        pWorkshop.joinSeries(aSeriesIndex.computeIfAbsent(key, k -> new ConcurrentSkipListMap<>()));
+    }
+
+    /**
+     * @return the Event hosted at a Date and Location, or null if none.
+     * @pre pDate != null && pLocation != null
+     */
+    Event findHosted(LocalDate pDate, Optional<Location> pLocation)
+    {
+        assert pDate != null && pLocation != null;
+        return aConflictIndex.get(new ConflictKey(pDate, pLocation));
+    }
+
+    /**
+     * @return the lock of the stripe of the (Date, Location) of an Event.
+     */
+    private Object stripe(Event pEvent)
+    {
+        int hash = new ConflictKey(pEvent.getDate(), pEvent.getLocation()).hashCode();
+        return aStripes[(hash ^ (hash >>> 16)) & (NUM_STRIPES - 1)];
     }
 
     /**
      * Method that check if an Event (w/ same date and location) has been hosted already.
+     * Same semantics as AbstractEvent.isEqual, but using the conflict index instead of
+     * going through the list of all Events.
      * @param pEvent
      * @pre newEvent != null
      */
     private boolean isPresent(Event pEvent)
     {
         assert pEvent != null;
-        for(Event event : aEvents)
+        return aConflictIndex.containsKey(new ConflictKey(pEvent.getDate(), pEvent.getLocation()));
+    }
+
+    /**
+     * Adds a 'Unique' Event to the conflict index, attaches it to the table of Profit
+     * Percentages and registers a Festival on its events. N.B. The Event is marked as hosted once published (see ProfitAggregates.add).
+     * @param pEvent
+     *              Event to add
+     * @pre pEvent != null && !isPresent(pEvent)
+     */
+    private void host(Event pEvent)
+    {
+        assert pEvent != null;
+        if (pEvent instanceof AbstractEvent) ((AbstractEvent) pEvent).attach(aPercentages);
+        if (pEvent instanceof Festival) {
+            attachMembers((Festival) pEvent);
+            ((Festival) pEvent).register(); // N.B. only once hosted : rejected Festivals stay unknown to their events
+        }
+        aConflictIndex.put(new ConflictKey(pEvent.getDate(), pEvent.getLocation()), pEvent);
+    }
+
+    /**
+     * Attaches all the Events of a Festival (and of its nested Festivals) that are not hosted on EventBrite
+     * to the table of Profit Percentages, so they use the same percentages as the hosted Events.
+     * @pre pFestival != null
+     */
+    private void attachMembers(Festival pFestival)
+    {
+        assert pFestival != null;
+        for (Event event : pFestival.getFestivalEventsList()) {
+            if (event instanceof AbstractEvent && !((AbstractEvent) event).isAttached()) {
+                ((AbstractEvent) event).attach(aPercentages);
+                if (event instanceof Festival) attachMembers((Festival) event);
+            }
+        }
+    }
+
+    /**
+     * Key of the conflict index : two Events conflict when they share the same Date and Location.
+     * 'ComingSoon' Events (w/ Optional.empty() Location) only conflict with other 'ComingSoon' Events.
+     */
+    private static final class ConflictKey
+    {
+        final private LocalDate aDate;
+        final private Optional<Location> aLocation;
+
+        ConflictKey(LocalDate pDate, Optional<Location> pLocation)
+        {
+            assert pDate != null && pLocation != null;
+            this.aDate = pDate;
+            this.aLocation = pLocation;
+        }
+
+        @Override
+        public boolean equals(Object pObject) {
+            if (this == pObject) return true;
+            if (!(pObject instanceof ConflictKey)) return false;
+            ConflictKey key = (ConflictKey) pObject;
+            return aDate.isEqual(key.aDate) && aLocation.equals(key.aLocation);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(aDate, aLocation);
+        }
+    }
+
+    /**
+     * Key of the series index : Workshops of a same series share the same Name, Location, Price and Number of Tickets.
+     */
+    private static final class SeriesKey
+    {
+        final private String aName;
+        final private Location aLocation;
+        final private Double aTicketPrice;
+        final private Integer aNumTickets;
+
+        private SeriesKey(String pName, Location pLocation, Double pTicketPrice, Integer pNumTickets)
+        {
+            this.aName = pName;
+            this.aLocation = pLocation;
+            this.aTicketPrice = pTicketPrice;
+            this.aNumTickets = pNumTickets;
+        }
+
+        /**
+         * @return the series key of a Workshop, or null for a 'ComingSoon' Workshop.
+         * @pre pWorkshop != null
+         */
+        static SeriesKey of(Workshop pWorkshop)
         {
-            if (event.isEqual(pEvent)) {
-                return true;
+            assert pWorkshop != null;
+            if (pWorkshop.getLocation().isPresent() && pWorkshop.getPrice().isPresent() && pWorkshop.getNumTickets().isPresent()) {
+                return new SeriesKey(pWorkshop.getName(), pWorkshop.getLocation().get(), pWorkshop.getPrice().get(), pWorkshop.getNumTickets().get());
             }
+            return null;
+        }
+
+        @Override
+        public boolean equals(Object pObject) {
+            if (this == pObject) return true;
+            if (!(pObject instanceof SeriesKey)) return false;
+            SeriesKey key = (SeriesKey) pObject;
+            return aName.equals(key.aName) && aLocation == key.aLocation && aTicketPrice.equals(key.aTicketPrice) && aNumTickets.equals(key.aNumTickets);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(aName, aLocation, aTicketPrice, aNumTickets);
         }
-        return false;
     }
 }
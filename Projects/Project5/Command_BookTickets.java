@@ -0,0 +1,85 @@
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Book Tickets Command sells the tickets of the Events hosted on EventBrite in two steps :
+ *      (1) Reserve : takes tickets from the inventory of the Event (fails if not enough tickets are available)
+ *      (2) Confirm (the tickets are sold) OR Release (the tickets are available again)
+ * Each Event has its own TicketInventory, created on its first reservation, whose counters are only updated w/
+ * compare-and-set : reservations of different Events never contend, reservations of the same Event never block
+ * each other, and an Event is never oversold.
+ */
+public class Command_BookTickets {
+
+    final private ConcurrentHashMap<Event, TicketInventory> aInventories = new ConcurrentHashMap<>(); // per hosted Event
+    final private AtomicLong aNextId = new AtomicLong(1); // id of the next Reservation
+
+    /**
+     * Reserves tickets of an Event.
+     * @param pEvent
+     *              Concrete Event hosted on EventBrite
+     * @param pQuantity
+     *              number of tickets to reserve
+     * @return the Reservation, or null if fewer than pQuantity tickets are available
+     * @pre pEvent != null && pEvent is hosted && pEvent.getNumTickets().isPresent() && pQuantity > 0
+     */
+    public Reservation reserve(Event pEvent, int pQuantity) throws IllegalArgumentException
+    {
+        if (pEvent == null || pQuantity <= 0) throw new IllegalArgumentException();
+        TicketInventory inventory = getInventory(pEvent);
+        if (!inventory.take(pQuantity)) return null;
+        return new Reservation(aNextId.getAndIncrement(), pEvent, pQuantity, inventory);
+    }
+
+    /**
+     * Confirms a Reservation : its tickets are sold.
+     * @return TRUE if confirmed, FALSE if it was already confirmed or released
+     * @pre pReservation != null
+     */
+    public boolean confirm(Reservation pReservation) throws IllegalArgumentException
+    {
+        if (pReservation == null) throw new IllegalArgumentException();
+        return pReservation.confirm();
+    }
+
+    /**
+     * Releases a Reservation : its tickets are available again.
+     * @return TRUE if released, FALSE if it was already confirmed or released
+     * @pre pReservation != null
+     */
+    public boolean release(Reservation pReservation) throws IllegalArgumentException
+    {
+        if (pReservation == null) throw new IllegalArgumentException();
+        return pReservation.release();
+    }
+
+    /**
+     * @return the number of tickets of an Event neither reserved nor sold (w/o creating its inventory : all its
+     *              tickets if it has never been booked, 0 if it has no tickets).
+     * @pre pEvent != null
+     */
+    public int getAvailable(Event pEvent)
+    {
+        assert pEvent != null;
+        TicketInventory inventory = aInventories.get(pEvent);
+        if (inventory != null) return inventory.getAvailable();
+        return pEvent.getNumTickets().orElse(0);
+    }
+
+    /**
+     * @return the ticket inventory of an Event (created w/ all its tickets available if none yet).
+     * @pre pEvent != null && pEvent is hosted && pEvent.getNumTickets().isPresent()
+     */
+    public TicketInventory getInventory(Event pEvent) throws IllegalArgumentException
+    {
+        if (pEvent == null) throw new IllegalArgumentException();
+        TicketInventory inventory = aInventories.get(pEvent); // N.B. lock-free once the inventory exists
+        if (inventory != null) return inventory;
+        Optional<Integer> numTickets = pEvent.getNumTickets();
+        if (!(pEvent instanceof AbstractEvent) || !((AbstractEvent) pEvent).isHosted() || numTickets.isEmpty()) {
+            throw new IllegalArgumentException(); // 'ComingSoon' Events and Events not hosted have no tickets to sell
+        }
+        return aInventories.computeIfAbsent(pEvent, event -> new TicketInventory(numTickets.get()));
+    }
+}
@@ -0,0 +1,136 @@
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * The Hold Tickets Command holds tickets of hosted Events during a checkout : a Hold reserves the tickets (see
+ * Command_BookTickets) for a given duration, and gives them back to the inventory of the Event when it expires
+ * unless it is confirmed (or released) before.
+ * The deadlines of the Holds are kept in a hierarchical timing wheel (see TimingWheel) :
+ *      (1) holding, confirming and releasing are O(1) (a Hold is scheduled / cancelled in a slot of the wheel)
+ *      (2) expiring only visits the slots of the wheel reached since the last expiry, never the open Holds that are
+ *          not due yet (no scan of the open Holds, whatever their number)
+ * The Holds expire when the wheel is advanced : by expire(), which every hold / confirm / release calls first (one
+ * volatile read when no tick has passed). The wheel is guarded by its own lock, held for O(1) steps only, and the
+ * tickets are given back outside of it.
+ * The clock (in milliseconds, never moving backwards) is injected : the system clock, or a ManualClock to expire
+ * the Holds deterministically.
+ */
+public class Command_HoldTickets {
+
+    public static final long TICK_MILLIS = 100; // precision of the expiry of the Holds
+
+    final private Command_BookTickets aBooking;
+    final private LongSupplier aClock;
+    final private TimingWheel<Hold> aWheel; // deadlines of the open Holds (guarded by itself)
+    private volatile long aNextTick; // time of the next tick of the wheel : no Hold expires before
+
+    /**
+     * @param pBooking
+     *              Command reserving / confirming / releasing the tickets held
+     * @param pClock
+     *              Clock of the Holds in milliseconds (never moving backwards)
+     * @pre pBooking != null && pClock != null
+     */
+    public Command_HoldTickets(Command_BookTickets pBooking, LongSupplier pClock)
+    {
+        assert pBooking != null && pClock != null;
+        this.aBooking = pBooking;
+        this.aClock = pClock;
+        this.aWheel = new TimingWheel<>(TICK_MILLIS, pClock.getAsLong());
+        this.aNextTick = aWheel.getNextTickMillis();
+    }
+
+    /**
+     * Holds tickets of an Event.
+     * @param pEvent
+     *              Concrete Event hosted on EventBrite
+     * @param pQuantity
+     *              number of tickets to hold
+     * @param pDurationMillis
+     *              duration of the Hold in milliseconds
+     * @return the Hold, or null if fewer than pQuantity tickets are available
+     * @pre pEvent != null && pEvent is hosted && pEvent.getNumTickets().isPresent() && pQuantity > 0 && pDurationMillis > 0
+     */
+    public Hold hold(Event pEvent, int pQuantity, long pDurationMillis) throws IllegalArgumentException
+    {
+        if (pDurationMillis <= 0) throw new IllegalArgumentException();
+        expire(); // N.B. tickets of expired Holds are available again before reserving
+        long now = aClock.getAsLong();
+        if (pDurationMillis > Long.MAX_VALUE - now) throw new IllegalArgumentException();
+        Reservation reservation = aBooking.reserve(pEvent, pQuantity);
+        if (reservation == null) return null;
+        Hold hold = new Hold(reservation, now + pDurationMillis);
+        synchronized (aWheel) {
+            hold.aTimeout = aWheel.schedule(hold, hold.getDeadline());
+        }
+        return hold;
+    }
+
+    /**
+     * Confirms a Hold : its tickets are sold (only before its deadline).
+     * @return TRUE if confirmed, FALSE if it was already confirmed, released or expired
+     * @pre pHold != null
+     */
+    public boolean confirm(Hold pHold) throws IllegalArgumentException
+    {
+        if (pHold == null) throw new IllegalArgumentException();
+        expire();
+        if (aClock.getAsLong() >= pHold.getDeadline()) { // expired, even if the wheel has not reached its tick yet
+            release(pHold);
+            return false;
+        }
+        boolean confirmed = aBooking.confirm(pHold.getReservation());
+        if (confirmed) cancel(pHold);
+        return confirmed;
+    }
+
+    /**
+     * Releases a Hold : its tickets are available again.
+     * @return TRUE if released, FALSE if it was already confirmed, released or expired
+     * @pre pHold != null
+     */
+    public boolean release(Hold pHold) throws IllegalArgumentException
+    {
+        if (pHold == null) throw new IllegalArgumentException();
+        boolean released = aBooking.release(pHold.getReservation());
+        if (released) cancel(pHold);
+        return released;
+    }
+
+    /**
+     * Releases the Holds whose deadline has passed (at the precision of a tick).
+     * @return number of Holds expired
+     */
+    public int expire()
+    {
+        long now = aClock.getAsLong();
+        if (now < aNextTick) return 0; // no tick since the last expiry : nothing can be due
+        List<Hold> expired;
+        synchronized (aWheel) {
+            expired = aWheel.advance(now);
+            aNextTick = aWheel.getNextTickMillis();
+        }
+        int numExpired = 0;
+        for (Hold hold : expired) {
+            if (aBooking.release(hold.getReservation())) numExpired++; // N.B. no effect if confirmed in between
+        }
+        return numExpired;
+    }
+
+    /**
+     * @return number of Holds scheduled to expire (= open, or expired and not given back by expire() yet).
+     */
+    public int getNumHolds()
+    {
+        synchronized (aWheel) {
+            return aWheel.size();
+        }
+    }
+
+    private void cancel(Hold pHold)
+    {
+        synchronized (aWheel) {
+            if (pHold.aTimeout != null) aWheel.cancel(pHold.aTimeout);
+        }
+    }
+}
@@ -0,0 +1,477 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * The Import Events Command hosts all the Events of a file in one batch (Concert / Gala / Screening / Workshop).
+ * The file is streamed through a NIO channel one line at a time, so it is never loaded in memory as a whole.
+ * Three formats are supported :
+ *      (1) CSV (*.csv) : a header row naming the columns, then one Event per row.
+ *      (2) JSON-lines (*.jsonl, *.ndjson) : one flat JSON object per line.
+ *      (3) JSON (*.json) : an array of flat JSON objects, over any number of lines (streamed one object at a time),
+ *          or JSON-lines if the file does not start w/ '['.
+ * Columns / keys : type, name, date (yyyy-mm-dd), location, price, tickets, artist (Concert), rating (Screening) and
+ * vips (Concert / Gala, separated by ';' in CSV or a JSON array of strings; all the VIPs of EventBrite if absent).
+ * An Event w/o location, price or tickets is created as a 'ComingSoon' Event.
+ * Each row goes through the Add Event Command, so duplicates (same Date and Location) and Workshop prerequisites are
+ * resolved w/ its indexes, and the outcome of every row is counted in an ImportReport instead of being printed.
+ */
+public class Command_ImportEvents {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Callback receiving the lines of a file one at a time.
+     */
+    private interface LineHandler {
+        void handle(long pLineNumber, String pLine);
+    }
+
+    /**
+     * Imports all the Events of a file.
+     * @param pFile
+     *              CSV, JSON-lines or JSON file to import
+     * @param pCommand
+     *              Add Event Command used to create the 'Unique' Events
+     * @param pHost
+     *              Callback hosting each Event accepted by the Add Event Command
+     * @param pVIPs
+     *              VIPs of Concerts and Galas w/o vips column
+     * @return report of the accepted, duplicate and invalid rows
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a JSON array is malformed (the Events of the objects before are hosted)
+     * @pre pFile != null && pCommand != null && pHost != null && pVIPs != null
+     */
+    public ImportReport importEvents(Path pFile, Command_AddEvent pCommand, Consumer<Event> pHost, List<String> pVIPs) throws IOException
+    {
+        if (pFile == null || pCommand == null || pHost == null || pVIPs == null) throw new IllegalArgumentException();
+        String fileName = pFile.getFileName().toString().toLowerCase();
+        boolean jsonArray = fileName.endsWith(".json");
+        boolean json = jsonArray || fileName.endsWith(".jsonl") || fileName.endsWith(".ndjson");
+        ImportReport report = new ImportReport();
+        List<String> header = new ArrayList<>();
+
+        LineHandler rows = (lineNumber, line) -> {
+            if (line.trim().isEmpty()) return;
+            try {
+                Map<String, Object> row;
+                if (json) {
+                    row = parseJson(line);
+                } else if (header.isEmpty()) { // first CSV row = names of the columns
+                    for (String column : parseCsv(line)) header.add(column == null ? "" : column.trim().toLowerCase());
+                    return;
+                } else {
+                    row = new HashMap<>();
+                    List<String> values = parseCsv(line);
+                    for (int i = 0; i < header.size() && i < values.size(); i++) row.put(header.get(i), values.get(i));
+                }
+                Event event = addEvent(row, pCommand, pVIPs);
+                if (event == null) {
+                    report.duplicate();
+                } else {
+                    pHost.accept(event);
+                    report.accepted();
+                }
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                report.invalid(lineNumber, e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage());
+            }
+        };
+        if (jsonArray) {
+            JsonArraySplitter splitter = new JsonArraySplitter(rows);
+            readLines(pFile, splitter);
+            splitter.end();
+        } else {
+            readLines(pFile, rows);
+        }
+        return report;
+    }
+
+    /**
+     * Creates the Event described by a row w/ the Add Event Command.
+     * @return the new Event, or null if an Event is already planned at the same Date and Location
+     * @throws IllegalArgumentException if the row is invalid
+     */
+    private static Event addEvent(Map<String, Object> pRow, Command_AddEvent pCommand, List<String> pVIPs)
+    {
+        String type = field(pRow, "type");
+        String name = field(pRow, "name");
+        String date = field(pRow, "date");
+        if (type == null || name == null || date == null) throw new IllegalArgumentException("Missing type, name or date");
+        LocalDate eventDate = LocalDate.parse(date);
+
+        String location = field(pRow, "location");
+        String price = field(pRow, "price");
+        String tickets = field(pRow, "tickets");
+        Optional<Location> eventLocation = Optional.empty();
+        Optional<Double> eventPrice = Optional.empty();
+        Optional<Integer> eventTickets = Optional.empty();
+        if (location != null && price != null && tickets != null) { // otherwise 'ComingSoon' Event
+            eventLocation = Optional.of(Location.valueOf(location));
+            eventPrice = Optional.of(Double.valueOf(price));
+            eventTickets = Optional.of(Integer.valueOf(tickets));
+        }
+
+        switch (type.toLowerCase()) {
+            case "concert":
+                String artist = field(pRow, "artist");
+                if (artist == null) throw new IllegalArgumentException("Missing artist for Concert");
+                return pCommand.addEvent_Concert(name, eventDate, eventLocation, eventPrice, eventTickets, artist, vips(pRow, pVIPs));
+            case "gala":
+                return pCommand.addEvent_Gala(name, eventDate, eventLocation, eventPrice, eventTickets, vips(pRow, pVIPs));
+            case "screening":
+                String rating = field(pRow, "rating");
+                if (rating == null) throw new IllegalArgumentException("Missing rating for Screening");
+                return pCommand.addEvent_Screening(name, eventDate, eventLocation, eventPrice, eventTickets, Screening.Rating.valueOf(rating));
+            case "workshop":
+                return pCommand.addEvent_Workshop(name, eventDate, eventLocation, eventPrice, eventTickets);
+            default:
+                throw new IllegalArgumentException("Unknown type of Event : "+type);
+        }
+    }
+
+    /**
+     * @return the trimmed value of a column of a row, or null if absent or empty.
+     */
+    private static String field(Map<String, Object> pRow, String pColumn)
+    {
+        Object value = pRow.get(pColumn);
+        if (value == null) return null;
+        if (value instanceof List) throw new IllegalArgumentException("Unexpected list for "+pColumn);
+        String text = value.toString().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    /**
+     * @return the VIPs of a row (column vips), or a copy of the default VIPs if absent.
+     */
+    private static List<String> vips(Map<String, Object> pRow, List<String> pVIPs)
+    {
+        Object value = pRow.get("vips");
+        List<String> vips = new ArrayList<>();
+        if (value instanceof List) {
+            for (Object vip : (List<?>) value) {
+                if (vip == null) throw new IllegalArgumentException("Null VIP");
+                if (vip instanceof List) throw new IllegalArgumentException("Unexpected list in vips");
+                vips.add(vip.toString());
+            }
+        } else if (value != null && !value.toString().trim().isEmpty()) {
+            for (String vip : value.toString().split(";")) vips.add(vip.trim());
+        } else {
+            vips.addAll(pVIPs);
+        }
+        return vips;
+    }
+
+    /* ****************************************************************************************************************
+                                    STREAMING OF THE LINES OF A FILE THROUGH A NIO CHANNEL
+     **************************************************************************************************************** */
+    /**
+     * Reads a UTF-8 file one line at a time through a FileChannel and a fixed-size buffer.
+     */
+    private static void readLines(Path pFile, LineHandler pHandler) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(pFile, StandardOpenOption.READ)) {
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+            StringBuilder line = new StringBuilder();
+            long[] lineNumber = {1};
+            boolean eof = false;
+            while (!eof) {
+                eof = channel.read(bytes) < 0;
+                bytes.flip();
+                CoderResult result;
+                do {
+                    result = decoder.decode(bytes, chars, eof);
+                    drain(chars, line, lineNumber, pHandler);
+                } while (result.isOverflow());
+                bytes.compact();
+            }
+            while (decoder.flush(chars).isOverflow()) drain(chars, line, lineNumber, pHandler);
+            drain(chars, line, lineNumber, pHandler);
+            if (line.length() > 0) pHandler.handle(lineNumber[0], line.toString());
+        }
+    }
+
+    /**
+     * Moves the decoded characters to the current line, handing every complete line to the handler.
+     */
+    private static void drain(CharBuffer pChars, StringBuilder pLine, long[] pLineNumber, LineHandler pHandler)
+    {
+        pChars.flip();
+        while (pChars.hasRemaining()) {
+            char c = pChars.get();
+            if (c == '\n') {
+                int length = pLine.length();
+                if (length > 0 && pLine.charAt(length - 1) == '\r') pLine.setLength(length - 1);
+                pHandler.handle(pLineNumber[0]++, pLine.toString());
+                pLine.setLength(0);
+            } else {
+                pLine.append(c);
+            }
+        }
+        pChars.clear();
+    }
+
+    /* ****************************************************************************************************************
+                                                ROW PARSERS (CSV / JSON)
+     **************************************************************************************************************** */
+    /**
+     * Parses a CSV row (fields separated by ',' and optionally quoted w/ '"', a quote being escaped as "").
+     * @return values of the row (null for empty fields)
+     */
+    static List<String> parseCsv(String pLine)
+    {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < pLine.length(); i++) {
+            char c = pLine.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < pLine.length() && pLine.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.length() == 0 ? null : value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) throw new IllegalArgumentException("Unterminated quoted field");
+        values.add(value.length() == 0 ? null : value.toString());
+        return values;
+    }
+
+    /**
+     * Parses a flat JSON object : values can be strings, numbers, booleans, null or arrays of those.
+     * @return the values by key (numbers and booleans as their text)
+     */
+    static Map<String, Object> parseJson(String pLine)
+    {
+        JsonParser parser = new JsonParser(pLine);
+        Map<String, Object> row = parser.parseObject();
+        parser.skipSpaces();
+        if (!parser.atEnd()) throw new IllegalArgumentException("Unexpected content after JSON object");
+        return row;
+    }
+
+    /**
+     * Splits a JSON array of objects read one line at a time into its objects, handing the text of every object
+     * to a handler w/ the number of the line it starts on (so only one object is in memory at a time).
+     * A file whose first non-blank character is not '[' is handed to the handler one line at a time (JSON-lines).
+     */
+    private static final class JsonArraySplitter implements LineHandler {
+        final private LineHandler aHandler;
+        final private StringBuilder aObject = new StringBuilder(); // text of the object being read
+        private long aObjectLine; // number of the line the object starts on
+        private int aNumObjects = 0; // number of objects read (or being read)
+        private boolean aLines = false; // TRUE if the file is JSON-lines
+        private boolean aStarted = false; // TRUE once '[' is read
+        private boolean aEnded = false; // TRUE once ']' is read
+        private boolean aExpectObject = true; // TRUE after '[' or ',' (an object must come next)
+        private int aDepth = 0; // depth of nesting inside the object being read
+        private boolean aInString = false;
+        private boolean aEscaped = false;
+
+        JsonArraySplitter(LineHandler pHandler) {
+            this.aHandler = pHandler;
+        }
+
+        @Override
+        public void handle(long pLineNumber, String pLine) {
+            if (aLines) {
+                aHandler.handle(pLineNumber, pLine);
+                return;
+            }
+            for (int i = 0; i < pLine.length(); i++) {
+                char c = pLine.charAt(i);
+                if (aDepth > 0) {
+                    read(pLineNumber, c);
+                } else if (Character.isWhitespace(c) || c == '\uFEFF') { // N.B. skips a byte order mark
+                    continue;
+                } else if (!aStarted) {
+                    if (c != '[') { // not an array : JSON-lines
+                        aLines = true;
+                        aHandler.handle(pLineNumber, pLine);
+                        return;
+                    }
+                    aStarted = true;
+                } else if (aEnded) {
+                    throw new IllegalArgumentException("Unexpected content after the JSON array at line "+pLineNumber);
+                } else if (c == '{' && aExpectObject) {
+                    aObjectLine = pLineNumber;
+                    aNumObjects++;
+                    aExpectObject = false;
+                    read(pLineNumber, c);
+                } else if (c == ',' && !aExpectObject) {
+                    aExpectObject = true;
+                } else if (c == ']' && (!aExpectObject || aNumObjects == 0)) { // N.B. [] is an empty array
+                    aEnded = true;
+                } else {
+                    throw new IllegalArgumentException("Malformed JSON array : unexpected '"+c+"' at line "+pLineNumber);
+                }
+            }
+            if (aDepth > 0) aObject.append('\n');
+        }
+
+        /**
+         * Appends a character of the object being read, and hands the object to the handler once complete.
+         */
+        private void read(long pLineNumber, char pChar) {
+            aObject.append(pChar);
+            if (aInString) {
+                if (aEscaped) aEscaped = false;
+                else if (pChar == '\\') aEscaped = true;
+                else if (pChar == '"') aInString = false;
+            } else if (pChar == '"') {
+                aInString = true;
+            } else if (pChar == '{' || pChar == '[') {
+                aDepth++;
+            } else if ((pChar == '}' || pChar == ']') && --aDepth == 0) {
+                aHandler.handle(aObjectLine, aObject.toString());
+                aObject.setLength(0);
+            }
+        }
+
+        /**
+         * Checks that the array is complete once the whole file is read.
+         */
+        void end() {
+            if (aStarted && !aEnded) throw new IllegalArgumentException("Unterminated JSON array");
+        }
+    }
+
+    /**
+     * Minimal recursive-descent parser of the flat JSON objects of a JSON-lines or JSON file.
+     */
+    private static final class JsonParser {
+        final private String aText;
+        private int aPosition = 0;
+
+        JsonParser(String pText) {
+            this.aText = pText;
+        }
+
+        Map<String, Object> parseObject() {
+            Map<String, Object> object = new HashMap<>();
+            expect('{');
+            skipSpaces();
+            if (peek() == '}') {
+                aPosition++;
+                return object;
+            }
+            do {
+                skipSpaces();
+                String key = parseString();
+                skipSpaces();
+                expect(':');
+                object.put(key.toLowerCase(), parseValue());
+                skipSpaces();
+            } while (consume(','));
+            expect('}');
+            return object;
+        }
+
+        private Object parseValue() {
+            skipSpaces();
+            char c = peek();
+            if (c == '"') return parseString();
+            if (c == '[') {
+                aPosition++;
+                List<Object> list = new ArrayList<>();
+                skipSpaces();
+                if (consume(']')) return list;
+                do {
+                    list.add(parseValue());
+                    skipSpaces();
+                } while (consume(','));
+                expect(']');
+                return list;
+            }
+            int start = aPosition;
+            while (aPosition < aText.length() && ",]}".indexOf(aText.charAt(aPosition)) < 0 && !Character.isWhitespace(aText.charAt(aPosition))) aPosition++; // N.B. the lines of a JSON object are joined w/ '\n'
+            String literal = aText.substring(start, aPosition);
+            if (literal.isEmpty()) throw new IllegalArgumentException("Malformed JSON at position "+start);
+            return literal.equals("null") ? null : literal;
+        }
+
+        private String parseString() {
+            expect('"');
+            StringBuilder string = new StringBuilder();
+            while (true) {
+                if (atEnd()) throw new IllegalArgumentException("Unterminated JSON string");
+                char c = aText.charAt(aPosition++);
+                if (c == '"') return string.toString();
+                if (c != '\\') {
+                    string.append(c);
+                    continue;
+                }
+                if (atEnd()) throw new IllegalArgumentException("Unterminated JSON string");
+                char escaped = aText.charAt(aPosition++);
+                switch (escaped) {
+                    case 'n': string.append('\n'); break;
+                    case 't': string.append('\t'); break;
+                    case 'r': string.append('\r'); break;
+                    case 'b': string.append('\b'); break;
+                    case 'f': string.append('\f'); break;
+                    case 'u':
+                        if (aPosition + 4 > aText.length()) throw new IllegalArgumentException("Malformed JSON escape");
+                        string.append((char) Integer.parseInt(aText.substring(aPosition, aPosition + 4), 16));
+                        aPosition += 4;
+                        break;
+                    default: string.append(escaped); // \" \\ \/
+                }
+            }
+        }
+
+        void skipSpaces() {
+            while (aPosition < aText.length() && Character.isWhitespace(aText.charAt(aPosition))) aPosition++;
+        }
+
+        boolean atEnd() {
+            return aPosition >= aText.length();
+        }
+
+        private char peek() {
+            if (atEnd()) throw new IllegalArgumentException("Unexpected end of JSON");
+            return aText.charAt(aPosition);
+        }
+
+        private boolean consume(char pChar) {
+            if (!atEnd() && aText.charAt(aPosition) == pChar) {
+                aPosition++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char pChar) {
+            if (!consume(pChar)) throw new IllegalArgumentException("Malformed JSON : expected '"+pChar+"' at position "+aPosition);
+        }
+    }
+}
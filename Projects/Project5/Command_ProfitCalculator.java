@@ -1,45 +1,37 @@
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * The Profit Calculator Command supports different functions for the computation of the Total
  * Expected Profit of a filtered Result object :
  *      (1) To Set a 'customized' Profit-per-Ticket Percentage for a specific event type.
- *      (2) To Notify all Events hosted on EventBrite of that certain type.
+ *      (2) To publish it in the table of Profit Percentages shared by all Events hosted on EventBrite, so that
+ *          all the Events of that type use it w/o being notified one-by-one.
  */
 public class Command_ProfitCalculator {
 
-    private List<Event> aEvents = new ArrayList<>(); // List of All Events hosted on EverBrite
-    private Integer aPercentage;
+    final private ProfitPercentages aPercentages = new ProfitPercentages(); // Percentages per type of Event hosted on EventBrite
 
     /**
-     * Set a new Profit-per-Ticket Percentage for a specific event type and notify all its instances
-     * created on EventBrite.
+     * Set a new Profit-per-Ticket Percentage for a specific event type. All its instances created on EventBrite
+     * read it from the shared table of percentages, so the update is O(1) whatever the number of Events.
      * @param pPercentage
      *              new profit percentage
+     * @return TRUE if the percentage has been set (= it is between 0-100).
      * @pre className != null && pPercentage != null &&  pPercentage >= 0 && pPercentage <= 100
      */
-    public <T> void setProfit(List<Event> pEvents, Class<T> className, Integer pPercentage) throws IllegalArgumentException{
-        if (pEvents == null || pEvents.isEmpty() || className  == null || pPercentage == null) throw new IllegalArgumentException();
+    public <T> boolean setProfit(Class<T> className, Integer pPercentage) throws IllegalArgumentException{
+        if (className  == null || pPercentage == null) throw new IllegalArgumentException();
         if (pPercentage >= 0 && pPercentage <= 100) {
-            this.aEvents=pEvents;
-            this.aPercentage=pPercentage;
-            notifyObservers(className);
+            aPercentages.setPercentage(className, pPercentage);
+            return true;
         } else {
             System.out.println("Input for setProfitConcert is invalid: "+pPercentage+" Please choose value between 0-100");
+            return false;
         }
     }
 
     /**
-     * Method to notify all the Observers of an update of Percentage for specific class.
-     * @param className
-     *              A specific class type.
-     * @pre className != null && !aEvents.isEmpty() && aPercentage != null &&  0 <= aPercentage <=100
+     * @return the table of Profit Percentages per type of Event.
      */
-    private <T> void notifyObservers(Class<T> className) {
-        assert className != null;
-        for (Event event : aEvents) {
-            if (event.getClass().equals(className)) event.updatePercentage(aPercentage);
-        }
+    public ProfitPercentages getPercentages() {
+        return aPercentages;
     }
 }
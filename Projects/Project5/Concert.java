@@ -1,5 +1,4 @@
 import java.time.LocalDate;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,7 +10,7 @@ public class Concert extends AbstractEvent
 {
     // Specific Attributes of Concert :
     private String aArtist; // Name of the artist who is performing at the concert
-    private List<String> aVIPs; // List of all the "VIPs" invited ot the concert
+    final private GuestList aVIPs; // IMMUTABLE set of all the "VIPs" invited ot the concert (shared, see VIPRegistry)
 
     /**
      * Creates a Concert Event with the following parameters :
@@ -29,6 +28,7 @@ public class Concert extends AbstractEvent
      *              Artist of Concert
      * @param pVIPs
      *              list of VIPS for the Concert
+     * @throws IllegalArgumentException if a VIP is null
      * @pre pArtist != null
      */
     public Concert(String pName, LocalDate pDate, Optional<Location> pLocation, Optional<Double> pTicketPrice, Optional<Integer> pNumTickets, String pArtist, List<String> pVIPs)
@@ -36,7 +36,7 @@ public class Concert extends AbstractEvent
         super(pName,pDate,pLocation,pTicketPrice,pNumTickets);
         assert pArtist != null && pVIPs != null;
         this.aArtist=pArtist;
-        this.aVIPs=pVIPs;
+        this.aVIPs=VIPRegistry.getInstance().guestList(pVIPs);
     }
 
     /**
@@ -48,13 +48,31 @@ public class Concert extends AbstractEvent
     }
 
     /**
-     * @return list of VIPS of Concert
+     * @return list of VIPS of Concert (unmodifiable, in the order they were given, duplicates included), or null if none
      */
     public List<String> getVIPs()
     {
-        if (aVIPs != null && !aVIPs.isEmpty()) {
-            return new ArrayList<>(aVIPs);
+        if (!aVIPs.isEmpty()) {
+            return aVIPs.getNames();
         }
         return null;
     }
+
+    /**
+     * @return Guest list of Concert (VIPs invited, as a bitmap of their ids)
+     */
+    public GuestList getGuestList()
+    {
+        return aVIPs;
+    }
+
+    /**
+     * @return TRUE if the VIP of name pName is invited to the Concert
+     * @pre pName != null
+     */
+    public boolean isInvited(String pName)
+    {
+        assert pName != null;
+        return aVIPs.isInvited(pName);
+    }
 }
@@ -0,0 +1,487 @@
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Multi-threaded stress check of the thread-safe EventManagement : many writer threads add the same Events
+ * (same Dates and Locations, in different orders) and Festivals of them, while reader threads filter the hosted
+ * Events and compute the Expected Profit. Checks at the end that :
+ *      (1) no two hosted Events share the same Date and Location (every Date and Location is hosted exactly once),
+ *          and the Festivals rejected as duplicates are not registered on their Events
+ *      (2) the prerequisites of every Workshop are exactly the earlier Workshops of its series
+ *      (3) the filtered Events and the Expected Profit are the same as when computed w/o index / aggregates
+ *      (4) the last snapshot saved during the run and the write-ahead log written after it restore the same Events
+ *      (5) booking the same Events from all the threads never sells more tickets than they have
+ *      (6) holds of tickets expire on time (never early, at most one tick late) on a ManualClock, and holding /
+ *          confirming / releasing from all the threads while the clock moves gives every ticket back exactly once
+ *      (7) the metrics count every add exactly once (accepted + duplicate + invalid = latencies recorded)
+ *      (8) the top-K and the pages of the hosted Events by every key are the same as a full sort of the matches,
+ *          even w/ tickets booked between two pages
+ *      (9) overriding the percentage of an Event while Festivals of it are hosted counts its profit exactly once
+ * Run with : java -ea ConcurrencyDriver [threads] [rounds]
+ */
+public class ConcurrencyDriver {
+
+    private static final int NUM_DATES = 500;
+    private static final Location[] LOCATIONS = {Location.BellCentre, Location.OlympicStadium, Location.ParcJeanDrapeau, Location.PlaceDesArts};
+
+    public static void main(String[] args) throws Exception {
+        int numThreads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int numRounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        boolean success = true;
+        for (int round = 0; round < numRounds; round++) success &= stress(numThreads, round);
+        System.out.println(success ? "CONCURRENCY STRESS : OK" : "CONCURRENCY STRESS : FAILED");
+        if (!success) System.exit(1);
+    }
+
+    /**
+     * Runs one round of the stress check.
+     * @return TRUE if all the checks pass
+     */
+    private static boolean stress(int pNumThreads, long pSeed) throws Exception {
+        Path directory = Files.createTempDirectory("events");
+        Path log = directory.resolve("events.log");
+        Path snapshot = directory.resolve("events.snapshot");
+        EventManagement management = EventManagement.recover(snapshot.toString(), log.toString(), WriteAheadLog.Durability.BATCHED);
+        management.addVIP("Bob");
+
+        PrintStream out = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true)); // duplicates are reported one-by-one
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>(), readers = new ArrayList<>();
+        for (int t = 0; t < pNumThreads; t++) {
+            long seed = pSeed * 1000 + t;
+            writers.add(new Thread(() -> run(failure, start, () -> write(management, new Random(seed)))));
+        }
+        for (int t = 0; t < Math.max(1, pNumThreads / 4); t++) {
+            Path saved = t == 0 ? snapshot : null; // the first reader also saves snapshots
+            readers.add(new Thread(() -> run(failure, start, () -> read(management, writing, saved))));
+        }
+        for (Thread thread : writers) thread.start();
+        for (Thread thread : readers) thread.start();
+        start.countDown();
+        for (Thread thread : writers) thread.join();
+        writing.set(false);
+        for (Thread thread : readers) thread.join();
+        System.setOut(out);
+
+        boolean success = check("round "+pSeed+" no exception", failure.get() == null);
+        success &= check("round "+pSeed+" snapshots while writing", !output.toString().contains("UNSUCCESSFUL"));
+        if (failure.get() != null) failure.get().printStackTrace();
+        success &= checkUnique(management, pSeed);
+        success &= checkMetrics(management, pSeed);
+        success &= checkPrerequisites(management, pSeed);
+        success &= checkQueries(management, pSeed);
+        success &= checkBookings(management, pNumThreads, pSeed);
+        success &= checkRankings(management, pSeed);
+        success &= checkHolds(pNumThreads, pSeed);
+        success &= checkOverrides(pNumThreads, pSeed);
+
+        management.closeLog();
+        EventManagement recovered = EventManagement.recover(snapshot.toString(), log.toString(), WriteAheadLog.Durability.BATCHED);
+        success &= check("round "+pSeed+" log replay", recovered != null && sameEvents(management, recovered));
+        if (recovered != null) success &= checkPrerequisites(recovered, pSeed);
+        if (recovered != null) recovered.closeLog();
+        Files.deleteIfExists(log);
+        Files.deleteIfExists(snapshot);
+        Files.delete(directory);
+        return success;
+    }
+
+    private interface Task {
+        void run() throws Exception;
+    }
+
+    private static void run(AtomicReference<Throwable> pFailure, CountDownLatch pStart, Task pTask) {
+        try {
+            pStart.await();
+            pTask.run();
+        } catch (Throwable e) {
+            pFailure.compareAndSet(null, e);
+        }
+    }
+
+    /**
+     * Adds an Event at every Date and Location (in a random order), some Festivals of hosted Events, and overrides
+     * the percentage of some hosted Events.
+     */
+    private static void write(EventManagement pManagement, Random pRandom) {
+        List<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < NUM_DATES * LOCATIONS.length; i++) keys.add(i);
+        Collections.shuffle(keys, pRandom);
+        LocalDate first = LocalDate.of(2022,1,1);
+        for (int key : keys) {
+            LocalDate date = first.plusDays(key / LOCATIONS.length);
+            Location location = LOCATIONS[key % LOCATIONS.length];
+            double price = 10.0 + key % 50;
+            switch (key % 4) {
+                case 0: pManagement.addConcertEvent("Concert "+key, date, location, price, 100, "Artist", List.of("Bob")); break;
+                case 1: pManagement.addGalaEvent("Gala "+key, date, location, price, 50, List.of("Bob")); break;
+                case 2: pManagement.addScreeningEvent("Screening "+key, date, location, price, 200, Screening.Rating.G); break;
+                default: pManagement.addWorkshopEvent("Workshop "+key % 8, date, location, 25.0, 20); // series of Workshops
+            }
+            if (pRandom.nextInt(50) == 0) {
+                List<Event> hosted = pManagement.getHostedEvents();
+                Event event = hosted.get(pRandom.nextInt(hosted.size()));
+                event.updatePercentage(pRandom.nextInt(101));
+                if (hosted.size() > 2 && pRandom.nextBoolean()) {
+                    int i = pRandom.nextInt(hosted.size() - 2);
+                    pManagement.addFestival("Festival", hosted.subList(i, i + 2));
+                }
+            }
+            if (pRandom.nextInt(500) == 0) pManagement.setProfitGala(pRandom.nextInt(101));
+        }
+    }
+
+    /**
+     * Filters the hosted Events and computes the Expected Profit until the writers are done, checking that the
+     * results only grow, and saves a snapshot every few rounds (if pSnapshot != null).
+     */
+    private static void read(EventManagement pManagement, AtomicBoolean pWriting, Path pSnapshot) {
+        int previous = 0;
+        for (int round = 0; pWriting.get(); round++) {
+            if (pSnapshot != null && round % 10 == 0) pManagement.saveSnapshot(pSnapshot.toString());
+            int size = pManagement.getHostedEvents().size();
+            if (size < previous) throw new IllegalStateException("Hosted events went from "+previous+" to "+size);
+            previous = size;
+            Filter filter = new Filter_ByPriceRange(20.0, 40.0);
+            List<Filter> filters = List.of(new Filter_ByLocation(Location.BellCentre), filter);
+            for (Event event : FilteredResult.lazy(pManagement.getStore(), filters)) {
+                if (!event.getLocation().equals(Optional.of(Location.BellCentre)) || !filter.test(event)) {
+                    throw new IllegalStateException("Filtered "+event.getName()+" does not match");
+                }
+            }
+            if (pManagement.getExpectedProfit() < 0) throw new IllegalStateException("Negative expected profit");
+        }
+    }
+
+    private static boolean checkUnique(EventManagement pManagement, long pRound) {
+        Set<String> keys = new HashSet<>();
+        int numFestivals = 0;
+        for (Event event : pManagement.getHostedEvents()) {
+            if (!keys.add(event.getDate()+" "+event.getLocation())) {
+                return check("round "+pRound+" duplicate "+event.getDate()+" "+event.getLocation(), false);
+            }
+            if (event instanceof Festival) numFestivals++;
+            for (Festival festival : ((AbstractEvent) event).getFestivals()) { // rejected Festivals are never registered
+                if (!festival.isHosted()) return check("round "+pRound+" festival of "+event.getName()+" not hosted", false);
+            }
+        }
+        return check("round "+pRound+" unique date/location ("+pManagement.getHostedEvents().size()+" events)",
+                pManagement.getHostedEvents().size() - numFestivals == NUM_DATES * LOCATIONS.length);
+    }
+
+    private static boolean checkMetrics(EventManagement pManagement, long pRound) {
+        Metrics metrics = pManagement.getMetrics();
+        long numAdds = 0;
+        for (String operation : List.of("addConcertEvent", "addGalaEvent", "addScreeningEvent", "addWorkshopEvent", "addFestival")) {
+            numAdds += metrics.histogram(operation).getCount();
+        }
+        long numHosted = 0;
+        for (String type : List.of("Concert", "Gala", "Screening", "Workshop", "Festival")) numHosted += metrics.get("events.hosted."+type);
+        return check("round "+pRound+" metrics", metrics.get("events.accepted") == pManagement.getHostedEvents().size()
+                && metrics.get("events.hosted") == pManagement.getHostedEvents().size() && numHosted == metrics.get("events.hosted")
+                && metrics.get("events.accepted") + metrics.get("events.duplicate") + metrics.get("events.invalid") == numAdds);
+    }
+
+    private static boolean checkPrerequisites(EventManagement pManagement, long pRound) {
+        Map<String, List<Workshop>> series = new HashMap<>();
+        for (Event event : pManagement.getHostedEvents()) {
+            if (event instanceof Workshop) series.computeIfAbsent(event.getName()+" "+event.getLocation(), k -> new ArrayList<>()).add((Workshop) event);
+        }
+        for (List<Workshop> workshops : series.values()) {
+            for (Workshop workshop : workshops) {
+                Set<Event> expected = Collections.newSetFromMap(new IdentityHashMap<>());
+                for (Workshop other : workshops) {
+                    if (other.getDate().isBefore(workshop.getDate())) expected.add(other);
+                }
+                List<Event> prerequisites = workshop.getPrerequisites();
+                if (prerequisites.size() != expected.size() || !expected.containsAll(prerequisites)) {
+                    return check("round "+pRound+" prerequisites of "+workshop.getName()+" @"+workshop.getDate(), false);
+                }
+            }
+        }
+        return check("round "+pRound+" prerequisites", true);
+    }
+
+    private static boolean checkQueries(EventManagement pManagement, long pRound) {
+        List<Event> hosted = pManagement.getHostedEvents();
+        Filter location = new Filter_ByLocation(Location.PlaceDesArts), price = new Filter_ByPriceRange(15.0, 35.0);
+        List<Event> expected = new ArrayList<>();
+        double expectedProfit = 0.0;
+        for (Event event : hosted) {
+            if (location.test(event) && price.test(event)) expected.add(event);
+            expectedProfit += event.getProfit();
+        }
+        List<Event> actual = new ArrayList<>();
+        for (Event event : FilteredResult.lazy(pManagement.getStore(), List.of(price, location))) actual.add(event);
+        boolean success = check("round "+pRound+" filter", actual.equals(expected));
+        return success & check("round "+pRound+" expected profit", Math.abs(pManagement.getExpectedProfit() - expectedProfit / 100) < 1e-6 * Math.max(1.0, expectedProfit));
+    }
+
+    /**
+     * Books a few Events from all the threads at once (random quantities, confirmed or released at random) and checks
+     * that the tickets sold are exactly the ones confirmed, and never more than the Event has.
+     */
+    private static boolean checkBookings(EventManagement pManagement, int pNumThreads, long pRound) throws InterruptedException {
+        List<Event> events = new ArrayList<>();
+        for (Event event : pManagement.getHostedEvents()) {
+            if (event.getNumTickets().isPresent() && !(event instanceof Festival) && events.size() < 8) events.add(event);
+        }
+        int[][] confirmed = new int[pNumThreads][events.size()];
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < pNumThreads; t++) {
+            int thread = t;
+            Random random = new Random(pRound * 1000 + t);
+            threads.add(new Thread(() -> run(failure, start, () -> {
+                for (int i = 0; i < 2000; i++) {
+                    int index = random.nextInt(events.size());
+                    Reservation reservation = pManagement.reserveTickets(events.get(index), 1 + random.nextInt(5));
+                    if (reservation == null) continue; // sold out
+                    if (random.nextInt(3) == 0) {
+                        pManagement.releaseReservation(reservation);
+                    } else if (pManagement.confirmReservation(reservation)) {
+                        confirmed[thread][index] += reservation.getQuantity();
+                    }
+                }
+            })));
+        }
+        for (Thread thread : threads) thread.start();
+        start.countDown();
+        for (Thread thread : threads) thread.join();
+
+        boolean success = check("round "+pRound+" bookings w/o exception", failure.get() == null);
+        for (int index = 0; index < events.size(); index++) {
+            Event event = events.get(index);
+            int sold = 0;
+            for (int[] counts : confirmed) sold += counts[index];
+            int capacity = event.getNumTickets().get();
+            success &= check("round "+pRound+" tickets of "+event.getName(), pManagement.getSoldTickets(event) == sold
+                    && sold <= capacity && pManagement.getAvailableTickets(event) == capacity - sold);
+        }
+        return success;
+    }
+
+    /**
+     * Compares the top-K and all the pages of the hosted Events (w/o filter, then w/ a Price Range) by every key
+     * and in both orders to a full sort of the matching Events (w/o key last, then in order of creation).
+     */
+    private static boolean checkRankings(EventManagement pManagement, long pRound) {
+        LocalDate later = LocalDate.of(2030,1,1); // 'ComingSoon' Events have no key but their DATE : they rank last by the others
+        for (int i = 0; i < 3; i++) pManagement.addGalaEvent("ComingSoon "+i, later.plusDays(i), null, null, null, List.of("Bob"));
+        List<Event> hosted = pManagement.getHostedEvents();
+        Map<Event, Integer> ids = new IdentityHashMap<>();
+        for (Event event : hosted) ids.put(event, ids.size());
+        boolean success = true;
+        for (boolean filtered : new boolean[] {false, true}) {
+            pManagement.resetFilters();
+            if (filtered) pManagement.setFilterByPriceRange(15.0, 35.0);
+            List<Event> matches = new ArrayList<>();
+            for (Event event : hosted) if (!filtered || new Filter_ByPriceRange(15.0, 35.0).test(event)) matches.add(event);
+            for (Ranking.Key key : Ranking.Key.values()) {
+                for (boolean descending : new boolean[] {true, false}) {
+                    Map<Event, Double> keys = new IdentityHashMap<>();
+                    for (Event event : matches) keys.put(event, key(pManagement, event, key));
+                    List<Event> expected = new ArrayList<>(matches);
+                    expected.sort((a, b) -> {
+                        double keyA = keys.get(a), keyB = keys.get(b);
+                        if (Double.isNaN(keyA) != Double.isNaN(keyB)) return Double.isNaN(keyA) ? 1 : -1;
+                        int order = Double.isNaN(keyA) ? 0 : descending ? Double.compare(keyB, keyA) : Double.compare(keyA, keyB);
+                        return order != 0 ? order : Integer.compare(ids.get(a), ids.get(b));
+                    });
+                    String name = "round "+pRound+" ranking by "+key+(descending ? " desc" : " asc")+(filtered ? " filtered" : "");
+                    success &= check(name+" top 20", expected.subList(0, Math.min(20, expected.size())).equals(pManagement.getTopHostedEvents(key, descending, 20)));
+                    List<Event> paged = new ArrayList<>();
+                    ResultPage page = pManagement.pageHostedEvents(key, descending, 37);
+                    paged.addAll(page.getEvents());
+                    // Booking all the tickets of the first Event moves it to the other end of a live order by CAPACITY :
+                    // the next pages must keep the capacities pinned by the first one
+                    Event booked = paged.isEmpty() || key != Ranking.Key.CAPACITY ? null : paged.get(0);
+                    int available = booked != null && !Double.isNaN(keys.get(booked)) ? pManagement.getAvailableTickets(booked) : 0;
+                    Reservation reservation = available > 0 ? pManagement.reserveTickets(booked, available) : null;
+                    while (page.hasNext()) {
+                        page = pManagement.pageHostedEvents(page.getNextCursor(), 37);
+                        paged.addAll(page.getEvents());
+                    }
+                    if (reservation != null) pManagement.releaseReservation(reservation);
+                    success &= check(name+" pages", expected.equals(paged));
+                }
+            }
+        }
+        pManagement.resetFilters();
+        return success;
+    }
+
+    /**
+     * @return the key of a hosted Event for a Ranking (NaN if it has none).
+     */
+    private static double key(EventManagement pManagement, Event pEvent, Ranking.Key pKey) {
+        switch (pKey) {
+            case PROFIT: return pEvent.getPrice().isPresent() && pEvent.getNumTickets().isPresent() && pEvent.getLocation().isPresent() ? pEvent.getProfit() : Double.NaN;
+            case PRICE: return pEvent.getPrice().orElse(Double.NaN);
+            case DATE: return pEvent.getDate().toEpochDay();
+            default: return pEvent.getNumTickets().isPresent() && pEvent.getLocation().isPresent() ? pManagement.getAvailableTickets(pEvent) : Double.NaN;
+        }
+    }
+
+    /**
+     * Holds tickets for durations spread over all the levels of the timing wheel and moves a ManualClock by random
+     * steps : a Hold must never expire before its deadline nor stay held a tick after it. Then holds, confirms and
+     * releases from all the threads while another thread moves the clock and expires the Holds.
+     */
+    private static boolean checkHolds(int pNumThreads, long pRound) throws InterruptedException {
+        Random random = new Random(pRound);
+        ManualClock clock = new ManualClock(1_000_000_037L + pRound); // N.B. not on a tick
+        EventManagement management = new EventManagement(clock);
+        LocalDate first = LocalDate.of(2022,1,1);
+        for (int i = 0; i < 4; i++) management.addScreeningEvent("Screening "+i, first.plusDays(i), Location.BellCentre, 10.0, 1000, Screening.Rating.G);
+        List<Event> events = management.getHostedEvents();
+        Event event = events.get(0);
+
+        long[] durations = {1, 99, 100, 101, 6_399, 6_400, 6_401, 180_000, 409_600, 409_700, 7_200_000, 3 * 86_400_000L};
+        List<Hold> holds = new ArrayList<>();
+        for (long duration : durations) holds.add(management.holdTickets(event, 1, duration));
+        Hold confirmed = holds.get(7), released = holds.get(8); // confirmed / released before their deadline
+        boolean success = true;
+        long start = clock.getAsLong();
+        while (clock.getAsLong() <= start + durations[durations.length - 1] + Command_HoldTickets.TICK_MILLIS) {
+            long elapsed = clock.getAsLong() - start;
+            clock.advance(1 + random.nextInt((int) Math.max(2 * Command_HoldTickets.TICK_MILLIS, elapsed / 50)));
+            if (confirmed.isHeld() && elapsed > 60_000) success &= check("round "+pRound+" confirm hold", management.confirmHold(confirmed));
+            if (released.isHeld() && elapsed > 300_000) success &= check("round "+pRound+" release hold", management.releaseHold(released));
+            management.expireHolds();
+            for (Hold hold : holds) {
+                if (hold == confirmed || hold == released) continue;
+                long now = clock.getAsLong();
+                if (!hold.isHeld() && now < hold.getDeadline() || hold.isHeld() && now >= hold.getDeadline() + Command_HoldTickets.TICK_MILLIS) {
+                    return check("round "+pRound+" hold of "+(hold.getDeadline() - start)+"ms "+(hold.isHeld() ? "late" : "early")+" @"+(now - start)+"ms", false);
+                }
+            }
+        }
+        Hold late = management.holdTickets(event, 1, 500);
+        clock.advance(500); // deadline reached, the wheel not advanced yet
+        success &= check("round "+pRound+" confirm expired hold", !management.confirmHold(late) && !management.releaseHold(late));
+        success &= check("round "+pRound+" holds expired", management.getNumHolds() == 0 && management.getSoldTickets(event) == 1
+                && management.getAvailableTickets(event) == 999);
+
+        int[][] sold = new int[pNumThreads][events.size()];
+        AtomicBoolean holding = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < pNumThreads; t++) {
+            int thread = t;
+            Random threadRandom = new Random(pRound * 1000 + t);
+            threads.add(new Thread(() -> run(failure, latch, () -> {
+                for (int i = 0; i < 1000; i++) {
+                    int index = threadRandom.nextInt(events.size());
+                    Hold hold = management.holdTickets(events.get(index), 1 + threadRandom.nextInt(5), 1 + threadRandom.nextInt(10_000));
+                    if (hold == null) continue; // sold out
+                    int action = threadRandom.nextInt(3);
+                    if (action == 0 && management.confirmHold(hold)) sold[thread][index] += hold.getReservation().getQuantity();
+                    else if (action == 1) management.releaseHold(hold);
+                }
+            })));
+        }
+        Thread ticker = new Thread(() -> run(failure, latch, () -> {
+            Random tickerRandom = new Random(pRound);
+            while (holding.get()) {
+                clock.advance(tickerRandom.nextInt(50));
+                management.expireHolds();
+                Thread.yield();
+            }
+        }));
+        ticker.start();
+        for (Thread thread : threads) thread.start();
+        latch.countDown();
+        for (Thread thread : threads) thread.join();
+        holding.set(false);
+        ticker.join();
+        clock.advance(10_000 + Command_HoldTickets.TICK_MILLIS);
+        management.expireHolds();
+
+        success &= check("round "+pRound+" holds w/o exception", failure.get() == null);
+        success &= check("round "+pRound+" all holds expired", management.getNumHolds() == 0);
+        for (int index = 0; index < events.size(); index++) {
+            int total = index == 0 ? 1 : 0;
+            for (int[] counts : sold) total += counts[index];
+            success &= check("round "+pRound+" held tickets of "+events.get(index).getName(), management.getSoldTickets(events.get(index)) == total
+                    && management.getAvailableTickets(events.get(index)) == 1000 - total);
+        }
+        return success;
+    }
+
+    /**
+     * Overrides the percentage of an Event over and over while the other threads host Festivals of it (each w/ an
+     * Event of its own, so they are not duplicates), and checks that the Expected Profit is then the sum of the profits.
+     */
+    private static boolean checkOverrides(int pNumThreads, long pRound) throws InterruptedException {
+        EventManagement management = new EventManagement();
+        LocalDate first = LocalDate.of(2030,1,1);
+        management.addConcertEvent("Overridden", first, Location.BellCentre, 50.0, 100, "Artist", List.of());
+        Event overridden = management.getHostedEvents().get(0);
+        AtomicBoolean hosting = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        Random random = new Random(pRound);
+        Thread overrider = new Thread(() -> run(failure, start, () -> {
+            while (hosting.get()) overridden.updatePercentage(random.nextInt(101));
+        }));
+        List<Thread> hosts = new ArrayList<>();
+        for (int t = 0; t < pNumThreads; t++) {
+            int thread = t;
+            hosts.add(new Thread(() -> run(failure, start, () -> {
+                for (int i = 0; i < 200; i++) {
+                    Event member = new Concert("Member", first.minusDays(1 + thread * 200 + i), Optional.of(Location.PlaceDesArts), Optional.of(10.0), Optional.of(10), "Artist", List.of());
+                    management.addFestival("Festival", List.of(member, overridden));
+                }
+            })));
+        }
+        overrider.start();
+        for (Thread thread : hosts) thread.start();
+        start.countDown();
+        for (Thread thread : hosts) thread.join();
+        hosting.set(false);
+        overrider.join();
+        double expected = 0.0;
+        for (Event event : management.getHostedEvents()) expected += event.getProfit();
+        return check("round "+pRound+" overrides w/o exception", failure.get() == null)
+                & check("round "+pRound+" overrides counted once", Math.abs(management.getExpectedProfit() - expected / 100) < 1e-6 * Math.max(1.0, expected));
+    }
+
+    private static boolean sameEvents(EventManagement pExpected, EventManagement pActual) {
+        List<Event> expected = pExpected.getHostedEvents(), actual = pActual.getHostedEvents();
+        if (expected.size() != actual.size()) return false;
+        for (int i = 0; i < expected.size(); i++) {
+            Event e = expected.get(i), a = actual.get(i);
+            if (e.getClass() != a.getClass() || !e.getName().equals(a.getName()) || !e.getDate().equals(a.getDate())
+                    || !e.getLocation().equals(a.getLocation()) || !e.getProfit().equals(a.getProfit())) return false;
+        }
+        return Math.abs(pExpected.getExpectedProfit() - pActual.getExpectedProfit()) < 1e-6 * Math.max(1.0, pExpected.getExpectedProfit());
+    }
+
+    private static boolean check(String pName, boolean pSuccess) {
+        if (!pSuccess) System.out.println("FAILED : "+pName);
+        return pSuccess;
+    }
+}
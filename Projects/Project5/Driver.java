@@ -93,6 +93,10 @@ public class Driver {
         EventBrite.setProfitGala(40);
         EventBrite.setProfitScreening(30);
         EventBrite.setProfitWorkshop(20);
+        // N.B. Each FilteredResult is pinned to the percentages it was filtered with : refresh them to read the new ones
+        result1 = EventBrite.refresh(result1);
+        result2 = EventBrite.refresh(result2);
+        result3 = EventBrite.refresh(result3);
         System.out.println("Expected Profit for result1 : "+result1.getExpectedProfit());
         System.out.println("Expected Profit for result2 : "+result2.getExpectedProfit());
         System.out.println("Expected Profit for result3 : "+result3.getExpectedProfit());
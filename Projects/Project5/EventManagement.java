@@ -1,7 +1,18 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.util.Optional;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 
 /**
  * Controller to MANAGE and SCHEDULE events using the different addEvent commands.
@@ -10,19 +21,86 @@ import java.util.List;
  * system stop the process of adding the duplicate event and informs of him of his mistake)
  *
  * Controller also supports functions to set the profit Percentage for all the different types of
- * Events. The software updates / informs all the instances from that class type of the change.
+ * Events. The percentages are kept in a table shared by all the instances, so a change applies to all the
+ * instances from that class type at once.
  * Finally, the Controlled is used to determine the revenue from different events hosted onEventBrite
  * using the default-profit-percentage(s) OR/AND the inputted-profit-percentage(s) (by Bob).
+ *
+ * The Controller is thread-safe : Events at different Dates / Locations are added in parallel (see Command_AddEvent),
+ * only their publication in the store (and in the log) is serialized, and filtering / computing the Expected Profit
+ * never block on the threads adding Events.
  */
 public class EventManagement {
 
-    private List<Event> aHostedEvents = new ArrayList<>(); // List of all events hosted on EventBrite
-    private List<String> aVIPs = new ArrayList<>(); // List of all VIPs members on EventBrite
-    private List<Filter> aFilters = new ArrayList<>(); // List all the pre-selected filters for the NEXT filtering computation.
+    private EventStore aStore = new EventStore(); // Column store of all events hosted on EventBrite (in order of creation)
+    private List<String> aVIPs = new CopyOnWriteArrayList<>(); // List of all VIPs members on EventBrite
+    private List<Filter> aFilters = new CopyOnWriteArrayList<>(); // List all the pre-selected filters for the NEXT filtering computation.
+    private volatile ForkJoinPool aPool = null; // pool to filter hosted events (and compute their profit) on, OR null (sequential)
 
     // Different Command Objects to delegate the task of (1) : Computing expected profit (2) : Adding Event on app
     private Command_ProfitCalculator calculator = new Command_ProfitCalculator();
-    private Command_AddEvent eventCommand = new Command_AddEvent();
+    private Command_AddEvent eventCommand = new Command_AddEvent(calculator.getPercentages());
+    private Command_ImportEvents importCommand = new Command_ImportEvents();
+    private Command_BookTickets bookingCommand = new Command_BookTickets();
+    private Command_HoldTickets holdCommand; // Holds of tickets during a checkout (on the clock of the Controller)
+    // Running aggregates of the Expected Profit of the hosted events (per type, per Location and overall)
+    private ProfitAggregates aAggregates = new ProfitAggregates(calculator.getPercentages());
+    // Write-ahead log of the changes (null when the changes are not logged), and LSN of the last change applied from
+    // a snapshot / log before the log was opened
+    private volatile WriteAheadLog aLog = null;
+    private long aAppliedLsn = 0;
+    // Serializes the publication of the changes in the store and in the log, so the log has the order of the store
+    // (e.g. an Event is always logged before a Festival made of it) and a snapshot sees the changes up to its LSN
+    final private Object aPublishLock = new Object();
+    // Metrics of the operations (see getMetrics) : handles resolved once, so recording is allocation-free
+    final private Metrics aMetrics = new Metrics();
+    final private LongAdder aAccepted = aMetrics.counter("events.accepted"); // Events added (w/ add* or imported)
+    final private LongAdder aDuplicates = aMetrics.counter("events.duplicate"); // rejected : an Event at the same Date and Location
+    final private LongAdder aInvalid = aMetrics.counter("events.invalid"); // rejected : invalid input
+    final private LatencyHistogram aAddConcertLatency = aMetrics.histogram("addConcertEvent");
+    final private LatencyHistogram aAddGalaLatency = aMetrics.histogram("addGalaEvent");
+    final private LatencyHistogram aAddScreeningLatency = aMetrics.histogram("addScreeningEvent");
+    final private LatencyHistogram aAddWorkshopLatency = aMetrics.histogram("addWorkshopEvent");
+    final private LatencyHistogram aAddFestivalLatency = aMetrics.histogram("addFestival");
+    final private LatencyHistogram aImportLatency = aMetrics.histogram("importEvents");
+    final private LatencyHistogram aFilterLatency = aMetrics.histogram("filterHostedEvents");
+    final private LatencyHistogram aSetProfitLatency = aMetrics.histogram("setProfit");
+    final private Map<Class<?>, LongAdder> aHostedByType = new HashMap<>(); // number of hosted Events per type (read-only once built)
+
+    public EventManagement() {
+        this(() -> System.nanoTime() / 1_000_000); // monotonic : the Holds of tickets never expire early
+    }
+
+    /**
+     * @param pClock
+     *              Clock of the Holds of tickets in milliseconds, never moving backwards (e.g. a ManualClock)
+     * @pre pClock != null
+     */
+    public EventManagement(LongSupplier pClock) {
+        holdCommand = new Command_HoldTickets(bookingCommand, pClock);
+        aMetrics.gauge("events.hosted", () -> aStore.size());
+        for (Class<?> type : List.of(Concert.class, Gala.class, Screening.class, Workshop.class, Festival.class)) {
+            LongAdder hosted = new LongAdder();
+            aHostedByType.put(type, hosted);
+            aMetrics.gauge("events.hosted."+type.getSimpleName(), hosted::sum);
+        }
+        aMetrics.gauge("vips", () -> aVIPs.size());
+        aMetrics.gauge("holds.open", () -> holdCommand.getNumHolds());
+        // Overrides of the Profit Percentage of an Event are made on the Event itself : log them when notified, and
+        // wait for them to be durable once the Event is unlocked
+        calculator.getPercentages().addListener(new ProfitPercentages.OverrideListener() {
+            @Override
+            public void percentageOverridden(AbstractEvent pEvent, int pPreviousOverride, int pNewOverride) {
+                log(log -> log.logOverride(pEvent, pNewOverride));
+            }
+
+            @Override
+            public void overrideDone(AbstractEvent pEvent) {
+                WriteAheadLog log = aLog;
+                if (log != null) awaitLog(log.getLastLsn()); // N.B. at or after the LSN of the override
+            }
+        });
+    }
 
     /* ****************************************************************************************************************
                             USE ADD FUNCTIONS TO SCHEDULE ANY TYPE OF EVENTS ON EVENTBRITE
@@ -48,21 +126,12 @@ public class EventManagement {
      */
     public void addConcertEvent(String pName, LocalDate pDate, Location pLocation, Double pTicketPrice, Integer pNumTickets, String pArtist, List<String> pVIPs)
     {
-        try {
-            Event newEvent;
+        ingest("addConcertEvent", aAddConcertLatency, () -> {
             if (pLocation == null || pTicketPrice == null || pNumTickets == null) { // To support 'ComingSoon' Events
-                newEvent = eventCommand.addEvent_Concert(pName,pDate,Optional.empty(),Optional.empty(),Optional.empty(),pArtist,pVIPs);
-            } else {
-                newEvent = eventCommand.addEvent_Concert(pName,pDate,Optional.of(pLocation),Optional.of(pTicketPrice),Optional.of(pNumTickets),pArtist,pVIPs);
-            }
-            if (newEvent == null) {
-                System.out.println("An Event is already planned @"+pDate+" @"+pLocation);
-            } else {
-                aHostedEvents.add(newEvent);
+                return eventCommand.addEvent_Concert(pName,pDate,Optional.empty(),Optional.empty(),Optional.empty(),pArtist,pVIPs);
             }
-        } catch (IllegalArgumentException e) {
-            System.out.println("Invalid Input for addConcertEvent, please try again!");
-        }
+            return eventCommand.addEvent_Concert(pName,pDate,Optional.of(pLocation),Optional.of(pTicketPrice),Optional.of(pNumTickets),pArtist,pVIPs);
+        }, () -> "An Event is already planned @"+pDate+" @"+pLocation);
     }
 
     /**
@@ -83,22 +152,12 @@ public class EventManagement {
      */
     public void addGalaEvent(String pName, LocalDate pDate, Location pLocation, Double pTicketPrice, Integer pNumTickets, List<String> pVIPs)
     {
-        try {
-            Event newEvent;
+        ingest("addGalaEvent", aAddGalaLatency, () -> {
             if (pLocation == null || pTicketPrice == null || pNumTickets == null) { // To support 'ComingSoon' Events
-                newEvent = eventCommand.addEvent_Gala(pName,pDate,Optional.empty(),Optional.empty(),Optional.empty(),pVIPs);
-            } else {
-                newEvent = eventCommand.addEvent_Gala(pName,pDate,Optional.of(pLocation),Optional.of(pTicketPrice),Optional.of(pNumTickets),pVIPs);
-
+                return eventCommand.addEvent_Gala(pName,pDate,Optional.empty(),Optional.empty(),Optional.empty(),pVIPs);
             }
-            if (newEvent == null) {
-                System.out.println("An Event is already planned @"+pDate+" @"+pLocation);
-            } else {
-                aHostedEvents.add(newEvent);
-            }
-        } catch (IllegalArgumentException e) {
-            System.out.println("Invalid Input for addConcertEvent, please try again!");
-        }
+            return eventCommand.addEvent_Gala(pName,pDate,Optional.of(pLocation),Optional.of(pTicketPrice),Optional.of(pNumTickets),pVIPs);
+        }, () -> "An Event is already planned @"+pDate+" @"+pLocation);
     }
 
     /**
@@ -119,21 +178,12 @@ public class EventManagement {
      */
     public void addScreeningEvent(String pName, LocalDate pDate, Location pLocation, Double pTicketPrice, Integer pNumTickets, Screening.Rating pRating)
     {
-        try {
-            Event newEvent;
+        ingest("addScreeningEvent", aAddScreeningLatency, () -> {
             if (pLocation == null || pTicketPrice == null || pNumTickets == null) { // To support 'ComingSoon' Events
-                newEvent = eventCommand.addEvent_Screening(pName,pDate,Optional.empty(),Optional.empty(),Optional.empty(),pRating);
-            } else {
-                newEvent = eventCommand.addEvent_Screening(pName,pDate,Optional.of(pLocation),Optional.of(pTicketPrice),Optional.of(pNumTickets),pRating);
-            }
-            if (newEvent == null) {
-                System.out.println("An Event is already planned @"+pDate+" @"+pLocation);
-            } else {
-                aHostedEvents.add(newEvent);
+                return eventCommand.addEvent_Screening(pName,pDate,Optional.empty(),Optional.empty(),Optional.empty(),pRating);
             }
-        } catch (IllegalArgumentException e) {
-            System.out.println("Invalid Input for addConcertEvent, please try again!");
-        }
+            return eventCommand.addEvent_Screening(pName,pDate,Optional.of(pLocation),Optional.of(pTicketPrice),Optional.of(pNumTickets),pRating);
+        }, () -> "An Event is already planned @"+pDate+" @"+pLocation);
     }
 
     /**
@@ -155,21 +205,12 @@ public class EventManagement {
      */
     public void addWorkshopEvent(String pName, LocalDate pDate, Location pLocation, Double pTicketPrice, Integer pNumTickets)
     {
-        try {
-            Event newEvent;
+        ingest("addWorkshopEvent", aAddWorkshopLatency, () -> {
             if (pLocation == null || pTicketPrice == null || pNumTickets == null) { // To support 'ComingSoon' Events
-                newEvent = eventCommand.addEvent_Workshop(pName,pDate,Optional.empty(),Optional.empty(),Optional.empty());
-            } else {
-                newEvent = eventCommand.addEvent_Workshop(pName, pDate, Optional.of(pLocation), Optional.of(pTicketPrice), Optional.of(pNumTickets));
+                return eventCommand.addEvent_Workshop(pName,pDate,Optional.empty(),Optional.empty(),Optional.empty());
             }
-            if (newEvent == null) {
-                System.out.println("An Event is already planned @"+pDate+" @"+pLocation);
-            } else {
-                aHostedEvents.add(newEvent);
-            }
-        } catch (IllegalArgumentException e) {
-            System.out.println("Invalid Input for addConcertEvent, please try again!");
-        }
+            return eventCommand.addEvent_Workshop(pName, pDate, Optional.of(pLocation), Optional.of(pTicketPrice), Optional.of(pNumTickets));
+        }, () -> "An Event is already planned @"+pDate+" @"+pLocation);
     }
 
     /**
@@ -182,74 +223,543 @@ public class EventManagement {
      */
     public void addFestival(String pName, List<Event> pEvents)
     {
+        ingest("addFestival", aAddFestivalLatency, () -> eventCommand.addEvent_Festival(pName,pEvents), () -> "An Event is already planned on the same Date and Location as Festival "+pName);
+    }
+
+    /**
+     * Hosts a new Event created by an add command, and records the outcome of the add (accepted, duplicate OR
+     * invalid) in the counters, the latency histogram of the operation and a JFR Ingest event.
+     * @param pOperation
+     *              name of the add operation (e.g. "addConcertEvent")
+     * @param pLatency
+     *              latency histogram of the operation
+     * @param pAdd
+     *              add command : returns the new Event, OR null for a Duplicate (throws IllegalArgumentException if invalid)
+     * @param pDuplicateMessage
+     *              message printed for a Duplicate
+     * @pre pOperation != null && pLatency != null && pAdd != null && pDuplicateMessage != null
+     */
+    private void ingest(String pOperation, LatencyHistogram pLatency, Supplier<Event> pAdd, Supplier<String> pDuplicateMessage)
+    {
+        long start = System.nanoTime();
+        FlightRecorderEvents.Ingest recording = new FlightRecorderEvents.Ingest();
+        recording.begin();
+        String outcome = FlightRecorderEvents.INVALID;
         try {
-            Event newEvent = eventCommand.addEvent_Festival(pName,pEvents);
-            aHostedEvents.add(newEvent);
+            Event newEvent = pAdd.get();
+            if (newEvent == null) {
+                aDuplicates.increment();
+                outcome = FlightRecorderEvents.DUPLICATE;
+                System.out.println(pDuplicateMessage.get());
+            } else {
+                host(newEvent);
+                aAccepted.increment();
+                outcome = FlightRecorderEvents.ACCEPTED;
+            }
         } catch (IllegalArgumentException e) {
+            aInvalid.increment();
             System.out.println("Invalid Input for addConcertEvent, please try again!");
+        } finally {
+            pLatency.record(System.nanoTime() - start);
+            recording.record(pOperation, outcome);
+        }
+    }
+
+
+    /**
+     * Method to host all the events of a CSV, JSON-lines or JSON file in one batch (see Command_ImportEvents for the format).
+     * Duplicate and invalid rows are skipped and counted in the returned report instead of being printed one-by-one.
+     * @param pFileName
+     *              Path of the file to import (*.csv OR *.jsonl / *.ndjson OR *.json array).
+     * @return report of the accepted, duplicate and invalid rows, or null if the file cannot be read (or is a malformed JSON array).
+     * @pre pFileName != null
+     */
+    public ImportReport importEvents(String pFileName)
+    {
+        long start = System.nanoTime();
+        try {
+            ImportReport report = importCommand.importEvents(Paths.get(pFileName), eventCommand, this::host, aVIPs);
+            aAccepted.add(report.getAccepted());
+            aDuplicates.add(report.getDuplicates());
+            aInvalid.add(report.getInvalid());
+            return report;
+        } catch (IllegalArgumentException | IOException e) {
+            System.out.println("Import of events from "+pFileName+" was UNSUCCESSFUL : "+e.getMessage());
+        } finally {
+            aImportLatency.record(System.nanoTime() - start);
+        }
+        return null;
+    }
+
+    /**
+     * Method to save all the hosted events, VIPs and profit percentages in a binary snapshot (see EventSnapshot).
+     * @param pFileName
+     *              Path of the snapshot file (replaced if it exists).
+     * @pre pFileName != null
+     */
+    public void saveSnapshot(String pFileName)
+    {
+        try {
+            synchronized (aPublishLock) {
+                long lsn = aLog != null ? aLog.getLastLsn() : aAppliedLsn;
+                EventSnapshot.write(this, Paths.get(pFileName), lsn);
+                if (aLog != null) aLog.checkpoint(lsn);
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            System.out.println("Snapshot to "+pFileName+" was UNSUCCESSFUL : "+e.getMessage());
+        }
+    }
+
+    /**
+     * Method to restore the hosted events, VIPs and profit percentages saved in a binary snapshot (see EventSnapshot).
+     * @param pFileName
+     *              Path of the snapshot file.
+     * @return new EventManagement restored from the snapshot, or null if the snapshot cannot be read.
+     * @pre pFileName != null
+     */
+    public static EventManagement loadSnapshot(String pFileName)
+    {
+        try {
+            return EventSnapshot.read(Paths.get(pFileName));
+        } catch (IllegalArgumentException | IOException e) {
+            System.out.println("Loading snapshot "+pFileName+" was UNSUCCESSFUL : "+e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Method to recover all the hosted events, VIPs and profit percentages after a restart : the last snapshot (if any)
+     * is loaded and the changes logged after it are replayed on top of it. Every later change is appended to the log.
+     * @param pSnapshotFileName
+     *              Path of the last snapshot (may not exist).
+     * @param pLogFileName
+     *              Path of the write-ahead log (created if it does not exist).
+     * @param pDurability
+     *              When a change is forced to disk w/ respect to the call that made it (see WriteAheadLog).
+     * @return EventManagement recovered from the snapshot and the log, or null if they cannot be read.
+     * @pre pSnapshotFileName != null && pLogFileName != null && pDurability != null
+     */
+    public static EventManagement recover(String pSnapshotFileName, String pLogFileName, WriteAheadLog.Durability pDurability)
+    {
+        try {
+            EventManagement management = Files.exists(Paths.get(pSnapshotFileName)) ? EventSnapshot.read(Paths.get(pSnapshotFileName)) : new EventManagement();
+            management.aLog = WriteAheadLog.open(Paths.get(pLogFileName), pDurability, management.aAppliedLsn, management.eventCommand,
+                    management::host, management.aVIPs::add, management.getPercentages());
+            return management;
+        } catch (IllegalArgumentException | IOException e) {
+            System.out.println("Recovery from "+pSnapshotFileName+" and "+pLogFileName+" was UNSUCCESSFUL : "+e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Method to force all the logged changes to disk and close the write-ahead log (changes are not logged anymore).
+     */
+    public void closeLog()
+    {
+        synchronized (aPublishLock) {
+            if (aLog == null) return;
+            try {
+                aLog.close();
+            } catch (IOException e) {
+                System.out.println("Closing the log was UNSUCCESSFUL : "+e.getMessage());
+            }
+            aAppliedLsn = aLog.getLastLsn();
+            aLog = null;
         }
     }
 
+    /**
+     * Records the LSN of the last logged change contained in the snapshot this EventManagement is restored from.
+     */
+    void setAppliedLsn(long pLsn)
+    {
+        aAppliedLsn = pLsn;
+    }
+
+    /**
+     * Restores a hosted Event (from a snapshot) w/o validating it, and links a Workshop to its series.
+     * @pre pEvent != null
+     */
+    void restoreEvent(Event pEvent)
+    {
+        eventCommand.restore(pEvent);
+        publish(pEvent, true); // N.B. the prerequisites of a hosted Workshop are a view of its series
+    }
+
+    /**
+     * @return the column store of the hosted events.
+     */
+    EventStore getStore()
+    {
+        return aStore;
+    }
+
+    /**
+     * @return the table of Profit Percentages shared by the hosted events.
+     */
+    ProfitPercentages getPercentages()
+    {
+        return calculator.getPercentages();
+    }
+
+    /**
+     * Adds a new Event to the store of hosted events and to the aggregates of Expected Profit, and links the
+     * prerequisites of a new Workshop.
+     * @pre pEvent != null
+     */
+    private void host(Event pEvent)
+    {
+        publish(pEvent, true);
+    }
+
+    /**
+     * Adds an Event to the store of hosted events and to the aggregates of Expected Profit.
+     * @param pLink
+     *              TRUE to link the prerequisites of a Workshop (see Command_AddEvent.linkPrerequisites)
+     * @pre pEvent != null
+     */
+    private void publish(Event pEvent, boolean pLink)
+    {
+        assert pEvent != null;
+        long lsn;
+        synchronized (aPublishLock) {
+            // Logged before it is visible in the store : a change made to the Event (or a Festival made of it) by
+            // another thread is always logged after it
+            lsn = log(log -> log.logEvent(pEvent));
+            aAggregates.add(pEvent);
+            aStore.add(pEvent);
+            // Linked once in the store, in the same publication : a snapshot never sees a prerequisite that is not
+            // part of it, nor a hosted Workshop w/o its links
+            if (pLink && pEvent instanceof Workshop) eventCommand.linkPrerequisites((Workshop) pEvent);
+        }
+        LongAdder hosted = aHostedByType.get(pEvent.getClass());
+        if (hosted != null) hosted.increment();
+        awaitLog(lsn);
+    }
+
+    /**
+     * A change to append to the write-ahead log.
+     */
+    private interface LogRecord
+    {
+        long append(WriteAheadLog pLog) throws IOException;
+    }
+
+    /**
+     * Appends a change to the write-ahead log (if any), w/o waiting for it to be durable.
+     * The change is already applied, so a failure of the log is only reported.
+     * @return LSN of the change in the log, or 0 if it is not logged
+     */
+    private long log(LogRecord pRecord)
+    {
+        WriteAheadLog log = aLog;
+        if (log == null) return 0;
+        try {
+            return pRecord.append(log);
+        } catch (IOException e) {
+            System.out.println("Change could NOT be saved in the log : "+e.getMessage());
+        }
+        return 0;
+    }
+
+    /**
+     * Waits until a logged change is durable (see WriteAheadLog.Durability). Never called while holding a lock.
+     * @param pLsn
+     *              LSN of the change in the log, or 0 if it is not logged
+     */
+    private void awaitLog(long pLsn)
+    {
+        WriteAheadLog log = aLog;
+        if (log == null || pLsn == 0) return;
+        try {
+            log.awaitDurable(pLsn);
+        } catch (IOException e) {
+            System.out.println("Change could NOT be saved in the log : "+e.getMessage());
+        }
+    }
+
+    /**
+     * Sets the Profit Percentage of a type of Event and logs it.
+     * @throws IllegalArgumentException if pPercentage is null
+     */
+    private void setProfit(Class<?> pClass, Integer pPercentage)
+    {
+        long start = System.nanoTime();
+        FlightRecorderEvents.Repricing recording = new FlightRecorderEvents.Repricing();
+        recording.begin();
+        try {
+            long lsn = 0;
+            synchronized (aPublishLock) {
+                if (calculator.setProfit(pClass, pPercentage)) lsn = log(log -> log.logProfit(pClass, pPercentage));
+            }
+            awaitLog(lsn);
+        } finally {
+            aSetProfitLatency.record(System.nanoTime() - start);
+            LongAdder hosted = aHostedByType.get(pClass);
+            recording.record(pClass, pPercentage == null ? -1 : pPercentage, hosted == null ? 0 : hosted.sum());
+        }
+    }
 
     /* ****************************************************************************************************************
                    USE SET PROFIT FUNCTIONS TO SET PROFIT-PER-TICKET (IN %) FOR SOME SPECIFIC EVENT TYPE
      **************************************************************************************************************** */
     /**
-     * Set a new Concert - Profit Percentage and notify all Concert's instances created on EventBrite. (Observers)
+     * Set a new Concert - Profit Percentage, used by all Concert's instances created on EventBrite.
      * @param pPercentage
      *              New concert-profit percentage.
-     * @pre aHostedEvents != null && pPercentage != null &&  pPercentage >= 0 && pPercentage <= 100
+     * @pre pPercentage != null &&  pPercentage >= 0 && pPercentage <= 100
      */
     public void setProfitConcert(Integer pPercentage) {
         try {
-            calculator.setProfit(getHostedEvents(),Concert.class,pPercentage);
+            setProfit(Concert.class,pPercentage);
         } catch(IllegalArgumentException e) {
             System.out.println("Invalid Input for setProfitConcert :(");
         }
     }
 
     /**
-     * Set a new Gala - Profit Percentage and notify all Gala's instances created on EventBrite. (Observers)
+     * Set a new Gala - Profit Percentage, used by all Gala's instances created on EventBrite.
      * @param pPercentage
      *              New gala-profit percentage.
-     * @pre aHostedEvents != null && pPercentage != null &&  pPercentage >= 0 && pPercentage <= 100
+     * @pre pPercentage != null &&  pPercentage >= 0 && pPercentage <= 100
      */
     public void setProfitGala(Integer pPercentage) {
         try {
-            calculator.setProfit(getHostedEvents(),Gala.class,pPercentage);
+            setProfit(Gala.class,pPercentage);
         } catch(IllegalArgumentException e) {
             System.out.println("Invalid Input for setProfitConcert :(");
         }
     }
 
     /**
-     * Set a new Screening - Profit Percentage and notify all Screening's instances created on EventBrite (Observers)
+     * Set a new Screening - Profit Percentage, used by all Screening's instances created on EventBrite.
      * @param pPercentage
      *              new screening-profit percentage
-     * @pre aHostedEvents != null && pPercentage != null &&  pPercentage >= 0 && pPercentage <= 100
+     * @pre pPercentage != null &&  pPercentage >= 0 && pPercentage <= 100
      */
     public void setProfitScreening(Integer pPercentage) {
         try {
-            calculator.setProfit(getHostedEvents(),Screening.class,pPercentage);
+            setProfit(Screening.class,pPercentage);
         } catch(IllegalArgumentException e) {
             System.out.println("Invalid Input for setProfitConcert :(");
         }
     }
 
     /**
-     * Set a new Workshop - Profit Percentage and notify all Screening's instances created on EventBrite (Observers)
+     * Set a new Workshop - Profit Percentage, used by all Workshop's instances created on EventBrite.
      * @param pPercentage
      *              new workshop-profit percentage
-     * @pre aHostedEvents != null && pPercentage != null &&  pPercentage >= 0 && pPercentage <= 100
+     * @pre pPercentage != null &&  pPercentage >= 0 && pPercentage <= 100
      */
     public void setProfitWorkshop(Integer pPercentage) {
         try {
-            calculator.setProfit(getHostedEvents(),Workshop.class,pPercentage);
+            setProfit(Workshop.class,pPercentage);
         } catch(IllegalArgumentException e) {
             System.out.println("Invalid Input for setProfitConcert :(");
         }
     }
 
+    /* ****************************************************************************************************************
+            USE EXPECTED PROFIT FUNCTIONS TO GET THE EXPECTED PROFIT OF ALL HOSTED EVENTS (OVERALL / PER TYPE / PER LOCATION)
+            N.B. Computed from running aggregates, in constant time whatever the number of hosted events.
+     **************************************************************************************************************** */
+    /**
+     * @return the Expected Profit of all the Events hosted on EventBrite.
+     */
+    public double getExpectedProfit() {
+        return aAggregates.getExpectedProfit();
+    }
+
+    /**
+     * @param pLocation
+     *              Location of the events
+     * @return the Expected Profit of all the Events hosted on EventBrite at a Location (0 if pLocation is null).
+     */
+    public double getExpectedProfit(Location pLocation) {
+        if (pLocation == null) {
+            System.out.println("Invalid Input for getExpectedProfit :(");
+            return 0.0;
+        }
+        return aAggregates.getExpectedProfit(pLocation);
+    }
+
+    /**
+     * @return the Expected Profit of all the Concerts hosted on EventBrite.
+     */
+    public double getExpectedProfitConcert() {
+        return aAggregates.getExpectedProfit(Concert.class);
+    }
+
+    /**
+     * @return the Expected Profit of all the Galas hosted on EventBrite.
+     */
+    public double getExpectedProfitGala() {
+        return aAggregates.getExpectedProfit(Gala.class);
+    }
+
+    /**
+     * @return the Expected Profit of all the Screenings hosted on EventBrite.
+     */
+    public double getExpectedProfitScreening() {
+        return aAggregates.getExpectedProfit(Screening.class);
+    }
+
+    /**
+     * @return the Expected Profit of all the Workshops hosted on EventBrite.
+     */
+    public double getExpectedProfitWorkshop() {
+        return aAggregates.getExpectedProfit(Workshop.class);
+    }
+
+    /**
+     * @return the Expected Profit of all the Festivals hosted on EventBrite.
+     */
+    public double getExpectedProfitFestival() {
+        return aAggregates.getExpectedProfit(Festival.class);
+    }
+
+    /* ****************************************************************************************************************
+            USE BOOKING FUNCTIONS TO SELL THE TICKETS OF HOSTED EVENTS (RESERVE, THEN CONFIRM OR RELEASE)
+     **************************************************************************************************************** */
+    /**
+     * Method to reserve tickets of a hosted event (w/o locking : see Command_BookTickets).
+     * @param pEvent
+     *              Concrete Event hosted on EventBrite
+     * @param pQuantity
+     *              number of tickets to reserve
+     * @return the Reservation holding the tickets until it is confirmed or released,
+     *              or null if the event has fewer tickets available (sold out)
+     * @pre pEvent != null && pEvent is hosted && pQuantity > 0
+     */
+    public Reservation reserveTickets(Event pEvent, int pQuantity) {
+        try {
+            return bookingCommand.reserve(pEvent, pQuantity);
+        } catch(IllegalArgumentException e) {
+            System.out.println("Invalid Input for reserveTickets method :(");
+        }
+        return null;
+    }
+
+    /**
+     * Method to confirm a Reservation : its tickets are sold.
+     * @return TRUE if confirmed, FALSE if it was already confirmed or released
+     * @pre pReservation != null
+     */
+    public boolean confirmReservation(Reservation pReservation) {
+        try {
+            return bookingCommand.confirm(pReservation);
+        } catch(IllegalArgumentException e) {
+            System.out.println("Invalid Input for confirmReservation method :(");
+        }
+        return false;
+    }
+
+    /**
+     * Method to release a Reservation : its tickets are available again.
+     * @return TRUE if released, FALSE if it was already confirmed or released
+     * @pre pReservation != null
+     */
+    public boolean releaseReservation(Reservation pReservation) {
+        try {
+            return bookingCommand.release(pReservation);
+        } catch(IllegalArgumentException e) {
+            System.out.println("Invalid Input for releaseReservation method :(");
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of tickets of a hosted event neither reserved nor sold (0 if the event has no tickets).
+     * @pre pEvent != null && pEvent is hosted
+     */
+    public int getAvailableTickets(Event pEvent) {
+        try {
+            holdCommand.expire(); // tickets of the expired Holds are available again
+            return bookingCommand.getInventory(pEvent).getAvailable();
+        } catch(IllegalArgumentException e) {
+            System.out.println("Invalid Input for getAvailableTickets method :(");
+        }
+        return 0;
+    }
+
+    /**
+     * @return the number of tickets of a hosted event sold (0 if the event has no tickets).
+     * @pre pEvent != null && pEvent is hosted
+     */
+    public int getSoldTickets(Event pEvent) {
+        try {
+            return bookingCommand.getInventory(pEvent).getSold();
+        } catch(IllegalArgumentException e) {
+            System.out.println("Invalid Input for getSoldTickets method :(");
+        }
+        return 0;
+    }
+
+    /**
+     * Method to hold tickets of a hosted event during a checkout : they are reserved until the hold is confirmed or
+     * released, and available again once its duration has passed (see Command_HoldTickets).
+     * @param pEvent
+     *              Concrete Event hosted on EventBrite
+     * @param pQuantity
+     *              number of tickets to hold
+     * @param pDurationMillis
+     *              duration of the hold in milliseconds
+     * @return the Hold, or null if the event has fewer tickets available (sold out)
+     * @pre pEvent != null && pEvent is hosted && pQuantity > 0 && pDurationMillis > 0
+     */
+    public Hold holdTickets(Event pEvent, int pQuantity, long pDurationMillis) {
+        try {
+            return holdCommand.hold(pEvent, pQuantity, pDurationMillis);
+        } catch(IllegalArgumentException e) {
+            System.out.println("Invalid Input for holdTickets method :(");
+        }
+        return null;
+    }
+
+    /**
+     * Method to confirm a Hold before its deadline : its tickets are sold.
+     * @return TRUE if confirmed, FALSE if it was already confirmed, released or expired
+     * @pre pHold != null
+     */
+    public boolean confirmHold(Hold pHold) {
+        try {
+            return holdCommand.confirm(pHold);
+        } catch(IllegalArgumentException e) {
+            System.out.println("Invalid Input for confirmHold method :(");
+        }
+        return false;
+    }
+
+    /**
+     * Method to release a Hold before its deadline : its tickets are available again.
+     * @return TRUE if released, FALSE if it was already confirmed, released or expired
+     * @pre pHold != null
+     */
+    public boolean releaseHold(Hold pHold) {
+        try {
+            return holdCommand.release(pHold);
+        } catch(IllegalArgumentException e) {
+            System.out.println("Invalid Input for releaseHold method :(");
+        }
+        return false;
+    }
+
+    /**
+     * Method to give back the tickets of all the Holds whose duration has passed.
+     * @return the number of Holds expired
+     */
+    public int expireHolds() {
+        return holdCommand.expire();
+    }
+
+    /**
+     * @return the number of Holds of tickets not confirmed, released nor given back yet.
+     */
+    public int getNumHolds() {
+        return holdCommand.getNumHolds();
+    }
+
      /* ****************************************************************************************************************
          FOLLOWING METHODS SUPPORT FILTERING OF EVENTS HOSTED ON EVERBRITE :
             (1) Can Set a Filter ( 2 options : (1) Filter By Price Range (2) Filter By Location) which is
@@ -257,24 +767,189 @@ public class EventManagement {
      **************************************************************************************************************** */
     /**
      * Method used to filter all Events hosted on EverBrite using the List of all the filters to apply.
+     * The FilteredResult is pinned to the current version of the hosted events and of the Profit Percentages :
+     * its expected profit does not change when events are hosted or percentages are set afterwards (see refresh).
      * @return FilteredResult
      *              FilteredResult object that contains list of filtered Events.
-     * @pre aHostedEvents != null && !aHostedEvents.isEmpty() && aFilters != null && !aFilter.isEmpty()
+     * @pre aStore.size() > 0 && aFilters != null && !aFilter.isEmpty()
      */
     public FilteredResult filterHostedEvents() {
+        return filter(aFilters);
+    }
+
+    /**
+     * Filters again the Events hosted on EverBrite w/ the filters of a FilteredResult, at the current version of the
+     * hosted events and of the Profit Percentages.
+     * @param pResult
+     *              FilteredResult to bring up to date.
+     * @return new FilteredResult pinned to the current version
+     * @pre pResult != null
+     */
+    public FilteredResult refresh(FilteredResult pResult) {
+        if (pResult == null) {
+            System.out.println("Invalid Input for refresh method :(");
+            return null;
+        }
+        return filter(pResult.getFilters());
+    }
+
+    /**
+     * Filters the hosted Events pinned to the current version : the number of hosted Events and the Snapshot of the
+     * Profit Percentages are read together under the publish lock, so they match a state EventBrite has been in.
+     */
+    private FilteredResult filter(List<Filter> pFilters) {
+        long start = System.nanoTime();
+        int numEvents;
+        ProfitPercentages.Snapshot snapshot;
+        synchronized (aPublishLock) {
+            numEvents = aStore.size();
+            snapshot = getPercentages().pin();
+        }
+        try {
+            return new FilteredResult(aStore, numEvents, snapshot, pFilters, aPool);
+        } catch(IllegalArgumentException e) {
+            System.out.println("Filtering method was UNSUCCESSFUL due to invalid arguments!");
+        } finally {
+            aFilterLatency.record(System.nanoTime() - start);
+        }
+        return null;
+    }
+
+    /**
+     * Lazy version of filterHostedEvents : the matching Events are computed one at a time while iterating,
+     * without materializing a FilteredResult.
+     * @return Iterable over the Events that match all the selected filters (in order of creation),
+     *              or null if no filter was selected.
+     */
+    public Iterable<Event> filterHostedEventsLazily() {
         try {
-            return new FilteredResult(getHostedEvents(), aFilters);
+            return FilteredResult.lazy(aStore, aFilters);
         } catch(IllegalArgumentException e) {
             System.out.println("Filtering method was UNSUCCESSFUL due to invalid arguments!");
         }
         return null;
     }
 
+    /**
+     * Method used to get the pK first Events hosted on EverBrite that match all the selected filters (all the hosted
+     * events if no filter is selected), e.g. the 20 most profitable or the 20 cheapest ones. The matching events are
+     * never all materialized nor sorted (see FilteredResult.top), and the query is pinned to the current version of
+     * the hosted events and of the Profit Percentages.
+     * @param pKey
+     *              key of the events to rank them by (profit, price, date or remaining capacity)
+     * @param pDescending
+     *              TRUE to rank the highest keys first (e.g. most profitable), FALSE for the lowest first (e.g. cheapest)
+     * @param pK
+     *              maximum number of events returned
+     * @return the (at most) pK first matching events, in order, or null if the input is invalid
+     * @pre pKey != null && pK > 0
+     */
+    public List<Event> getTopHostedEvents(Ranking.Key pKey, boolean pDescending, int pK) {
+        try {
+            int numEvents;
+            ProfitPercentages.Snapshot percentages;
+            synchronized (aPublishLock) { // pinned together, then ranked w/o blocking the threads adding Events
+                numEvents = aStore.size();
+                percentages = getPercentages().pin();
+            }
+            return FilteredResult.top(aStore, numEvents, aFilters, ranking(pKey, pDescending, percentages, numEvents), pK);
+        } catch(IllegalArgumentException e) {
+            System.out.println("Invalid Input for getTopHostedEvents method :(");
+        }
+        return null;
+    }
+
+    /**
+     * Method used to get the first page of the Events hosted on EverBrite that match all the selected filters (all
+     * the hosted events if no filter is selected), in the order of a key (see getTopHostedEvents). The next pages are
+     * read w/ the Cursor of each page, on the same version of the hosted events, of the Profit Percentages and of
+     * the remaining capacity of the events (for the CAPACITY key : tickets booked between two pages do not move
+     * an event to another page).
+     * @param pSize
+     *              maximum number of events of a page
+     * @return the first page, or null if the input is invalid
+     * @pre pKey != null && pSize > 0
+     */
+    public ResultPage pageHostedEvents(Ranking.Key pKey, boolean pDescending, int pSize) {
+        try {
+            int numEvents;
+            ProfitPercentages.Snapshot percentages;
+            synchronized (aPublishLock) { // pinned together, then ranked w/o blocking the threads adding Events
+                numEvents = aStore.size();
+                percentages = getPercentages().pin();
+            }
+            return FilteredResult.page(aStore, numEvents, aFilters, ranking(pKey, pDescending, percentages, numEvents), pSize);
+        } catch(IllegalArgumentException e) {
+            System.out.println("Invalid Input for pageHostedEvents method :(");
+        }
+        return null;
+    }
+
+    /**
+     * Method used to get the page of hosted Events after a Cursor (see pageHostedEvents(Ranking.Key, boolean, int)).
+     * @param pCursor
+     *              Cursor of the previous page (see ResultPage.getNextCursor)
+     * @param pSize
+     *              maximum number of events of the page
+     * @return the page, or null if the input is invalid
+     * @pre pCursor != null && pSize > 0
+     */
+    public ResultPage pageHostedEvents(ResultPage.Cursor pCursor, int pSize) {
+        try {
+            return FilteredResult.page(aStore, pCursor, pSize);
+        } catch(IllegalArgumentException e) {
+            System.out.println("Invalid Input for pageHostedEvents method :(");
+        }
+        return null;
+    }
+
+    /**
+     * @return a Ranking pinned to a Snapshot of the Profit Percentages and, for the CAPACITY key, to the current
+     *              remaining capacity of the pNumEvents first hosted events (once the expired Holds are given back).
+     * N.B. The capacities are read one event at a time : a booking made meanwhile may or may not be counted, but
+     * all the pages of the Ranking see the same capacities.
+     * @pre pKey != null && pPercentages != null && 0 <= pNumEvents <= aStore.size()
+     */
+    private Ranking ranking(Ranking.Key pKey, boolean pDescending, ProfitPercentages.Snapshot pPercentages, int pNumEvents) {
+        if (pKey != Ranking.Key.CAPACITY) return new Ranking(pKey, pDescending, pPercentages, null);
+        holdCommand.expire(); // tickets of the expired Holds are available again
+        int[] capacities = new int[pNumEvents];
+        for (int id = 0; id < pNumEvents; id++) {
+            if (aStore.isConcrete(id)) capacities[id] = bookingCommand.getAvailable(aStore.getEvent(id));
+        }
+        return new Ranking(pKey, pDescending, pPercentages, capacities);
+    }
+
+    /**
+     * Selects the parallel OR sequential mode for the next filtering actions. In parallel mode, the hosted events
+     * are split across a ForkJoinPool to filter them and compute the expected profit of the FilteredResult (the
+     * order of the events is kept, and small catalogs are still processed sequentially).
+     * @param pParallel
+     *              TRUE for the parallel mode (on the common ForkJoinPool), FALSE for the sequential mode (default).
+     */
+    public void setParallelMode(boolean pParallel) {
+        setParallelMode(pParallel, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Selects the parallel OR sequential mode for the next filtering actions (see setParallelMode(boolean)),
+     * w/ the ForkJoinPool to run the parallel mode on.
+     * @param pParallel
+     *              TRUE for the parallel mode, FALSE for the sequential mode (default).
+     * @param pPool
+     *              ForkJoinPool the hosted events are filtered on in parallel mode
+     * @pre pPool != null
+     */
+    public void setParallelMode(boolean pParallel, ForkJoinPool pPool) {
+        if (pPool == null) throw new IllegalArgumentException();
+        aPool = pParallel ? pPool : null;
+    }
+
     /**
      * Resets the list of filters to start "fresh" again.
      */
     public void resetFilters() {
-        aFilters = new ArrayList<>();
+        aFilters.clear();
     }
 
     /**
@@ -313,6 +988,25 @@ public class EventManagement {
         }
     }
 
+    /**
+     * Method to set a specific Filter by Date range (e.g. "this weekend", "the next 30 days") to take into account
+     * for the next filtering action.
+     * @param pFrom
+     *              first date of the range (included)
+     * @param pTo
+     *              last date of the range (included)
+     * @pre pFrom != null && pTo != null && !pTo.isBefore(pFrom)
+     */
+    public void setFilterByDateRange(LocalDate pFrom, LocalDate pTo)
+    {
+        try {
+            Filter filter = new Filter_ByDateRange(pFrom, pTo);
+            aFilters.add(filter);
+        } catch(IllegalArgumentException e) {
+            System.out.println("Invalid Input for setFilterByDateRange :(");
+        }
+    }
+
     /* ****************************************************************************************************************
                                                     GETTER METHODS
      **************************************************************************************************************** */
@@ -343,18 +1037,46 @@ public class EventManagement {
     public void addVIP(String pName)
     {
         if (pName != null) {
-            aVIPs.add(pName);
+            long lsn;
+            synchronized (aPublishLock) {
+                aVIPs.add(pName);
+                lsn = log(log -> log.logVIP(pName));
+            }
+            awaitLog(lsn);
         } else {
             System.out.println("Invalid Input for addVIP method :(");
         }
     }
 
     /**
-     * Return the list of hosted events on EventBrite.
+     * Returns the hosted Concerts and Galas a VIP member is invited to (in order of creation), w/o scanning all the
+     * hosted events (see Index_ByVIP).
+     * @param pName
+     *          Name of VIP member.
+     * @return list of Events (empty if the VIP is not invited to any hosted event)
+     * @pre pName != null
+     */
+    public List<Event> getEventsOfVIP(String pName)
+    {
+        List<Event> events = new ArrayList<>();
+        if (pName == null) {
+            System.out.println("Invalid Input for getEventsOfVIP method :(");
+            return events;
+        }
+        int vip = VIPRegistry.getInstance().lookup(pName);
+        if (vip < 0) return events;
+        BitSet ids = aStore.getVIPIndex().lookup(vip, aStore.size());
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) events.add(aStore.getEvent(id));
+        return events;
+    }
+
+    /**
+     * Return the list of hosted events on EventBrite : unmodifiable snapshot (Events hosted afterwards are not in it),
+     * handed out w/o copying the catalog.
      * This method assumes that Events are immutable.
     */
-    public ArrayList<Event> getHostedEvents(){
-        return new ArrayList<>(aHostedEvents);
+    public List<Event> getHostedEvents(){
+        return aStore.getEvents();
     }
 
     /**
@@ -363,18 +1085,36 @@ public class EventManagement {
     public void printHostedEvents() {
         int index = 1;
         System.out.println("Print Hosted Events : ");
-        if (!aHostedEvents.isEmpty()) {
-            for (Event event : aHostedEvents) {
-                if (event.getLocation().isPresent()) {
-                    System.out.print(index+" : <"+event.getName()+"> : @"+event.getDate()+" @"+event.getLocation().get()+"\n");
-                } else {
-                    System.out.print(index+" : 'ComingSoon' <"+event.getName()+"> : @"+event.getDate()+"\n");
-                }
-                index++;
+        for (int id = 0; id < aStore.size(); id++) {
+            Event event = aStore.getEvent(id);
+            if (aStore.getLocation(id) != null) {
+                System.out.print(index+" : <"+event.getName()+"> : @"+event.getDate()+" @"+aStore.getLocation(id)+"\n");
+            } else {
+                System.out.print(index+" : 'ComingSoon' <"+event.getName()+"> : @"+event.getDate()+"\n");
             }
+            index++;
         }
         System.out.println();
     }
+
+    /* ****************************************************************************************************************
+            USE METRICS FUNCTIONS TO MONITOR THE OPERATIONS ON EVENTBRITE (COUNTERS, LATENCIES AND GAUGES)
+     **************************************************************************************************************** */
+    /**
+     * @return the Metrics of EventBrite : counters of the Events accepted / duplicate / invalid, latency histograms of
+     *              the add*, importEvents, filterHostedEvents and setProfit* operations, and gauges of the number of
+     *              hosted Events (overall and per type), VIPs and open Holds (see Metrics.dump and Metrics.register).
+     */
+    public Metrics getMetrics() {
+        return aMetrics;
+    }
+
+    /**
+     * Method to print the text dump of the Metrics of EventBrite.
+     */
+    public void printMetrics() {
+        System.out.print(aMetrics.dump());
+    }
 }
 
 
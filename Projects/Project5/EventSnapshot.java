@@ -0,0 +1,337 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Compact, versioned binary snapshot of an EventManagement : VIPs, Profit Percentages per type of Event, and all the
+ * hosted Events w/ their Festival membership and Workshop prerequisite links.
+ * A snapshot is loaded from a memory-mapped file and its Events are restored w/o going through the add commands
+ * (no validation, no conflict check, no search of prerequisites), so a large catalog is rebuilt quickly at startup.
+ *
+ * Format (big-endian) :
+ *      MAGIC (int) FORMAT_VERSION (int) LSN of the last change of the write-ahead log contained in the snapshot (long)
+ *      number of VIPs (int), VIPs (string)
+ *      number of percentages (int), { type (byte) percentage (int) }
+ *      number of Events (int), Events (see writeEvent), in an order where every member of a Festival comes before it
+ *      for each Event, number of prerequisites (int) and their index (int) (only for Workshops)
+ * A string is its number of UTF-8 bytes (int) followed by the bytes.
+ */
+public class EventSnapshot
+{
+    private static final int MAGIC = 0x45565331; // "EVS1"
+    private static final int FORMAT_VERSION = 2; // 2 : + LSN of the last logged change (see WriteAheadLog)
+
+    private static final byte CONCERT = 1, GALA = 2, SCREENING = 3, WORKSHOP = 4, FESTIVAL = 5;
+    private static final byte HAS_LOCATION = 1, HAS_PRICE = 2, HAS_TICKETS = 4, HOSTED = 8;
+
+    private EventSnapshot() {}
+
+    /* ****************************************************************************************************************
+                                                    WRITING A SNAPSHOT
+     **************************************************************************************************************** */
+    /**
+     * Writes the snapshot of an EventManagement to a file (replacing it if it exists). The snapshot is written to a
+     * temporary file and forced to disk before replacing the file, so a crash never leaves a partial snapshot.
+     * @param pLsn
+     *              LSN of the last change of the write-ahead log contained in the snapshot (0 if not logged)
+     * @pre pManagement != null && pFile != null && pLsn >= 0
+     */
+    public static void write(EventManagement pManagement, Path pFile, long pLsn) throws IOException
+    {
+        assert pManagement != null && pFile != null && pLsn >= 0;
+        EventStore store = pManagement.getStore();
+
+        // Order the Events so that every member of a Festival (hosted or not) comes before the Festival
+        List<Event> events = new ArrayList<>();
+        Map<Event, Integer> indexes = new IdentityHashMap<>();
+        for (int id = 0; id < store.size(); id++) collect(store.getEvent(id), events, indexes);
+
+        Path temporary = pFile.resolveSibling(pFile.getFileName()+".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(pLsn);
+
+            List<String> vips = pManagement.getVIPs();
+            out.writeInt(vips.size());
+            for (String vip : vips) writeString(out, vip);
+
+            Map<Class<?>, Integer> percentages = pManagement.getPercentages().getCurrentVersion().getPercentages();
+            out.writeInt(percentages.size());
+            for (Map.Entry<Class<?>, Integer> percentage : percentages.entrySet()) {
+                out.writeByte(type(percentage.getKey()));
+                out.writeInt(percentage.getValue());
+            }
+
+            out.writeInt(events.size());
+            for (Event event : events) writeEvent(out, event, indexes);
+
+            for (Event event : events) {
+                if (!(event instanceof Workshop)) continue;
+                List<Event> prerequisites = ((Workshop) event).getPrerequisites();
+                out.writeInt(prerequisites.size());
+                for (Event prerequisite : prerequisites) out.writeInt(index(prerequisite, indexes));
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, pFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Adds an Event to the ordered list of Events to write, after all the members of a Festival.
+     */
+    private static void collect(Event pEvent, List<Event> pEvents, Map<Event, Integer> pIndexes)
+    {
+        if (pIndexes.containsKey(pEvent)) return;
+        if (pEvent instanceof Festival) {
+            for (Event member : ((Festival) pEvent).getFestivalEventsList()) collect(member, pEvents, pIndexes);
+        }
+        pIndexes.put(pEvent, pEvents.size());
+        pEvents.add(pEvent);
+    }
+
+    /**
+     * Writes an Event : type (byte) flags (byte) name (string) date (long : epoch day) location (byte) price (double)
+     * tickets (int) override (int), then its specific fields :
+     *      Concert : artist (string) number of VIPs (int) VIPs (string)
+     *      Gala : number of VIPs (int) VIPs (string)
+     *      Screening : rating (byte)
+     *      Festival : number of members (int) index of the members (int)
+     */
+    private static void writeEvent(DataOutputStream pOut, Event pEvent, Map<Event, Integer> pIndexes) throws IOException
+    {
+        Optional<Location> location = pEvent.getLocation();
+        Optional<Double> price = pEvent.getPrice();
+        Optional<Integer> tickets = pEvent.getNumTickets();
+        AbstractEvent event = (AbstractEvent) pEvent;
+        int flags = (location.isPresent() ? HAS_LOCATION : 0) | (price.isPresent() ? HAS_PRICE : 0)
+                | (tickets.isPresent() ? HAS_TICKETS : 0) | (event.isHosted() ? HOSTED : 0);
+
+        pOut.writeByte(type(pEvent.getClass()));
+        pOut.writeByte(flags);
+        writeString(pOut, pEvent.getName());
+        pOut.writeLong(pEvent.getDate().toEpochDay());
+        pOut.writeByte(location.isPresent() ? location.get().ordinal() : -1);
+        pOut.writeDouble(price.orElse(0.0));
+        pOut.writeInt(tickets.orElse(0));
+        pOut.writeInt(event.getOverride());
+
+        if (pEvent instanceof Concert) {
+            writeString(pOut, ((Concert) pEvent).getArtist());
+            writeStrings(pOut, ((Concert) pEvent).getVIPs());
+        } else if (pEvent instanceof Gala) {
+            writeStrings(pOut, ((Gala) pEvent).getVIPs());
+        } else if (pEvent instanceof Screening) {
+            pOut.writeByte(((Screening) pEvent).getRating().ordinal());
+        } else if (pEvent instanceof Festival) {
+            List<Event> members = ((Festival) pEvent).getFestivalEventsList();
+            pOut.writeInt(members.size());
+            for (Event member : members) pOut.writeInt(index(member, pIndexes));
+        }
+    }
+
+    private static void writeStrings(DataOutputStream pOut, List<String> pStrings) throws IOException
+    {
+        if (pStrings == null) pStrings = new ArrayList<>();
+        pOut.writeInt(pStrings.size());
+        for (String string : pStrings) writeString(pOut, string);
+    }
+
+    private static void writeString(DataOutputStream pOut, String pString) throws IOException
+    {
+        byte[] bytes = pString.getBytes(StandardCharsets.UTF_8);
+        pOut.writeInt(bytes.length);
+        pOut.write(bytes);
+    }
+
+    private static int index(Event pEvent, Map<Event, Integer> pIndexes) throws IOException
+    {
+        Integer index = pIndexes.get(pEvent);
+        if (index == null) throw new IOException("Event "+pEvent.getName()+" is not part of the snapshot");
+        return index;
+    }
+
+    /**
+     * @return tag of a type of Event (in snapshots and logs).
+     */
+    static byte type(Class<?> pClass) throws IOException
+    {
+        if (pClass == Concert.class) return CONCERT;
+        if (pClass == Gala.class) return GALA;
+        if (pClass == Screening.class) return SCREENING;
+        if (pClass == Workshop.class) return WORKSHOP;
+        if (pClass == Festival.class) return FESTIVAL;
+        throw new IOException("Unsupported type of Event : "+pClass.getName());
+    }
+
+    /**
+     * @return type of Event of a tag (in snapshots and logs).
+     */
+    static Class<?> type(byte pType) throws IOException
+    {
+        switch (pType) {
+            case CONCERT: return Concert.class;
+            case GALA: return Gala.class;
+            case SCREENING: return Screening.class;
+            case WORKSHOP: return Workshop.class;
+            case FESTIVAL: return Festival.class;
+            default: throw new IOException("Corrupted snapshot : unknown type of Event "+pType);
+        }
+    }
+
+    /* ****************************************************************************************************************
+                                        READING A SNAPSHOT (FROM A MEMORY-MAPPED FILE)
+     **************************************************************************************************************** */
+    /**
+     * Reads a snapshot from a memory-mapped file and restores it in a new EventManagement.
+     * @return the restored EventManagement
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     * @pre pFile != null
+     */
+    public static EventManagement read(Path pFile) throws IOException
+    {
+        assert pFile != null;
+        try (FileChannel channel = FileChannel.open(pFile, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer);
+        } catch (BufferUnderflowException | IllegalArgumentException | DateTimeException e) {
+            throw new IOException("Corrupted snapshot : "+pFile, e);
+        }
+    }
+
+    private static EventManagement read(MappedByteBuffer pBuffer) throws IOException
+    {
+        if (pBuffer.getInt() != MAGIC) throw new IOException("Not an EventManagement snapshot");
+        int version = pBuffer.getInt();
+        if (version != 1 && version != FORMAT_VERSION) throw new IOException("Unsupported snapshot version : "+version);
+
+        EventManagement management = new EventManagement();
+        if (version >= 2) management.setAppliedLsn(pBuffer.getLong());
+        int numVIPs = pBuffer.getInt();
+        for (int i = 0; i < numVIPs; i++) management.addVIP(readString(pBuffer));
+
+        int numPercentages = pBuffer.getInt();
+        for (int i = 0; i < numPercentages; i++) {
+            Class<?> type = type(pBuffer.get());
+            management.getPercentages().setPercentage(type, readIndex(pBuffer.getInt(), 101, "percentage"));
+        }
+
+        int numEvents = readIndex(pBuffer.getInt(), pBuffer.remaining() + 1, "number of Events"); // N.B. >= 1 byte per Event
+        Event[] events = new Event[numEvents];
+        Location[] locations = Location.values();
+        Screening.Rating[] ratings = Screening.Rating.values();
+        for (int i = 0; i < numEvents; i++) {
+            byte type = pBuffer.get();
+            byte flags = pBuffer.get();
+            String name = readString(pBuffer);
+            LocalDate date = LocalDate.ofEpochDay(pBuffer.getLong());
+            byte location = pBuffer.get();
+            double price = pBuffer.getDouble();
+            int tickets = pBuffer.getInt();
+            int override = pBuffer.getInt();
+            if (override != AbstractEvent.NO_OVERRIDE) readIndex(override, 101, "percentage");
+            Optional<Location> eventLocation = (flags & HAS_LOCATION) != 0 ? Optional.of(locations[readIndex(location, locations.length, "location")]) : Optional.empty();
+            Optional<Double> eventPrice = (flags & HAS_PRICE) != 0 ? Optional.of(price) : Optional.empty();
+            Optional<Integer> eventTickets = (flags & HAS_TICKETS) != 0 ? Optional.of(tickets) : Optional.empty();
+
+            AbstractEvent event;
+            switch (type) {
+                case CONCERT:
+                    String artist = readString(pBuffer);
+                    event = new Concert(name, date, eventLocation, eventPrice, eventTickets, artist, readStrings(pBuffer));
+                    break;
+                case GALA:
+                    event = new Gala(name, date, eventLocation, eventPrice, eventTickets, readStrings(pBuffer));
+                    break;
+                case SCREENING:
+                    event = new Screening(name, date, eventLocation, eventPrice, eventTickets, ratings[readIndex(pBuffer.get(), ratings.length, "rating")]);
+                    break;
+                case WORKSHOP:
+                    event = new Workshop(name, date, eventLocation, eventPrice, eventTickets, new ArrayList<>());
+                    break;
+                case FESTIVAL:
+                    List<Event> members = new ArrayList<>();
+                    int numMembers = pBuffer.getInt();
+                    if (numMembers <= 0) throw new IOException("Corrupted snapshot : Festival "+name+" w/o events");
+                    for (int m = 0; m < numMembers; m++) members.add(events[readIndex(pBuffer.getInt(), i, "member")]); // members come first
+                    event = (AbstractEvent) Festival.createFestival(name, members);
+                    break;
+                default:
+                    throw new IOException("Corrupted snapshot : unknown type of Event "+type);
+            }
+            if (override != AbstractEvent.NO_OVERRIDE) event.updatePercentage(override);
+            events[i] = event;
+            if ((flags & HOSTED) != 0) management.restoreEvent(event);
+        }
+
+        for (Event event : events) {
+            if (!(event instanceof Workshop)) continue;
+            int numPrerequisites = readIndex(pBuffer.getInt(), numEvents + 1, "number of prerequisites");
+            List<Workshop> prerequisites = new ArrayList<>(numPrerequisites);
+            for (int i = 0; i < numPrerequisites; i++) {
+                Event prerequisite = events[readIndex(pBuffer.getInt(), numEvents, "prerequisite")];
+                if (!(prerequisite instanceof Workshop)) throw new IOException("Corrupted snapshot : prerequisite "+prerequisite.getName()+" is not a Workshop");
+                prerequisites.add((Workshop) prerequisite);
+            }
+            // N.B. a Workshop linked to its series when restored already sees the same prerequisites
+            if (!((Workshop) event).isLinked()) ((Workshop) event).addPrerequisites(prerequisites);
+        }
+        return management;
+    }
+
+    /**
+     * Checks an index (or a count) read from the snapshot.
+     * @return pIndex
+     * @throws IOException if pIndex is not in [0, pBound)
+     */
+    private static int readIndex(int pIndex, int pBound, String pName) throws IOException
+    {
+        return readIndex("snapshot", pIndex, pBound, pName);
+    }
+
+    /**
+     * Checks an index (or a count, an ordinal, a percentage) read from a file (see also WriteAheadLog).
+     * @param pFile
+     *              kind of file read (for the message)
+     * @return pIndex
+     * @throws IOException if pIndex is not in [0, pBound)
+     */
+    static int readIndex(String pFile, int pIndex, int pBound, String pName) throws IOException
+    {
+        if (pIndex < 0 || pIndex >= pBound) throw new IOException("Corrupted "+pFile+" : "+pName+" "+pIndex+" out of range");
+        return pIndex;
+    }
+
+    private static List<String> readStrings(MappedByteBuffer pBuffer) throws IOException
+    {
+        int size = readIndex(pBuffer.getInt(), pBuffer.remaining() / 4 + 1, "number of strings"); // N.B. >= 4 bytes per string
+        List<String> strings = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) strings.add(readString(pBuffer));
+        return strings;
+    }
+
+    private static String readString(MappedByteBuffer pBuffer) throws IOException
+    {
+        byte[] bytes = new byte[readIndex(pBuffer.getInt(), pBuffer.remaining() + 1, "length of string")];
+        pBuffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,212 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Column-oriented (struct-of-arrays) store of all the Events hosted on EventBrite.
+ * Every Event receives a dense id (= its position in order of creation) and its Location, Ticket Price
+ * and number of Tickets are copied into primitive arrays, so that filtering and profit passes
+ * read contiguous primitive values instead of going through the Optional getters of each Event.
+ * 'ComingSoon' Events are marked in a presence column (w/ the Location, Price and number of Tickets they have).
+ * The store is append-only : ids are never reused and hosted Events are never removed.
+ *
+ * Thread-safety : Events are added by one writer at a time (add is synchronized), and never block the readers.
+ * A new Event is written in the columns (and indexes) before the size is incremented, and the columns / size are
+ * volatile, so a reader that reads size() first sees all the Events w/ an id below it (a reader must not read an
+ * id >= the size it has read). A column replaced by grow() is a copy, so a reader still using the old column is safe.
+ */
+public class EventStore
+{
+    private static final int INITIAL_CAPACITY = 16;
+    private static final byte NO_LOCATION = -1; // location ordinal of 'ComingSoon' Events
+    static final byte HAS_LOCATION = 1, HAS_PRICE = 2, HAS_TICKETS = 4, CONCRETE = HAS_LOCATION | HAS_PRICE | HAS_TICKETS;
+    private static final Location[] LOCATIONS = Location.values();
+
+    private volatile Event[] aEvents = new Event[INITIAL_CAPACITY];
+    private volatile double[] aPrices = new double[INITIAL_CAPACITY];
+    private volatile int[] aNumTickets = new int[INITIAL_CAPACITY];
+    private volatile byte[] aLocations = new byte[INITIAL_CAPACITY];
+    private volatile byte[] aPresence = new byte[INITIAL_CAPACITY]; // HAS_LOCATION | HAS_PRICE | HAS_TICKETS (CONCRETE for Concrete Events)
+    private volatile int aSize = 0;
+
+    private Index_ByLocation aLocationIndex = new Index_ByLocation();
+    private Index_ByPrice aPriceIndex = new Index_ByPrice(this);
+    private Index_ByVIP aVIPIndex = new Index_ByVIP();
+    private Index_ByDate aDateIndex = new Index_ByDate();
+
+    /**
+     * Adds an Event at the end of the store.
+     * @param pEvent
+     *              Event to add
+     * @return the id of the Event in the store
+     * @pre pEvent != null
+     */
+    public synchronized int add(Event pEvent)
+    {
+        assert pEvent != null;
+        int id = aSize;
+        if (id == aEvents.length) grow();
+        Optional<Location> location = pEvent.getLocation();
+        Optional<Double> price = pEvent.getPrice();
+        Optional<Integer> numTickets = pEvent.getNumTickets();
+
+        aEvents[id] = pEvent;
+        aLocations[id] = location.isPresent() ? (byte) location.get().ordinal() : NO_LOCATION;
+        aPrices[id] = price.isPresent() ? price.get() : 0.0;
+        aNumTickets[id] = numTickets.isPresent() ? numTickets.get() : 0;
+        aPresence[id] = (byte) ((location.isPresent() ? HAS_LOCATION : 0) | (price.isPresent() ? HAS_PRICE : 0) | (numTickets.isPresent() ? HAS_TICKETS : 0));
+        aLocationIndex.add(id, location.orElse(null));
+        aDateIndex.add(id, pEvent.getDate());
+        if (pEvent instanceof Concert) aVIPIndex.add(id, ((Concert) pEvent).getGuestList());
+        if (pEvent instanceof Gala) aVIPIndex.add(id, ((Gala) pEvent).getGuestList());
+        aSize = id + 1; // publishes the Event to the readers
+        return id;
+    }
+
+    /**
+     * Doubles the capacity of every column.
+     */
+    private void grow()
+    {
+        int capacity = aEvents.length * 2;
+        aEvents = Arrays.copyOf(aEvents, capacity);
+        aPrices = Arrays.copyOf(aPrices, capacity);
+        aNumTickets = Arrays.copyOf(aNumTickets, capacity);
+        aLocations = Arrays.copyOf(aLocations, capacity);
+        aPresence = Arrays.copyOf(aPresence, capacity);
+    }
+
+    /**
+     * @return number of Events in the store.
+     */
+    public int size()
+    {
+        return aSize;
+    }
+
+    /**
+     * @return the Event with id pId.
+     * @pre 0 <= pId < size()
+     */
+    public Event getEvent(int pId)
+    {
+        assert pId >= 0 && pId < aSize;
+        return aEvents[pId];
+    }
+
+    /**
+     * @return Index of the Events of the store by Location.
+     */
+    public Index_ByLocation getLocationIndex()
+    {
+        return aLocationIndex;
+    }
+
+    /**
+     * @return Index of the Events of the store by Ticket Price.
+     */
+    public Index_ByPrice getPriceIndex()
+    {
+        return aPriceIndex;
+    }
+
+    /**
+     * @return Calendar index of the Events of the store by Date.
+     */
+    public Index_ByDate getDateIndex()
+    {
+        return aDateIndex;
+    }
+
+    /**
+     * @return Index of the Concerts and Galas of the store by VIP invited.
+     */
+    public Index_ByVIP getVIPIndex()
+    {
+        return aVIPIndex;
+    }
+
+    /**
+     * @return TRUE if the Event with id pId is a Concrete Event, FALSE for a 'ComingSoon' Event.
+     * @pre 0 <= pId < size()
+     */
+    public boolean isConcrete(int pId)
+    {
+        assert pId >= 0 && pId < aSize;
+        return aPresence[pId] == CONCRETE;
+    }
+
+    /**
+     * @return TRUE if the Event with id pId has a Ticket Price (even if it is a 'ComingSoon' Event).
+     * @pre 0 <= pId < size()
+     */
+    public boolean hasPrice(int pId)
+    {
+        assert pId >= 0 && pId < aSize;
+        return (aPresence[pId] & HAS_PRICE) != 0;
+    }
+
+    /**
+     * @return The Location of the Event with id pId, or null for 'ComingSoon' Event.
+     * @pre 0 <= pId < size()
+     */
+    public Location getLocation(int pId)
+    {
+        assert pId >= 0 && pId < aSize;
+        byte ordinal = aLocations[pId];
+        return ordinal == NO_LOCATION ? null : LOCATIONS[ordinal];
+    }
+
+    /**
+     * @return The Price per ticket of the Event with id pId (0.0 if unknown).
+     * @pre 0 <= pId < size()
+     */
+    public double getPrice(int pId)
+    {
+        assert pId >= 0 && pId < aSize;
+        return aPrices[pId];
+    }
+
+    /**
+     * @return The total number of Tickets of the Event with id pId (0 if unknown).
+     * @pre 0 <= pId < size()
+     */
+    public int getNumTickets(int pId)
+    {
+        assert pId >= 0 && pId < aSize;
+        return aNumTickets[pId];
+    }
+
+    /**
+     * Counts the Concrete Events whose price lies in [pLowerBound, pUpperBound] by scanning the price column.
+     * @param pLowerBound
+     *              lowest price of the range
+     * @param pUpperBound
+     *              highest price of the range
+     * @return number of matching Events
+     */
+    public int countInPriceRange(double pLowerBound, double pUpperBound)
+    {
+        int size = aSize;
+        byte[] presence = aPresence;
+        double[] prices = aPrices;
+        int count = 0;
+        for (int id = 0; id < size; id++) {
+            if (presence[id] != CONCRETE) continue;
+            double price = prices[id];
+            if (price >= pLowerBound && price <= pUpperBound) count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return unmodifiable snapshot of the list of all Events in order of creation : a view of the Events column
+     * up to the current size, w/o copying (the store is append-only, so the view never changes).
+     */
+    public List<Event> getEvents()
+    {
+        int size = aSize;
+        return Collections.unmodifiableList(Arrays.asList(aEvents).subList(0, size));
+    }
+}
@@ -1,7 +1,9 @@
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Optional;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Creates a Festival Event, a type of event in which multiple events can happen over a period of time
@@ -16,6 +18,35 @@ public class Festival extends AbstractEvent
 {
     final private List<Event> aEvents; // IMMUTABLE LIST of events in a Festival (can not be changed!) = REQUIREMENT (5)
 
+    // N.B. Location, Ticket Price and number of Tickets are computed once by createFestival (the list of events cannot change).
+    // The profit depends on the percentages of the events so it is cached, and the cache is invalid when :
+    //      (1) the table of Profit Percentages has changed since (version number differs), OR
+    //      (2) the percentage of an event of the Festival (or of a nested Festival) has been overridden (see invalidateProfit).
+    // Each invalidation increments a stamp, and a cache computed before the last invalidation is ignored, so a profit
+    // computed concurrently w/ an override is never used once the override is done.
+    // N.B. Only a Festival registered on its events (= part of a hosted Event, see register) is invalidated, so the
+    // profit of a Festival that is not registered is never cached.
+    private volatile ProfitCache aProfitCache; // null when invalid
+    final private AtomicLong aInvalidations = new AtomicLong();
+    private volatile boolean aRegistered = false; // TRUE once registered on its events
+
+    /**
+     * Immutable cached profit (published as a whole, so concurrent readers never see a partial cache).
+     */
+    private static final class ProfitCache
+    {
+        final private double aProfit;
+        final private long aVersion; // version of the table of Profit Percentages used to compute the profit
+        final private long aStamp; // number of invalidations of the Festival before the profit was computed
+
+        ProfitCache(double pProfit, long pVersion, long pStamp)
+        {
+            this.aProfit = pProfit;
+            this.aVersion = pVersion;
+            this.aStamp = pStamp;
+        }
+    }
+
     /**
      * Creates and returns a new Festival Event with the following properties :
      * @param pName
@@ -27,6 +58,8 @@ public class Festival extends AbstractEvent
     public static Event createFestival(String pName, List<Event> pEvents)
     {
         assert pName != null && pEvents != null && !pEvents.isEmpty();
+        FlightRecorderEvents.FestivalCreation recording = new FlightRecorderEvents.FestivalCreation();
+        recording.begin();
 
         LocalDate festival_Date = null;
         Location festival_Location = null;
@@ -61,7 +94,9 @@ public class Festival extends AbstractEvent
                 if (festival_NumTickets > capacity.get()) festival_NumTickets=capacity.get();
             }
         }
-        return new Festival(pName,festival_Date,Optional.of(festival_Location),Optional.of(festival_TicketPrice),Optional.of(festival_NumTickets), pEvents);
+        Festival festival = new Festival(pName,festival_Date,Optional.of(festival_Location),Optional.of(festival_TicketPrice),Optional.of(festival_NumTickets), pEvents);
+        recording.record(pEvents.size());
+        return festival;
     }
 
     /**
@@ -83,12 +118,50 @@ public class Festival extends AbstractEvent
     private Festival(String pName, LocalDate pDate, Optional<Location> pLocation, Optional<Double> pTicketPrice, Optional<Integer> pNumTickets, List<Event> pEvents) {
         super(pName,pDate,pLocation,pTicketPrice,pNumTickets);
         assert pEvents != null;
-        this.aEvents = pEvents;
+        this.aEvents = Collections.unmodifiableList(new ArrayList<>(pEvents)); // copied once, then shared by the getter
+        for (Event event : pEvents) {
+            // Use the same table of percentages as the events, so the cached profit follows its version
+            if (event instanceof AbstractEvent && !isAttached() && ((AbstractEvent) event).isAttached()) {
+                attach(((AbstractEvent) event).getPercentages());
+            }
+        }
     }
 
+    /**
+     * Registers the Festival on its events (and its nested Festivals on theirs), so an override of their percentage
+     * invalidates its cached profit. Only done once the Festival is part of a hosted Event (see Command_AddEvent.host) :
+     * a Festival rejected as a duplicate is never referenced by its events, and can be garbage-collected.
+     * No effect if the Festival is registered already.
+     */
+    synchronized void register() {
+        if (aRegistered) return;
+        for (Event event : aEvents) {
+            if (event instanceof AbstractEvent) ((AbstractEvent) event).addFestival(this);
+            if (event instanceof Festival) ((Festival) event).register();
+        }
+        aRegistered = true;
+    }
+
+    /**
+     * @return the profit of the Festival = sum of the profit of all its events (cached until invalidated).
+     */
     @Override
     public Double getProfit(){
-        Double profit = 0.0;
+        if (!aRegistered) return getUncachedProfit();
+        long version = getPercentagesVersion();
+        long stamp = aInvalidations.get();
+        ProfitCache cache = aProfitCache;
+        if (cache != null && cache.aVersion == version && cache.aStamp == stamp) return cache.aProfit;
+        double profit = getUncachedProfit();
+        aProfitCache = new ProfitCache(profit, version, stamp);
+        return profit;
+    }
+
+    /**
+     * @return the profit of the Festival = sum of the profit of all its events (not cached).
+     */
+    private double getUncachedProfit() {
+        double profit = 0.0;
         for (Event event : aEvents) {
             profit += event.getProfit();
         }
@@ -96,9 +169,32 @@ public class Festival extends AbstractEvent
     }
 
     /**
-     * @return Festival's list of Events
+     * @return the profit of the Festival as of a pinned Snapshot of the Profit Percentages (not cached : the
+     * FilteredResult pinned to the Snapshot keeps its own expected profit).
+     */
+    @Override
+    double getProfit(ProfitPercentages.Snapshot pSnapshot) {
+        double profit = 0.0;
+        for (Event event : aEvents) {
+            profit += pSnapshot.getProfit(event);
+        }
+        return profit;
+    }
+
+    /**
+     * Invalidates the cached profit of the Festival and of all the Festivals it is part of (directly or not).
+     */
+    void invalidateProfit() {
+        // N.B. Always goes up to the outermost Festivals : a Festival w/o cache may be computing its profit concurrently
+        aInvalidations.incrementAndGet();
+        aProfitCache = null;
+        for (Festival festival : getFestivals()) festival.invalidateProfit();
+    }
+
+    /**
+     * @return Festival's list of Events (unmodifiable view, w/o copying : the list of events cannot change)
      */
     public List<Event> getFestivalEventsList() {
-        return new ArrayList<>(aEvents);
+        return aEvents;
     }
 }
@@ -1,3 +1,5 @@
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 /*
@@ -5,5 +7,33 @@ import java.util.List;
  */
 public interface Filter {
     boolean test(Event event);
-    List<Event> filtering(List<Event> aList);
+
+    // Filters a list of Events in a single pass : returns the Events that match the filter (see test), in order.
+    // Throws IllegalArgumentException if the list is null or empty.
+    default List<Event> filtering(List<Event> aList) {
+        if (aList == null || aList.isEmpty()) throw new IllegalArgumentException();
+        List<Event> filteredList = new ArrayList<>();
+        for (Event event : aList) {
+            if (test(event)) { // event CANNOT BE NULL
+                filteredList.add(event);
+            }
+        }
+        return filteredList;
+    }
+
+    // TRUE if the filter can be answered by an index of the store (see lookup).
+    default boolean hasIndex() {
+        return false;
+    }
+
+    // Index-backed access path : returns the bitmap of the ids of all the Events of the store that match the filter,
+    // or null if the filter has no index (the filter is then tested on each Event).
+    default BitSet lookup(EventStore pStore) {
+        return null;
+    }
+
+    // Estimated number of Events of the store that match the filter (used to order the filters, most selective first).
+    default int estimate(EventStore pStore) {
+        return pStore.size();
+    }
 }
@@ -0,0 +1,73 @@
+import java.time.LocalDate;
+import java.util.BitSet;
+
+/**
+ * Creates a Filter by Date Range and filters out a List of Event based on the filter created / criteria to match.
+ */
+public class Filter_ByDateRange implements Filter
+{
+    private LocalDate aFrom; // first date selected
+    private LocalDate aTo; // last date selected
+
+    /**
+     * Creates a Filter corresponding to a Date Range to match (both dates included).
+     * @param pFrom
+     *              First Date of the date range of the filter being created.
+     * @param pTo
+     *              Last Date of the date range of the filter being created.
+     * @pre pFrom != null && pTo != null && !pTo.isBefore(pFrom)
+     */
+    public Filter_ByDateRange(LocalDate pFrom, LocalDate pTo) {
+        if (pFrom == null || pTo == null || pTo.isBefore(pFrom)) throw new IllegalArgumentException();
+        this.aFrom = pFrom;
+        this.aTo = pTo;
+    }
+
+    /**
+     * Test if an Event match the filtering criteria.
+     * @param event
+     *          Event to compare.
+     * @pre event != null
+     * @return TRUE if event match AND FALSE otherwise.
+     */
+    @Override
+    public boolean test(Event event) {
+        assert event != null;
+        LocalDate date = event.getDate(); // Every EVENT have a Date ('ComingSoon' Events too)
+        return !date.isBefore(aFrom) && !date.isAfter(aTo);
+    }
+
+    @Override
+    public boolean hasIndex() {
+        return true;
+    }
+
+    /**
+     * Looks up all the Events of a store in the Date Range to match using its calendar index.
+     * @param pStore
+     *          Store of the Events to filter.
+     * @return bitmap of the ids of all the Events that match.
+     * @pre pStore != null
+     */
+    @Override
+    public BitSet lookup(EventStore pStore) {
+        assert pStore != null;
+        return pStore.getDateIndex().lookup(aFrom, aTo, pStore.size());
+    }
+
+    /**
+     * Estimates the number of Events of a store that match the filter : counted exactly by the calendar index
+     * (one step per Date of the range w/ Events).
+     * @pre pStore != null
+     */
+    @Override
+    public int estimate(EventStore pStore) {
+        assert pStore != null;
+        return pStore.getDateIndex().count(aFrom, aTo);
+    }
+
+    @Override
+    public String toString() {
+        return "Date in ["+aFrom+", "+aTo+"]";
+    }
+}
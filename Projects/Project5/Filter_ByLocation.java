@@ -1,5 +1,4 @@
-import java.util.ArrayList;
-import java.util.List;
+import java.util.BitSet;
 
 /**
  * Creates a Filter by Location and filters out a List of Event based on the filter created / criteria to match.
@@ -19,25 +18,6 @@ public class Filter_ByLocation implements Filter
         this.aLocation = pLocation;
     }
 
-    /**
-     * Main Method used to filter a list of Events using the Object filter that
-     * is associated with a criteria to meet.
-     * @return list of events that have matched the filtering criteria
-     * @pre listToFilter != null && !listToFilter.isEmpty()
-     */
-    @Override
-    public List<Event> filtering(List<Event> listToFilter)
-    {
-        if (listToFilter == null || listToFilter.isEmpty()) throw new IllegalArgumentException();
-        List<Event> filteredList = new ArrayList<>();
-        for (Event event: listToFilter) {
-            if (test(event)) { // event CANNOT BE NULL
-                filteredList.add(event);
-            }
-        }
-        return filteredList;
-    }
-
     /**
      * Tests if an Event match the filtering criteria.
      * @param event
@@ -53,4 +33,37 @@ public class Filter_ByLocation implements Filter
         }
         return false;
     }
+
+    @Override
+    public boolean hasIndex() {
+        return true;
+    }
+
+    /**
+     * Looks up all the Events of a store at the Location to match using its Location index.
+     * @param pStore
+     *          Store of the Events to filter.
+     * @return bitmap of the ids of all the Events that match.
+     * @pre pStore != null
+     */
+    @Override
+    public BitSet lookup(EventStore pStore) {
+        assert pStore != null;
+        return pStore.getLocationIndex().lookup(aLocation, pStore.size());
+    }
+
+    /**
+     * Counts the Events of a store that match the filter using its Location index.
+     * @pre pStore != null
+     */
+    @Override
+    public int estimate(EventStore pStore) {
+        assert pStore != null;
+        return pStore.getLocationIndex().count(aLocation);
+    }
+
+    @Override
+    public String toString() {
+        return "Location = "+aLocation;
+    }
 }
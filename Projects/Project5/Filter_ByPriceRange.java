@@ -1,5 +1,5 @@
-import java.util.ArrayList;
-import java.util.List;
+import java.util.BitSet;
+import java.util.Optional;
 
 /**
  * Creates a Filter by Price Range and filters out a List of Event based on the filter created / criteria to match.
@@ -22,22 +22,6 @@ public class Filter_ByPriceRange implements Filter
         this.aUpperBound = pUpperBound;
     }
 
-    /**
-     * @return list of events that have matched the filtering criteria
-     */
-    @Override
-    public List<Event> filtering(List<Event> listToFilter)
-    {
-        if (listToFilter == null || listToFilter.isEmpty()) throw new IllegalArgumentException();
-        List<Event> filteredList = new ArrayList<>();
-        for (Event event: listToFilter) {
-            if (test(event)) {
-                filteredList.add(event);
-            }
-        }
-        return filteredList;
-    }
-
     /**
      * Test if an Event match the filtering criteria.
      * @param event
@@ -48,9 +32,45 @@ public class Filter_ByPriceRange implements Filter
     @Override
     public boolean test(Event event) {
         assert event != null;
-        if (event.getLocation().isPresent()) {
-            if (event.getPrice().get() >= aLowerBound && event.getPrice().get() <= aUpperBound) return true;
+        Optional<Double> price = event.getPrice();
+        if (price.isPresent()) { // 'ComingSoon' Events never match
+            double value = price.get();
+            if (value >= aLowerBound && value <= aUpperBound) return true;
         }
         return false;
     }
+
+    @Override
+    public boolean hasIndex() {
+        return true;
+    }
+
+    /**
+     * Looks up all the Events of a store in the Price Range to match using its sorted Price index.
+     * @param pStore
+     *          Store of the Events to filter.
+     * @return bitmap of the ids of all the Events that match.
+     * @pre pStore != null
+     */
+    @Override
+    public BitSet lookup(EventStore pStore) {
+        assert pStore != null;
+        return pStore.getPriceIndex().lookup(aLowerBound, aUpperBound);
+    }
+
+    /**
+     * Counts the Events of a store that match the filter using its sorted Price index (exact, w/o building the
+     * bitmap of the look-up).
+     * @pre pStore != null
+     */
+    @Override
+    public int estimate(EventStore pStore) {
+        assert pStore != null;
+        return pStore.getPriceIndex().count(aLowerBound, aUpperBound);
+    }
+
+    @Override
+    public String toString() {
+        return "Price in ["+aLowerBound+", "+aUpperBound+"]";
+    }
 }
@@ -1,41 +1,347 @@
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Filtered Result contains a list of events that have been filtered using a specific FilterCommand.
  * For now, Bob is allowed to filter events based on either a price range of the event,
  * or at a particular location.
+ *
+ * A FilteredResult may be pinned to a version of the catalog (number of Events of the store) and to a Snapshot of
+ * the Profit Percentages : its Events and its expected profit then never change, even if Events are hosted or
+ * percentages are changed afterwards, and reading them takes no lock. W/o a Snapshot, the expected profit follows
+ * the current percentages.
+ *
+ * Top-K queries and pages of the matches in the order of a Ranking (see top / page) stream the matches through a
+ * bounded heap instead : the list of all the matches is never materialized.
  */
 public class FilteredResult {
 
     private List<Event> aFilteredEvents; // list of all the Events that have matched the filtering criteria
+    private List<Filter> aFilters; // filters the Events have matched
+    private QueryPlan aPlan; // plan used to filter the Events of a store (null when filtering a list)
+    private ForkJoinPool aPool; // pool to filter and compute the profit in parallel (large catalogs only), OR null
+    private ProfitPercentages.Snapshot aSnapshot; // pinned percentages (null to read the current ones)
+    private volatile Double aExpectedProfit; // expected profit as of aSnapshot (null until computed)
 
     /**
-     * Creates a list of events that have been filtered using the list of filters one-by-one.
+     * Creates a list of events that have been filtered using all the filters in a single pass :
+     * each Event is tested against the filters in order and rejected as soon as one filter does not match,
+     * so no intermediate list is created.
      * @param allEvents
-     *              List of Events to filter.
+     *              List of Events to filter (may be empty).
      * @param allFilters
      *              List of Filters that will be used for the filtering.
      */
     public FilteredResult(List<Event> allEvents, List<Filter> allFilters) {
-        if (allEvents == null || allEvents.isEmpty() || allFilters == null || allFilters.isEmpty()) throw new IllegalArgumentException();
-        this.aFilteredEvents = allEvents;
-        for (Filter filter : allFilters) {
-            aFilteredEvents = filter.filtering(aFilteredEvents);
+        if (allEvents == null || allFilters == null || allFilters.isEmpty()) throw new IllegalArgumentException();
+        FlightRecorderEvents.Filtering recording = new FlightRecorderEvents.Filtering();
+        recording.begin();
+        Filter[] filters = allFilters.toArray(new Filter[0]);
+        this.aFilters = new ArrayList<>(allFilters);
+        this.aFilteredEvents = new ArrayList<>();
+        for (Event event : allEvents) {
+            if (matches(event, filters)) aFilteredEvents.add(event);
         }
+        recording.record(aFilters, allEvents.size(), aFilteredEvents.size(), false);
     }
 
     /**
-     * @return the expected profit of the filtered list.
+     * Creates a list of events by filtering all the Events of a store, following the plan chosen by the
+     * QueryPlanner : the most selective filters backed by an index of the store (e.g. Filter_ByLocation) are
+     * applied first as bitmap look-ups, then the remaining filters are tested in a single pass on the candidate
+     * Events only (most selective first).
+     * @param pStore
+     *              Store of the Events to filter.
+     * @param allFilters
+     *              List of Filters that will be used for the filtering.
+     */
+    public FilteredResult(EventStore pStore, List<Filter> allFilters) {
+        this(pStore, allFilters, null);
+    }
+
+    /**
+     * Creates a list of events by filtering all the Events of a store (see FilteredResult(EventStore, List)),
+     * sequentially or in parallel.
+     * @param pStore
+     *              Store of the Events to filter.
+     * @param allFilters
+     *              List of Filters that will be used for the filtering.
+     * @param pPool
+     *              ForkJoinPool to filter and compute the expected profit on (catalogs smaller than
+     *              ParallelExecution.SEQUENTIAL_THRESHOLD are still processed sequentially), OR null (sequential).
+     */
+    public FilteredResult(EventStore pStore, List<Filter> allFilters, ForkJoinPool pPool) {
+        this(pStore, pStore == null ? 0 : pStore.size(), null, allFilters, pPool);
+    }
+
+    /**
+     * Creates a list of events by filtering the Events of a pinned version of a store (see
+     * FilteredResult(EventStore, List, ForkJoinPool)) : the result is consistent w/ that version and w/ a Snapshot of the
+     * Profit Percentages, and does not change afterwards.
+     * @param pStore
+     *              Store of the Events to filter.
+     * @param pNumEvents
+     *              number of Events of the store in the pinned version (Events added afterwards are ignored).
+     * @param pSnapshot
+     *              pinned Profit Percentages the expected profit is computed with (null to follow the current ones).
+     * @param allFilters
+     *              List of Filters that will be used for the filtering.
+     * @param pPool
+     *              ForkJoinPool to filter and compute the expected profit on, OR null (sequential).
+     */
+    public FilteredResult(EventStore pStore, int pNumEvents, ProfitPercentages.Snapshot pSnapshot, List<Filter> allFilters, ForkJoinPool pPool) {
+        if (pStore == null || allFilters == null || allFilters.isEmpty() || pNumEvents < 0 || pNumEvents > pStore.size()) throw new IllegalArgumentException();
+        FlightRecorderEvents.Filtering recording = new FlightRecorderEvents.Filtering();
+        recording.begin();
+        this.aPool = pPool;
+        this.aSnapshot = pSnapshot;
+        this.aFilters = new ArrayList<>(allFilters);
+        this.aPlan = QueryPlanner.plan(pStore, allFilters, pNumEvents);
+        this.aFilteredEvents = aPlan.execute(pPool);
+        recording.record(aFilters, pNumEvents, aFilteredEvents.size(), pPool != null);
+    }
+
+    /**
+     * Lazy (streaming) version of the filtering : returns the Events that match all the filters
+     * one at a time while iterating, without materializing the list of matches.
+     * @param allEvents
+     *              List of Events to filter (may be empty).
+     * @param allFilters
+     *              List of Filters that will be used for the filtering.
+     * @return Iterable over the matching Events, in the order of allEvents.
+     */
+    public static Iterable<Event> lazy(List<Event> allEvents, List<Filter> allFilters) {
+        if (allEvents == null || allFilters == null || allFilters.isEmpty()) throw new IllegalArgumentException();
+        Filter[] filters = allFilters.toArray(new Filter[0]);
+        return () -> new MatchIterator(allEvents.iterator(), filters);
+    }
+
+    /**
+     * Lazy (streaming) version of the filtering of all the Events of a store, following the plan chosen
+     * by the QueryPlanner (see FilteredResult(EventStore, List)).
+     * @param pStore
+     *              Store of the Events to filter.
+     * @param allFilters
+     *              List of Filters that will be used for the filtering.
+     * @return Iterable over the matching Events, in order of creation.
+     */
+    public static Iterable<Event> lazy(EventStore pStore, List<Filter> allFilters) {
+        if (pStore == null || allFilters == null || allFilters.isEmpty()) throw new IllegalArgumentException();
+        QueryPlan plan = QueryPlanner.plan(pStore, allFilters);
+        BitSet candidates = plan.candidates();
+        Filter[] filters = plan.getFilters();
+        return () -> new MatchIterator(candidates.stream().mapToObj(pStore::getEvent).iterator(), filters);
+    }
+
+    /**
+     * Top-K query : the pK first Events of a pinned version of a store that match all the filters, in the order of a
+     * Ranking. The matching Events are streamed through a heap of the pK best ones (O(n log k), no sort and no list
+     * of all the matches).
+     * @param pStore
+     *              Store of the Events to filter.
+     * @param pNumEvents
+     *              number of Events of the store in the pinned version (Events added afterwards are ignored).
+     * @param allFilters
+     *              List of Filters that will be used for the filtering (may be empty : all the Events match).
+     * @param pRanking
+     *              order of the Events.
+     * @param pK
+     *              maximum number of Events returned.
+     * @return the (at most) pK first matching Events, in order
+     * @pre pStore != null && allFilters != null && pRanking != null && pK > 0 && 0 <= pNumEvents <= pStore.size()
+     */
+    public static List<Event> top(EventStore pStore, int pNumEvents, List<Filter> allFilters, Ranking pRanking, int pK) {
+        if (pStore == null || allFilters == null || pRanking == null || pK <= 0 || pNumEvents < 0 || pNumEvents > pStore.size()) throw new IllegalArgumentException();
+        List<Ranked> ranked = select(pStore, new ResultPage.Cursor(allFilters, pNumEvents, pRanking, Double.NaN, -1), pK);
+        List<Event> events = new ArrayList<>(ranked.size());
+        for (Ranked event : ranked) events.add(event.aEvent);
+        return events;
+    }
+
+    /**
+     * First page of the Events of a pinned version of a store that match all the filters, in the order of a Ranking
+     * (see top).
+     * @param pSize
+     *              maximum number of Events of the page.
+     * @return the page, w/ the Cursor of the next page
+     * @pre pStore != null && allFilters != null && pRanking != null && pSize > 0 && 0 <= pNumEvents <= pStore.size()
+     */
+    public static ResultPage page(EventStore pStore, int pNumEvents, List<Filter> allFilters, Ranking pRanking, int pSize) {
+        if (pStore == null || allFilters == null || pRanking == null || pNumEvents < 0 || pNumEvents > pStore.size()) throw new IllegalArgumentException();
+        return page(pStore, new ResultPage.Cursor(new ArrayList<>(allFilters), pNumEvents, pRanking, Double.NaN, -1), pSize);
+    }
+
+    /**
+     * Page of the Events after a Cursor : the pSize next matching Events in the order of its Ranking, on the pinned
+     * version of the Cursor (each page streams the matches through a heap of pSize + 1 Events, see top).
+     * @param pSize
+     *              maximum number of Events of the page.
+     * @return the page, w/ the Cursor of the next page
+     * @pre pStore != null && pCursor != null && pCursor comes from a page of pStore && pSize > 0
+     */
+    public static ResultPage page(EventStore pStore, ResultPage.Cursor pCursor, int pSize) {
+        if (pStore == null || pCursor == null || pSize <= 0 || pCursor.getNumEvents() > pStore.size()) throw new IllegalArgumentException();
+        List<Ranked> ranked = select(pStore, pCursor, pSize + 1); // N.B. one more Event tells if there is a next page
+        List<Event> events = new ArrayList<>(Math.min(pSize, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < pSize; i++) events.add(ranked.get(i).aEvent);
+        ResultPage.Cursor next = null;
+        if (ranked.size() > pSize) {
+            Ranked last = ranked.get(pSize - 1);
+            next = new ResultPage.Cursor(pCursor.getFilters(), pCursor.getNumEvents(), pCursor.getRanking(), last.aKey, last.aId);
+        }
+        return new ResultPage(events, next);
+    }
+
+    /**
+     * Matching Event w/ its key and id.
+     */
+    private static final class Ranked {
+        final private Event aEvent;
+        final private double aKey;
+        final private int aId;
+
+        Ranked(Event pEvent, double pKey, int pId) {
+            this.aEvent = pEvent;
+            this.aKey = pKey;
+            this.aId = pId;
+        }
+    }
+
+    /**
+     * Selects the pK first Events after a Cursor that match its filters, following the plan chosen by the
+     * QueryPlanner : the candidates are tested one at a time and kept in a bounded heap whose head is the last of
+     * the pK best Events so far (replaced only by a better Event).
+     * @return the (at most) pK first Events after the Cursor, in order
+     */
+    private static List<Ranked> select(EventStore pStore, ResultPage.Cursor pCursor, int pK) {
+        Ranking ranking = pCursor.getRanking();
+        int numEvents = pCursor.getNumEvents();
+        QueryPlan plan = QueryPlanner.plan(pStore, pCursor.getFilters(), numEvents);
+        BitSet candidates = plan.candidates();
+        Filter[] filters = plan.getFilters();
+        Comparator<Ranked> order = (a, b) -> ranking.compare(a.aKey, a.aId, b.aKey, b.aId);
+        PriorityQueue<Ranked> heap = new PriorityQueue<>(Math.min(pK, 1024), order.reversed());
+        for (int id = candidates.nextSetBit(0); id >= 0 && id < numEvents; id = candidates.nextSetBit(id + 1)) {
+            Event event = pStore.getEvent(id);
+            if (!matches(event, filters)) continue;
+            double key = ranking.getKey(pStore, id);
+            if (!pCursor.isAfter(key, id)) continue; // on a previous page
+            if (heap.size() < pK) {
+                heap.add(new Ranked(event, key, id));
+            } else if (ranking.compare(key, id, heap.peek().aKey, heap.peek().aId) < 0) {
+                heap.poll();
+                heap.add(new Ranked(event, key, id));
+            }
+        }
+        List<Ranked> ranked = new ArrayList<>(heap);
+        ranked.sort(order);
+        return ranked;
+    }
+
+    /**
+     * Iterator over the Events of an underlying iterator that match all filters, computed one at a time.
+     */
+    private static final class MatchIterator implements Iterator<Event> {
+        private final Iterator<Event> aEvents;
+        private final Filter[] aFilters;
+        private Event aNext;
+
+        MatchIterator(Iterator<Event> pEvents, Filter[] pFilters) {
+            this.aEvents = pEvents;
+            this.aFilters = pFilters;
+            this.aNext = advance();
+        }
+
+        private Event advance() {
+            while (aEvents.hasNext()) {
+                Event event = aEvents.next();
+                if (matches(event, aFilters)) return event;
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return aNext != null;
+        }
+
+        @Override
+        public Event next() {
+            if (aNext == null) throw new NoSuchElementException();
+            Event event = aNext;
+            aNext = advance();
+            return event;
+        }
+    }
+
+    /**
+     * Tests an Event against all filters, stopping at the first one that does not match.
+     * @pre pEvent != null && pFilters != null
+     */
+    private static boolean matches(Event pEvent, Filter[] pFilters) {
+        assert pEvent != null && pFilters != null;
+        for (Filter filter : pFilters) {
+            if (!filter.test(pEvent)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the expected profit of the filtered list (as of the pinned Snapshot of the Profit Percentages, if any).
      * @pre aFilteredEvents != null && !aFilteredEvents.isEmpty()
      */
     public Double getExpectedProfit() {
-        Double TotalProfit = 0.0;
+        if (aSnapshot != null) {
+            // The pinned version never changes : computed once
+            Double expectedProfit = aExpectedProfit;
+            if (expectedProfit == null) {
+                double totalProfit = 0.0;
+                if (aPool != null) {
+                    totalProfit = ParallelExecution.sumProfit(aPool, aFilteredEvents, aSnapshot);
+                } else {
+                    for (Event event : aFilteredEvents) totalProfit += aSnapshot.getProfit(event);
+                }
+                expectedProfit = totalProfit/100;
+                aExpectedProfit = expectedProfit;
+            }
+            return expectedProfit;
+        }
+        if (aPool != null) return ParallelExecution.sumProfit(aPool, aFilteredEvents)/100;
+        double totalProfit = 0.0;
 
         for (Event event : aFilteredEvents) {
-            TotalProfit+=event.getProfit();
+            totalProfit+=event.getProfit();
         }
-        return TotalProfit/100;
+        return totalProfit/100;
+    }
+
+    /**
+     * @return (unmodifiable) filters the Events have matched.
+     */
+    public List<Filter> getFilters() {
+        return Collections.unmodifiableList(aFilters);
+    }
+
+    /**
+     * @return the Snapshot of the Profit Percentages the result is pinned to (null if it follows the current ones).
+     */
+    public ProfitPercentages.Snapshot getSnapshot() {
+        return aSnapshot;
+    }
+
+    /**
+     * @return the plan used to filter the Events (w/ estimated and actual number of rows of each step).
+     */
+    public String explain() {
+        if (aPlan == null) return "No Query Plan : Events were filtered one-by-one from a list.\n";
+        return aPlan.explain();
     }
 
     /**
@@ -0,0 +1,154 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Custom JDK Flight Recorder events of the Event Management software, so a recording shows which operations the GC
+ * pauses and the CPU time belong to (category "EventBrite" in JDK Mission Control). Usage :
+ *      java -XX:StartFlightRecording=filename=events.jfr,settings=profile ...
+ * Every event is timed by begin() / end() around the operation, and its fields are only set and committed if
+ * shouldCommit() (= JFR is recording, the event is enabled and its duration is over its threshold) : when JFR is not
+ * recording, an event costs two checks (and no allocation once the JIT has removed it).
+ * N.B. jdk.jfr.Event is always written w/ its package, so it is not mistaken for the Event of EventBrite.
+ */
+public final class FlightRecorderEvents
+{
+    // Outcomes of an Ingest
+    public static final String ACCEPTED = "ACCEPTED";
+    public static final String DUPLICATE = "DUPLICATE";
+    public static final String INVALID = "INVALID";
+
+    private FlightRecorderEvents() {}
+
+    /**
+     * Event added to EventBrite (add*Event / addFestival), w/ its outcome : ACCEPTED, DUPLICATE (conflicts w/ an
+     * Event at the same Date and Location) or INVALID.
+     */
+    @Name("eventbrite.Ingest")
+    @Label("Ingest")
+    @Category("EventBrite")
+    @Description("Event added to EventBrite")
+    @StackTrace(false)
+    @Threshold("1 ms")
+    public static final class Ingest extends jdk.jfr.Event
+    {
+        @Label("Operation")
+        String operation;
+
+        @Label("Outcome")
+        String outcome;
+
+        /**
+         * Ends the event and commits it (if it should be).
+         */
+        public void record(String pOperation, String pOutcome)
+        {
+            end();
+            if (!shouldCommit()) return;
+            operation = pOperation;
+            outcome = pOutcome;
+            commit();
+        }
+    }
+
+    /**
+     * Construction of a FilteredResult : filters applied, number of Events filtered and number of matches.
+     */
+    @Name("eventbrite.Filtering")
+    @Label("Filtering")
+    @Category("EventBrite")
+    @Description("Construction of a FilteredResult")
+    @StackTrace(false)
+    @Threshold("1 ms")
+    public static final class Filtering extends jdk.jfr.Event
+    {
+        @Label("Filters")
+        String filters;
+
+        @Label("Input Size")
+        int inputSize;
+
+        @Label("Output Size")
+        int outputSize;
+
+        @Label("Parallel")
+        boolean parallel;
+
+        /**
+         * Ends the event and commits it (if it should be : the list of filters is only printed then).
+         */
+        public void record(Object pFilters, int pInputSize, int pOutputSize, boolean pParallel)
+        {
+            end();
+            if (!shouldCommit()) return;
+            filters = String.valueOf(pFilters);
+            inputSize = pInputSize;
+            outputSize = pOutputSize;
+            parallel = pParallel;
+            commit();
+        }
+    }
+
+    /**
+     * New Profit Percentage of a type of Event (setProfit*) : the Events touched are the hosted Events of that type.
+     */
+    @Name("eventbrite.Repricing")
+    @Label("Repricing")
+    @Category("EventBrite")
+    @Description("New Profit Percentage of a type of Event")
+    @StackTrace(false)
+    @Threshold("0 ms") // rare : always recorded
+    public static final class Repricing extends jdk.jfr.Event
+    {
+        @Label("Type")
+        Class<?> type;
+
+        @Label("Percentage")
+        int percentage;
+
+        @Label("Events Touched")
+        long eventsTouched;
+
+        /**
+         * Ends the event and commits it (if it should be).
+         */
+        public void record(Class<?> pType, int pPercentage, long pEventsTouched)
+        {
+            end();
+            if (!shouldCommit()) return;
+            type = pType;
+            percentage = pPercentage;
+            eventsTouched = pEventsTouched;
+            commit();
+        }
+    }
+
+    /**
+     * Creation of a Festival (Festival.createFestival) and its number of Events.
+     */
+    @Name("eventbrite.FestivalCreation")
+    @Label("Festival Creation")
+    @Category("EventBrite")
+    @Description("Creation of a Festival")
+    @StackTrace(false)
+    @Threshold("0 ms") // rare : always recorded
+    public static final class FestivalCreation extends jdk.jfr.Event
+    {
+        @Label("Member Count")
+        int memberCount;
+
+        /**
+         * Ends the event and commits it (if it should be).
+         */
+        public void record(int pMemberCount)
+        {
+            end();
+            if (!shouldCommit()) return;
+            memberCount = pMemberCount;
+            commit();
+        }
+    }
+}
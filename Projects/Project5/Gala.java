@@ -1,5 +1,4 @@
 import java.time.LocalDate;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -9,7 +8,7 @@ import java.util.Optional;
  */
 public class Gala extends AbstractEvent
 {
-    private List<String> aVIPs; // list of VIPs for the party
+    final private GuestList aVIPs; // IMMUTABLE set of VIPs for the party (shared, see VIPRegistry)
 
     /**
      * Creates a Gala Event with the following parameters :
@@ -25,15 +24,35 @@ public class Gala extends AbstractEvent
      *              Optional Total number of Tickets for Gala (may or may NOT contain a non-null value for 'ComingSoon' Event)
      * @param pVIPs
      *              list of VIPS for the Gala
+     * @throws IllegalArgumentException if a VIP is null
      * @pre pArtist != null
      */
     protected Gala(String pName, LocalDate pDate, Optional<Location> pLocation, Optional<Double> pTicketPrice, Optional<Integer> pNumTickets, List<String> pVIPs) {
         super(pName, pDate, pLocation, pTicketPrice, pNumTickets);
         assert pVIPs != null;
-        this.aVIPs=pVIPs;
+        this.aVIPs=VIPRegistry.getInstance().guestList(pVIPs);
     }
 
+    /**
+     * @return list of VIPS of Gala (unmodifiable, in the order they were given, duplicates included)
+     */
     public List<String> getVIPs() {
-        return new ArrayList<>(aVIPs);
+        return aVIPs.getNames();
+    }
+
+    /**
+     * @return Guest list of Gala (VIPs invited, as a bitmap of their ids)
+     */
+    public GuestList getGuestList() {
+        return aVIPs;
+    }
+
+    /**
+     * @return TRUE if the VIP of name pName is invited to the Gala
+     * @pre pName != null
+     */
+    public boolean isInvited(String pName) {
+        assert pName != null;
+        return aVIPs.isInvited(pName);
     }
 }
@@ -0,0 +1,110 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable guest list of an Event : the VIPs invited, stored as their ids in the VIPRegistry, both in the order
+ * of the list of VIPs of the Event (duplicates included) and as a bitmap. Checking if a VIP is invited is a bit
+ * test, and the names are only materialized when asked for. GuestLists are created and shared by the VIPRegistry.
+ */
+public final class GuestList
+{
+    static final GuestList EMPTY = new GuestList(new int[0]);
+
+    private final int[] aOrder; // ids of the VIPs in the order of the list (never modified once created)
+    private final BitSet aIds; // ids of the VIPs invited
+    private final int aSize;
+
+    /**
+     * @param pOrder
+     *              ids of the VIPs in the order of the list of VIPs, duplicates included (owned by the GuestList)
+     * @pre pOrder != null
+     */
+    GuestList(int[] pOrder)
+    {
+        assert pOrder != null;
+        this.aOrder = pOrder;
+        this.aIds = new BitSet();
+        for (int id : pOrder) aIds.set(id);
+        this.aSize = aIds.cardinality();
+    }
+
+    /**
+     * @return TRUE if the VIP of name pName is invited.
+     * @pre pName != null
+     */
+    public boolean isInvited(String pName)
+    {
+        assert pName != null;
+        int id = VIPRegistry.getInstance().lookup(pName);
+        return id >= 0 && aIds.get(id);
+    }
+
+    /**
+     * @return TRUE if the VIP of id pId is invited.
+     * @pre pId >= 0
+     */
+    public boolean contains(int pId)
+    {
+        assert pId >= 0;
+        return aIds.get(pId);
+    }
+
+    /**
+     * @return number of (distinct) VIPs invited.
+     */
+    public int size()
+    {
+        return aSize;
+    }
+
+    /**
+     * @return TRUE if no VIP is invited.
+     */
+    public boolean isEmpty()
+    {
+        return aOrder.length == 0;
+    }
+
+    /**
+     * Calls pAction w/ the id of every VIP invited, in increasing order.
+     * @pre pAction != null
+     */
+    public void forEach(IntConsumer pAction)
+    {
+        assert pAction != null;
+        for (int id = aIds.nextSetBit(0); id >= 0; id = aIds.nextSetBit(id + 1)) pAction.accept(id);
+    }
+
+    /**
+     * @return (unmodifiable) names of the VIPs invited, in the order of the list of VIPs (duplicates included).
+     */
+    public List<String> getNames()
+    {
+        VIPRegistry registry = VIPRegistry.getInstance();
+        List<String> names = new ArrayList<>(aOrder.length);
+        for (int id : aOrder) names.add(registry.getName(id));
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * N.B. Two GuestLists are equal if they list the same VIPs in the same order (so a shared GuestList returns
+     * the names of every Event it is shared by as they were given).
+     */
+    @Override
+    public boolean equals(Object pObject)
+    {
+        if (this == pObject) return true;
+        if (!(pObject instanceof GuestList)) return false;
+        return Arrays.equals(aOrder, ((GuestList) pObject).aOrder);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Arrays.hashCode(aOrder);
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * Hold of tickets of a hosted Event during a checkout (see Command_HoldTickets) : a Reservation that is released
+ * automatically when its deadline passes unless it is confirmed (or released) before.
+ */
+public final class Hold
+{
+    final private Reservation aReservation;
+    final private long aDeadline; // time (in milliseconds of the clock of the holds) at which the Hold expires
+    TimingWheel.Timeout<Hold> aTimeout; // expiry of the Hold (guarded by the Command_HoldTickets that scheduled it)
+
+    Hold(Reservation pReservation, long pDeadline)
+    {
+        assert pReservation != null;
+        this.aReservation = pReservation;
+        this.aDeadline = pDeadline;
+    }
+
+    /**
+     * @return Reservation of the tickets held.
+     */
+    public Reservation getReservation()
+    {
+        return aReservation;
+    }
+
+    /**
+     * @return time (in milliseconds of the clock of the holds) at which the Hold expires.
+     */
+    public long getDeadline()
+    {
+        return aDeadline;
+    }
+
+    /**
+     * @return TRUE while the tickets are held (= neither confirmed, released nor expired).
+     */
+    public boolean isHeld()
+    {
+        return aReservation.getState() == Reservation.State.RESERVED;
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Report of a bulk import of Events : number of rows accepted (= Events hosted), rejected as duplicates
+ * (= an Event is already planned at the same Date and Location) and rejected as invalid, w/ the reason
+ * of the first MAX_ERRORS invalid rows.
+ */
+public class ImportReport
+{
+    private static final int MAX_ERRORS = 100; // maximum number of invalid rows described in the report
+
+    private int aAccepted = 0;
+    private int aDuplicates = 0;
+    private int aInvalid = 0;
+    private List<String> aErrors = new ArrayList<>();
+
+    void accepted()
+    {
+        aAccepted++;
+    }
+
+    void duplicate()
+    {
+        aDuplicates++;
+    }
+
+    /**
+     * Records an invalid row.
+     * @param pLine
+     *              line number of the row in the file
+     * @param pReason
+     *              reason why the row is invalid
+     */
+    void invalid(long pLine, String pReason)
+    {
+        aInvalid++;
+        if (aErrors.size() < MAX_ERRORS) aErrors.add("line "+pLine+" : "+pReason);
+    }
+
+    /**
+     * @return number of rows accepted (= Events hosted on EventBrite).
+     */
+    public int getAccepted()
+    {
+        return aAccepted;
+    }
+
+    /**
+     * @return number of rows rejected because an Event is already planned at the same Date and Location.
+     */
+    public int getDuplicates()
+    {
+        return aDuplicates;
+    }
+
+    /**
+     * @return number of rows rejected because they are invalid.
+     */
+    public int getInvalid()
+    {
+        return aInvalid;
+    }
+
+    /**
+     * @return description of the first invalid rows.
+     */
+    public List<String> getErrors()
+    {
+        return new ArrayList<>(aErrors);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Accepted: "+aAccepted+" Duplicates: "+aDuplicates+" Invalid: "+aInvalid;
+    }
+}
@@ -0,0 +1,99 @@
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Calendar index of the Events of an EventStore : a sorted map from each Date to the ids of the Events on that Date
+ * (append-only array, in increasing order), so all the Events in a range of Dates (e.g. "this weekend", "the next
+ * 30 days") are found in O(log n + k) : one search for the first Date, then the k Events of the range.
+ *
+ * Thread-safety : the index is written by the writer of the EventStore only, and read w/o locking (the map is a
+ * concurrent skip list). Like Index_ByLocation, ids are stored as id + 1 and a reader ignores the ids >= the size
+ * of the store it has read.
+ */
+public class Index_ByDate
+{
+    private static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * Ids of the Events on a Date.
+     */
+    private static final class Day
+    {
+        private volatile int[] aIds = new int[INITIAL_CAPACITY]; // (id + 1) of the Events
+        private volatile int aCount = 0; // written by the writer only
+
+        void add(int pId)
+        {
+            int[] ids = aIds;
+            if (aCount == ids.length) ids = Arrays.copyOf(ids, aCount * 2);
+            ids[aCount] = pId + 1;
+            aIds = ids;
+            aCount++;
+        }
+    }
+
+    private final ConcurrentSkipListMap<LocalDate, Day> aDays = new ConcurrentSkipListMap<>();
+
+    /**
+     * Adds an Event to the index.
+     * @param pId
+     *              id of the Event in the store
+     * @param pDate
+     *              Date of the Event
+     * @pre pId >= 0 && pDate != null && pId is greater than all the ids already in the index
+     */
+    public void add(int pId, LocalDate pDate)
+    {
+        assert pId >= 0 && pDate != null;
+        aDays.computeIfAbsent(pDate, date -> new Day()).add(pId);
+    }
+
+    /**
+     * @param pFrom
+     *              first Date of the range (inclusive)
+     * @param pTo
+     *              last Date of the range (inclusive)
+     * @param pBound
+     *              ids >= pBound are ignored (= Events added after the reader has read the size of the store)
+     * @return new bitmap of the ids (< pBound) of all the Events w/ a Date in [pFrom, pTo]
+     * @pre pFrom != null && pTo != null
+     */
+    public BitSet lookup(LocalDate pFrom, LocalDate pTo, int pBound)
+    {
+        assert pFrom != null && pTo != null;
+        BitSet bitmap = new BitSet();
+        for (Day day : range(pFrom, pTo).values()) {
+            int[] ids = day.aIds;
+            for (int i = 0; i < ids.length; i++) {
+                int id = ids[i] - 1;
+                if (id < 0 || id >= pBound) break; // ids are in increasing order
+                bitmap.set(id);
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * @return number of Events w/ a Date in [pFrom, pTo].
+     * @pre pFrom != null && pTo != null
+     */
+    public int count(LocalDate pFrom, LocalDate pTo)
+    {
+        assert pFrom != null && pTo != null;
+        int count = 0;
+        for (Day day : range(pFrom, pTo).values()) count += day.aCount;
+        return count;
+    }
+
+    /**
+     * @return the Days in [pFrom, pTo] (empty if pTo is before pFrom).
+     */
+    private NavigableMap<LocalDate, Day> range(LocalDate pFrom, LocalDate pTo)
+    {
+        if (pTo.isBefore(pFrom)) return new ConcurrentSkipListMap<>();
+        return aDays.subMap(pFrom, true, pTo, true);
+    }
+}
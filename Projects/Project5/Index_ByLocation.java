@@ -0,0 +1,91 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Index of the Events of an EventStore by Location : keeps the ids of the Events at each Location in an
+ * append-only array (in increasing order), so all the Events at a Location are found w/o scanning the store.
+ * 'ComingSoon' Events (w/ unknown Location) are not indexed.
+ *
+ * Thread-safety : the index is written by the writer of the EventStore only, and read w/o locking. Ids are stored
+ * as id + 1, so an entry not yet visible to a reader (= 0) is never mistaken for the Event of id 0, and a reader
+ * ignores the ids >= the size of the store it has read (see EventStore).
+ */
+public class Index_ByLocation
+{
+    private static final int INITIAL_CAPACITY = 16;
+
+    private AtomicReferenceArray<int[]> aIds = new AtomicReferenceArray<>(Location.values().length); // (id + 1) of the Events per Location
+    private AtomicIntegerArray aCounts = new AtomicIntegerArray(Location.values().length); // number of Events per Location (written by the writer only, read by the planners)
+
+    /**
+     * Adds an Event to the index.
+     * @param pId
+     *              id of the Event in the store
+     * @param pLocation
+     *              Location of the Event, or null for 'ComingSoon' Event
+     * @pre pId >= 0 && pId is greater than all the ids already in the index
+     */
+    public void add(int pId, Location pLocation)
+    {
+        assert pId >= 0;
+        if (pLocation == null) return;
+        int location = pLocation.ordinal();
+        int[] ids = aIds.get(location);
+        int count = aCounts.get(location);
+        if (ids == null) {
+            ids = new int[INITIAL_CAPACITY];
+            aIds.set(location, ids);
+        } else if (count == ids.length) {
+            ids = Arrays.copyOf(ids, count * 2);
+            aIds.set(location, ids);
+        }
+        ids[count] = pId + 1;
+        aCounts.set(location, count + 1);
+    }
+
+    /**
+     * @param pLocation
+     *              Location to look up
+     * @return new bitmap of the ids of all the Events at pLocation
+     * @pre pLocation != null
+     */
+    public BitSet lookup(Location pLocation)
+    {
+        assert pLocation != null;
+        return lookup(pLocation, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param pLocation
+     *              Location to look up
+     * @param pBound
+     *              ids >= pBound are ignored (= Events added after the reader has read the size of the store)
+     * @return new bitmap of the ids (< pBound) of all the Events at pLocation
+     * @pre pLocation != null
+     */
+    public BitSet lookup(Location pLocation, int pBound)
+    {
+        assert pLocation != null;
+        BitSet bitmap = new BitSet();
+        int[] ids = aIds.get(pLocation.ordinal());
+        if (ids == null) return bitmap;
+        for (int i = 0; i < ids.length; i++) {
+            int id = ids[i] - 1;
+            if (id < 0 || id >= pBound) break; // ids are in increasing order
+            bitmap.set(id);
+        }
+        return bitmap;
+    }
+
+    /**
+     * @return number of Events at pLocation.
+     * @pre pLocation != null
+     */
+    public int count(Location pLocation)
+    {
+        assert pLocation != null;
+        return aCounts.get(pLocation.ordinal());
+    }
+}
@@ -0,0 +1,252 @@
+import java.util.BitSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Index of the Events of an EventStore by Ticket Price : keeps the prices sorted in primitive arrays
+ * (w/ the id of the corresponding Event in parallel arrays), so all the Events in a price range are
+ * found by binary search in O(log n + k) instead of scanning the store.
+ * N.B. Like an LSM tree, the Events are kept in two sorted runs and a tail, so adding Events never copies the
+ * whole index on the next look-up :
+ *      (1) the base : the Events w/ an id below a first bound
+ *      (2) the delta : the Events w/ an id between the two bounds (at most 1/MERGE_RATIO of the base)
+ *      (3) the tail : the Events added since, read directly from the columns of the store (w/o sorting)
+ * A look-up sorts the tail into a new delta only when the tail is longer than the square root of the number of
+ * sorted Events, and merges the delta into a new base only when the delta is longer than 1/MERGE_RATIO of the base.
+ * So a look-up scans at most ~sqrt(n) Events of the tail, and each Event is copied O(MERGE_RATIO) times (amortized).
+ * 'ComingSoon' Events (w/ unknown Price) are not indexed.
+ *
+ * Thread-safety : the runs are immutable once published, so look-ups never lock. A look-up merges the tail only
+ * if no other look-up is merging (tryLock), otherwise it scans the tail of the store.
+ */
+public class Index_ByPrice
+{
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+    private static final int MIN_TAIL = 64; // the tail is never sorted below this length
+    private static final int MERGE_RATIO = 8; // the delta is merged into the base once longer than 1/MERGE_RATIO of it
+
+    /**
+     * Immutable sorted run of prices of the Events w/ an id below aBound (and at or above the bound of the previous run).
+     */
+    private static final class Sorted
+    {
+        final private double[] aPrices; // sorted prices
+        final private int[] aIds; // aIds[i] = id of the Event w/ price aPrices[i]
+        final private int aBound; // all the Events w/ an id < aBound (and a price) are in the runs
+
+        Sorted(double[] pPrices, int[] pIds, int pBound)
+        {
+            this.aPrices = pPrices;
+            this.aIds = pIds;
+            this.aBound = pBound;
+        }
+
+        int size()
+        {
+            return aPrices.length;
+        }
+    }
+
+    /**
+     * Immutable pair of runs, published as a whole.
+     */
+    private static final class Runs
+    {
+        final private Sorted aBase;
+        final private Sorted aDelta; // Events w/ an id in [aBase.aBound, aDelta.aBound)
+
+        Runs(Sorted pBase, Sorted pDelta)
+        {
+            this.aBase = pBase;
+            this.aDelta = pDelta;
+        }
+
+        /**
+         * @return the maximum length of the tail before it is sorted into the delta.
+         */
+        int maxTail()
+        {
+            return Math.max(MIN_TAIL, (int) Math.sqrt(aBase.size() + aDelta.size()));
+        }
+    }
+
+    final private EventStore aStore;
+    private volatile Runs aRuns = new Runs(new Sorted(new double[0], new int[0], 0), new Sorted(new double[0], new int[0], 0));
+    final private ReentrantLock aMergeLock = new ReentrantLock();
+
+    /**
+     * Creates the (empty) Price index of a store.
+     * @pre pStore != null
+     */
+    Index_ByPrice(EventStore pStore)
+    {
+        assert pStore != null;
+        this.aStore = pStore;
+    }
+
+    /**
+     * @param pLowerBound
+     *              lowest price of the range
+     * @param pUpperBound
+     *              highest price of the range
+     * @return bitmap of the ids of all the Events w/ a price in [pLowerBound, pUpperBound]
+     */
+    public BitSet lookup(double pLowerBound, double pUpperBound)
+    {
+        int size = aStore.size();
+        Runs runs = merge(size);
+        BitSet bitmap = new BitSet();
+        lookup(runs.aBase, pLowerBound, pUpperBound, bitmap);
+        lookup(runs.aDelta, pLowerBound, pUpperBound, bitmap);
+        for (int id = runs.aDelta.aBound; id < size; id++) { // tail
+            if (aStore.hasPrice(id) && aStore.getPrice(id) >= pLowerBound && aStore.getPrice(id) <= pUpperBound) bitmap.set(id);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Sets the ids of the Events of a run w/ a price in [pLowerBound, pUpperBound] in a bitmap.
+     */
+    private static void lookup(Sorted pSorted, double pLowerBound, double pUpperBound, BitSet pBitmap)
+    {
+        for (int i = lowerBound(pSorted, pLowerBound); i < pSorted.size() && pSorted.aPrices[i] <= pUpperBound; i++) {
+            pBitmap.set(pSorted.aIds[i]);
+        }
+    }
+
+    /**
+     * @return number of Events w/ a price in [pLowerBound, pUpperBound], in O(log n + sqrt(n)).
+     */
+    public int count(double pLowerBound, double pUpperBound)
+    {
+        if (pUpperBound < pLowerBound) return 0;
+        int size = aStore.size();
+        Runs runs = merge(size);
+        int count = upperBound(runs.aBase, pUpperBound) - lowerBound(runs.aBase, pLowerBound)
+                + upperBound(runs.aDelta, pUpperBound) - lowerBound(runs.aDelta, pLowerBound);
+        for (int id = runs.aDelta.aBound; id < size; id++) {
+            if (aStore.hasPrice(id) && aStore.getPrice(id) >= pLowerBound && aStore.getPrice(id) <= pUpperBound) count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return index of the first sorted price >= pPrice (or the number of sorted prices).
+     */
+    private static int lowerBound(Sorted pSorted, double pPrice)
+    {
+        int low = 0, high = pSorted.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (pSorted.aPrices[middle] < pPrice) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * @return index of the first sorted price > pPrice (or the number of sorted prices).
+     */
+    private static int upperBound(Sorted pSorted, double pPrice)
+    {
+        int low = 0, high = pSorted.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (pSorted.aPrices[middle] <= pPrice) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Sorts the tail of the Events w/ an id below pSize into a new delta if it is too long (then merges the delta
+     * into a new base if it is too long), unless another look-up is already merging.
+     * @return the latest runs
+     */
+    private Runs merge(int pSize)
+    {
+        Runs runs = aRuns;
+        if (pSize - runs.aDelta.aBound <= runs.maxTail() || !aMergeLock.tryLock()) return runs;
+        try {
+            runs = aRuns;
+            if (pSize - runs.aDelta.aBound <= runs.maxTail()) return runs;
+            double[] tailPrices = new double[pSize - runs.aDelta.aBound];
+            int[] tailIds = new int[pSize - runs.aDelta.aBound];
+            int numTail = 0;
+            for (int id = runs.aDelta.aBound; id < pSize; id++) {
+                if (!aStore.hasPrice(id)) continue;
+                tailPrices[numTail] = aStore.getPrice(id);
+                tailIds[numTail++] = id;
+            }
+            if (numTail > 0) sort(tailPrices, tailIds, 0, numTail - 1);
+
+            Sorted delta = merge(runs.aDelta, tailPrices, tailIds, numTail, pSize);
+            if (delta.size() * MERGE_RATIO > runs.aBase.size()) {
+                runs = new Runs(merge(runs.aBase, delta.aPrices, delta.aIds, delta.size(), pSize), new Sorted(new double[0], new int[0], pSize));
+            } else {
+                runs = new Runs(runs.aBase, delta);
+            }
+            aRuns = runs;
+            return runs;
+        } finally {
+            aMergeLock.unlock();
+        }
+    }
+
+    /**
+     * @return new run merging a run w/ the first pNumOthers sorted prices (and ids) of other Events, up to pBound.
+     */
+    private static Sorted merge(Sorted pSorted, double[] pPrices, int[] pIds, int pNumOthers, int pBound)
+    {
+        int numSorted = pSorted.size(), newSize = numSorted + pNumOthers;
+        double[] prices = new double[newSize];
+        int[] ids = new int[newSize];
+        int i = 0, j = 0;
+        for (int k = 0; k < newSize; k++) {
+            if (j >= pNumOthers || (i < numSorted && pSorted.aPrices[i] <= pPrices[j])) {
+                prices[k] = pSorted.aPrices[i];
+                ids[k] = pSorted.aIds[i++];
+            } else {
+                prices[k] = pPrices[j];
+                ids[k] = pIds[j++];
+            }
+        }
+        return new Sorted(prices, ids, pBound);
+    }
+
+    /**
+     * Sorts pPrices[pFrom..pTo] in ascending order (quicksort), moving pIds along w/ the prices.
+     */
+    private static void sort(double[] pPrices, int[] pIds, int pFrom, int pTo)
+    {
+        while (pTo - pFrom >= INSERTION_SORT_THRESHOLD) {
+            double pivot = pPrices[(pFrom + pTo) >>> 1];
+            int i = pFrom, j = pTo;
+            while (i <= j) {
+                while (pPrices[i] < pivot) i++;
+                while (pPrices[j] > pivot) j--;
+                if (i <= j) swap(pPrices, pIds, i++, j--);
+            }
+            // Recurse on the smaller half to bound the stack depth
+            if (j - pFrom < pTo - i) {
+                sort(pPrices, pIds, pFrom, j);
+                pFrom = i;
+            } else {
+                sort(pPrices, pIds, i, pTo);
+                pTo = j;
+            }
+        }
+        for (int i = pFrom + 1; i <= pTo; i++) {
+            for (int j = i; j > pFrom && pPrices[j - 1] > pPrices[j]; j--) swap(pPrices, pIds, j - 1, j);
+        }
+    }
+
+    private static void swap(double[] pPrices, int[] pIds, int pI, int pJ)
+    {
+        double price = pPrices[pI];
+        pPrices[pI] = pPrices[pJ];
+        pPrices[pJ] = price;
+        int id = pIds[pI];
+        pIds[pI] = pIds[pJ];
+        pIds[pJ] = id;
+    }
+}
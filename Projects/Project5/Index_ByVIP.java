@@ -0,0 +1,87 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Inverse index of the guest lists of the Events of an EventStore : keeps the ids of the Events each VIP is invited
+ * to in an append-only array (in increasing order), so all the Events a VIP attends are found w/o scanning the store.
+ * Only Concerts and Galas have a guest list.
+ *
+ * Thread-safety : same as Index_ByLocation (written by the writer of the EventStore only, read w/o locking, ids
+ * stored as id + 1 and ids >= the size of the store read by a reader are ignored).
+ */
+public class Index_ByVIP
+{
+    private static final int INITIAL_CAPACITY = 4;
+    private static final int INITIAL_NUM_VIPS = 16;
+
+    private volatile int[][] aIds = new int[INITIAL_NUM_VIPS][]; // (id + 1) of the Events per VIP id
+    private volatile int[] aCounts = new int[INITIAL_NUM_VIPS]; // number of Events per VIP id (written by the writer only)
+
+    /**
+     * Adds the guest list of an Event to the index.
+     * @param pId
+     *              id of the Event in the store
+     * @param pGuests
+     *              guest list of the Event
+     * @pre pId >= 0 && pGuests != null && pId is greater than all the ids already in the index
+     */
+    public void add(int pId, GuestList pGuests)
+    {
+        assert pId >= 0 && pGuests != null;
+        pGuests.forEach(vip -> add(pId, vip));
+    }
+
+    private void add(int pId, int pVIP)
+    {
+        if (pVIP >= aIds.length) {
+            int capacity = Math.max(aIds.length * 2, pVIP + 1);
+            aCounts = Arrays.copyOf(aCounts, capacity);
+            aIds = Arrays.copyOf(aIds, capacity);
+        }
+        int[][] allIds = aIds;
+        int[] ids = allIds[pVIP];
+        int count = aCounts[pVIP];
+        if (ids == null) {
+            ids = new int[INITIAL_CAPACITY];
+        } else if (count == ids.length) {
+            ids = Arrays.copyOf(ids, count * 2);
+        }
+        ids[count] = pId + 1;
+        allIds[pVIP] = ids;
+        aCounts[pVIP] = count + 1;
+    }
+
+    /**
+     * @param pVIP
+     *              id of the VIP to look up (see VIPRegistry)
+     * @param pBound
+     *              ids >= pBound are ignored (= Events added after the reader has read the size of the store)
+     * @return new bitmap of the ids (< pBound) of all the Events pVIP is invited to
+     * @pre pVIP >= 0
+     */
+    public BitSet lookup(int pVIP, int pBound)
+    {
+        assert pVIP >= 0;
+        BitSet bitmap = new BitSet();
+        int[][] allIds = aIds;
+        if (pVIP >= allIds.length || allIds[pVIP] == null) return bitmap;
+        int[] ids = allIds[pVIP];
+        for (int i = 0; i < ids.length; i++) {
+            int id = ids[i] - 1;
+            if (id < 0 || id >= pBound) break; // ids are in increasing order
+            bitmap.set(id);
+        }
+        return bitmap;
+    }
+
+    /**
+     * @return number of Events pVIP is invited to.
+     * @pre pVIP >= 0
+     */
+    public int count(int pVIP)
+    {
+        assert pVIP >= 0;
+        int[] counts = aCounts;
+        return pVIP < counts.length ? counts[pVIP] : 0;
+    }
+}
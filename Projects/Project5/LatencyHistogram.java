@@ -0,0 +1,105 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies (in nanoseconds) w/ log-linear buckets, like an HDR histogram : every power of 2 is split
+ * in SUB_BUCKETS linear buckets, so a percentile is reported w/ a relative error under 1/SUB_BUCKETS (~3%) over the
+ * whole range of longs, in a fixed array of counters.
+ * Recording is thread-safe, lock-free and allocation-free (atomic increments only) : it can be done on every call
+ * of a hot path. Reading (percentiles, mean) is weakly consistent w/ the values recorded at the same time.
+ */
+public final class LatencyHistogram
+{
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS; // linear buckets per power of 2
+    private static final int NUM_BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    final private AtomicLongArray aCounts = new AtomicLongArray(NUM_BUCKETS);
+    final private LongAdder aCount = new LongAdder();
+    final private LongAdder aSum = new LongAdder();
+    final private AtomicLong aMax = new AtomicLong();
+
+    /**
+     * Records a latency.
+     * @param pNanos
+     *              latency in nanoseconds (negative latencies are recorded as 0)
+     */
+    public void record(long pNanos)
+    {
+        long value = Math.max(0, pNanos);
+        aCounts.incrementAndGet(bucket(value));
+        aCount.increment();
+        aSum.add(value);
+        if (value > aMax.get()) aMax.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * @return number of latencies recorded.
+     */
+    public long getCount()
+    {
+        return aCount.sum();
+    }
+
+    /**
+     * @return mean of the latencies recorded in nanoseconds (0 if none).
+     */
+    public double getMean()
+    {
+        long count = aCount.sum();
+        return count == 0 ? 0.0 : (double) aSum.sum() / count;
+    }
+
+    /**
+     * @return highest latency recorded in nanoseconds (0 if none).
+     */
+    public long getMax()
+    {
+        return aMax.get();
+    }
+
+    /**
+     * @param pPercentile
+     *              percentile in [0, 100]
+     * @return latency (in nanoseconds) under which pPercentile % of the latencies recorded are (at the precision of
+     *              the buckets : highest latency of the bucket, never above the highest latency recorded), 0 if none
+     * @pre pPercentile >= 0 && pPercentile <= 100
+     */
+    public long getPercentile(double pPercentile)
+    {
+        assert pPercentile >= 0 && pPercentile <= 100;
+        long total = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) total += aCounts.get(i);
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(pPercentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            seen += aCounts.get(i);
+            if (seen >= rank) return Math.min(highest(i), aMax.get());
+        }
+        return aMax.get();
+    }
+
+    /**
+     * @return index of the bucket of a latency.
+     */
+    private static int bucket(long pValue)
+    {
+        if (pValue < SUB_BUCKETS) return (int) pValue;
+        int exponent = 63 - Long.numberOfLeadingZeros(pValue); // >= SUB_BITS
+        int sub = (int) (pValue >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @return highest latency of a bucket.
+     */
+    private static long highest(int pBucket)
+    {
+        if (pBucket < SUB_BUCKETS) return pBucket;
+        int exponent = pBucket / SUB_BUCKETS + SUB_BITS - 1;
+        long lowest = (long) (SUB_BUCKETS + pBucket % SUB_BUCKETS) << (exponent - SUB_BITS);
+        return lowest + (1L << (exponent - SUB_BITS)) - 1;
+    }
+}
@@ -0,0 +1,42 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Clock (in milliseconds) that only moves when told to : replaces the system clock of the holds of tickets (see
+ * Command_HoldTickets) so their expiry can be checked deterministically (see ConcurrencyDriver).
+ */
+public final class ManualClock implements LongSupplier
+{
+    final private AtomicLong aMillis;
+
+    /**
+     * @param pMillis
+     *              initial time in milliseconds
+     */
+    public ManualClock(long pMillis)
+    {
+        this.aMillis = new AtomicLong(pMillis);
+    }
+
+    /**
+     * Moves the clock forward.
+     * @param pMillis
+     *              number of milliseconds to move by
+     * @return the new time in milliseconds
+     * @pre pMillis >= 0
+     */
+    public long advance(long pMillis)
+    {
+        assert pMillis >= 0;
+        return aMillis.addAndGet(pMillis);
+    }
+
+    /**
+     * @return current time in milliseconds.
+     */
+    @Override
+    public long getAsLong()
+    {
+        return aMillis.get();
+    }
+}
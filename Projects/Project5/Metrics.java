@@ -0,0 +1,226 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registry of the metrics of an EventManagement, w/o any dependency :
+ *      (1) counters (LongAdder) of the outcomes of the operations (e.g. Events accepted / duplicate / invalid)
+ *      (2) latency histograms (see LatencyHistogram) of the operations
+ *      (3) gauges read on demand (e.g. number of hosted Events)
+ * The metrics are created once (by name) and their handles kept by the instrumented code : recording is lock-free
+ * and allocation-free. They are exposed as a text dump, and as the attributes of an MBean once registered in the
+ * platform MBeanServer (e.g. for JConsole / VisualVM).
+ */
+public class Metrics
+{
+    public static final String DOMAIN = "EventBrite"; // domain of the ObjectName of the MBeans
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+    final private Map<String, LongAdder> aCounters = new ConcurrentSkipListMap<>();
+    final private Map<String, LatencyHistogram> aHistograms = new ConcurrentSkipListMap<>();
+    final private Map<String, LongSupplier> aGauges = new ConcurrentSkipListMap<>();
+    private volatile ObjectName aObjectName = null; // name of the MBean (null when not registered)
+
+    /**
+     * @return the counter of a name (created if none yet).
+     * @pre pName != null
+     */
+    public LongAdder counter(String pName)
+    {
+        assert pName != null;
+        return aCounters.computeIfAbsent(pName, name -> new LongAdder());
+    }
+
+    /**
+     * @return the latency histogram of a name (created if none yet).
+     * @pre pName != null
+     */
+    public LatencyHistogram histogram(String pName)
+    {
+        assert pName != null;
+        return aHistograms.computeIfAbsent(pName, name -> new LatencyHistogram());
+    }
+
+    /**
+     * Registers a gauge (replaces the gauge of the same name, if any).
+     * @param pGauge
+     *              current value of the gauge (called on every read : must be thread-safe)
+     * @pre pName != null && pGauge != null
+     */
+    public void gauge(String pName, LongSupplier pGauge)
+    {
+        assert pName != null && pGauge != null;
+        aGauges.put(pName, pGauge);
+    }
+
+    /**
+     * @return the value of a counter or gauge (0 if there is none of this name).
+     */
+    public long get(String pName)
+    {
+        LongAdder counter = aCounters.get(pName);
+        if (counter != null) return counter.sum();
+        LongSupplier gauge = aGauges.get(pName);
+        return gauge == null ? 0 : gauge.getAsLong();
+    }
+
+    /**
+     * @return text dump of all the metrics, one per line (by kind, then by name) :
+     *              counter <name> <value>
+     *              gauge <name> <value>
+     *              histogram <name> count=<n> mean=<us> p50=<us> p90=<us> p99=<us> p999=<us> max=<us>
+     */
+    public String dump()
+    {
+        StringBuilder dump = new StringBuilder();
+        aCounters.forEach((name, counter) -> dump.append("counter ").append(name).append(' ').append(counter.sum()).append('\n'));
+        aGauges.forEach((name, gauge) -> dump.append("gauge ").append(name).append(' ').append(gauge.getAsLong()).append('\n'));
+        aHistograms.forEach((name, histogram) -> {
+            dump.append("histogram ").append(name).append(" count=").append(histogram.getCount());
+            dump.append(String.format(" mean=%.1fus", histogram.getMean() / 1000));
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                dump.append(String.format(" %s=%.1fus", PERCENTILE_NAMES[i], histogram.getPercentile(PERCENTILES[i]) / 1000.0));
+            }
+            dump.append(String.format(" max=%.1fus", histogram.getMax() / 1000.0)).append('\n');
+        });
+        return dump.toString();
+    }
+
+    /**
+     * Registers the metrics as an MBean of the platform MBeanServer, named EventBrite:type=Metrics,name=pName
+     * (replaces the MBean of the same name, if any). Attributes : every counter and gauge, and <histogram>.count /
+     * .mean / .p50 / .p90 / .p99 / .p999 / .max of every histogram (in nanoseconds).
+     * @return TRUE if registered
+     * @pre pName != null
+     */
+    public synchronized boolean register(String pName) throws IllegalArgumentException
+    {
+        if (pName == null) throw new IllegalArgumentException();
+        unregister();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN+":type=Metrics,name="+ObjectName.quote(pName));
+            if (server.isRegistered(objectName)) server.unregisterMBean(objectName);
+            server.registerMBean(new MBean(), objectName);
+            aObjectName = objectName;
+            return true;
+        } catch (JMException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Unregisters the MBean of the metrics (no effect if not registered).
+     */
+    public synchronized void unregister()
+    {
+        ObjectName objectName = aObjectName;
+        if (objectName == null) return;
+        aObjectName = null;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            // already unregistered
+        }
+    }
+
+    /**
+     * @return the value of an attribute of the MBean (see register), or null if there is none of this name.
+     */
+    private Object getAttribute(String pName)
+    {
+        LongAdder counter = aCounters.get(pName);
+        if (counter != null) return counter.sum();
+        LongSupplier gauge = aGauges.get(pName);
+        if (gauge != null) return gauge.getAsLong();
+        int dot = pName.lastIndexOf('.');
+        LatencyHistogram histogram = dot < 0 ? null : aHistograms.get(pName.substring(0, dot));
+        if (histogram == null) return null;
+        String statistic = pName.substring(dot + 1);
+        switch (statistic) {
+            case "count": return histogram.getCount();
+            case "mean": return histogram.getMean();
+            case "max": return histogram.getMax();
+            default:
+                for (int i = 0; i < PERCENTILES.length; i++) {
+                    if (PERCENTILE_NAMES[i].equals(statistic)) return histogram.getPercentile(PERCENTILES[i]);
+                }
+                return null;
+        }
+    }
+
+    /**
+     * Read-only MBean of the metrics : its attributes are the metrics registered when the MBeanInfo is read.
+     */
+    private final class MBean implements DynamicMBean
+    {
+        @Override
+        public Object getAttribute(String pAttribute) throws AttributeNotFoundException
+        {
+            Object value = Metrics.this.getAttribute(pAttribute);
+            if (value == null) throw new AttributeNotFoundException(pAttribute);
+            return value;
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] pAttributes)
+        {
+            AttributeList attributes = new AttributeList();
+            for (String name : pAttributes) {
+                Object value = Metrics.this.getAttribute(name);
+                if (value != null) attributes.add(new Attribute(name, value));
+            }
+            return attributes;
+        }
+
+        @Override
+        public void setAttribute(Attribute pAttribute) throws AttributeNotFoundException
+        {
+            throw new AttributeNotFoundException("Metrics are read-only");
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList pAttributes)
+        {
+            return new AttributeList(); // read-only : nothing set
+        }
+
+        @Override
+        public Object invoke(String pActionName, Object[] pParams, String[] pSignature)
+        {
+            throw new UnsupportedOperationException(pActionName);
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo()
+        {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (String name : aCounters.keySet()) attributes.add(new MBeanAttributeInfo(name, "long", "Counter "+name, true, false, false));
+            for (String name : aGauges.keySet()) attributes.add(new MBeanAttributeInfo(name, "long", "Gauge "+name, true, false, false));
+            for (String name : aHistograms.keySet()) {
+                attributes.add(new MBeanAttributeInfo(name+".count", "long", "Number of "+name, true, false, false));
+                attributes.add(new MBeanAttributeInfo(name+".mean", "double", "Mean latency of "+name+" (ns)", true, false, false));
+                for (String percentile : PERCENTILE_NAMES) {
+                    attributes.add(new MBeanAttributeInfo(name+"."+percentile, "long", percentile+" latency of "+name+" (ns)", true, false, false));
+                }
+                attributes.add(new MBeanAttributeInfo(name+".max", "long", "Max latency of "+name+" (ns)", true, false, false));
+            }
+            return new MBeanInfo(Metrics.class.getName(), "Metrics of an EventManagement",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+    }
+}
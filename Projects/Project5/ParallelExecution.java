@@ -0,0 +1,149 @@
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork/Join execution of the filtering and of the profit computation for large catalogs of Events.
+ * The range of Events is split in halves until it is smaller than SEQUENTIAL_THRESHOLD, each half being processed
+ * by a task of the ForkJoinPool. Results are merged by position, so they keep the original order of the Events.
+ */
+public class ParallelExecution
+{
+    public static final int SEQUENTIAL_THRESHOLD = 8192; // under this number of Events, work is done sequentially
+
+    private ParallelExecution() {}
+
+    /**
+     * Tests in parallel the candidate Events of a store against the filters.
+     * @param pPool
+     *              ForkJoinPool executing the tasks
+     * @param pNumEvents
+     *              number of Events of the store to consider (ids in [0, pNumEvents))
+     * @param pPassed
+     *              Output number of Events that passed each filter
+     * @return bitmap of the ids of the matching Events
+     */
+    static BitSet filter(ForkJoinPool pPool, EventStore pStore, BitSet pCandidates, Filter[] pFilters, int pNumEvents, int[] pPassed)
+    {
+        assert pPool != null;
+        FilterTask.Result result = pPool.invoke(new FilterTask(pStore, pCandidates, pFilters, 0, pNumEvents));
+        System.arraycopy(result.aPassed, 0, pPassed, 0, pPassed.length);
+        return result.aMatches;
+    }
+
+    /**
+     * @return sum of the profit of a list of Events, computed in parallel on a ForkJoinPool if the list is large enough.
+     * @pre pPool != null && pEvents != null
+     */
+    static double sumProfit(ForkJoinPool pPool, List<Event> pEvents)
+    {
+        return sumProfit(pPool, pEvents, null);
+    }
+
+    /**
+     * @return sum of the profit of a list of Events as of a pinned Snapshot of the Profit Percentages (current
+     * profit if pSnapshot is null), computed in parallel on a ForkJoinPool if the list is large enough.
+     * @pre pPool != null && pEvents != null
+     */
+    static double sumProfit(ForkJoinPool pPool, List<Event> pEvents, ProfitPercentages.Snapshot pSnapshot)
+    {
+        assert pPool != null && pEvents != null;
+        if (pEvents.size() < SEQUENTIAL_THRESHOLD) return new ProfitTask(pEvents, pSnapshot, 0, pEvents.size()).compute();
+        return pPool.invoke(new ProfitTask(pEvents, pSnapshot, 0, pEvents.size()));
+    }
+
+    /**
+     * Task filtering the candidate Events w/ an id in [aFrom, aTo).
+     */
+    private static final class FilterTask extends RecursiveTask<FilterTask.Result>
+    {
+        private static final long serialVersionUID = 1L;
+
+        static final class Result
+        {
+            final private BitSet aMatches;
+            final private int[] aPassed;
+
+            Result(BitSet pMatches, int[] pPassed)
+            {
+                this.aMatches = pMatches;
+                this.aPassed = pPassed;
+            }
+        }
+
+        final private EventStore aStore;
+        final private BitSet aCandidates;
+        final private Filter[] aFilters;
+        final private int aFrom;
+        final private int aTo;
+
+        FilterTask(EventStore pStore, BitSet pCandidates, Filter[] pFilters, int pFrom, int pTo)
+        {
+            this.aStore = pStore;
+            this.aCandidates = pCandidates;
+            this.aFilters = pFilters;
+            this.aFrom = pFrom;
+            this.aTo = pTo;
+        }
+
+        @Override
+        protected Result compute()
+        {
+            if (aTo - aFrom <= SEQUENTIAL_THRESHOLD) {
+                BitSet matches = new BitSet();
+                int[] passed = new int[aFilters.length];
+                QueryPlan.filterRange(aStore, aCandidates, aFrom, aTo, aFilters, matches, passed);
+                return new Result(matches, passed);
+            }
+            int middle = (aFrom + aTo) >>> 1;
+            FilterTask left = new FilterTask(aStore, aCandidates, aFilters, aFrom, middle);
+            left.fork();
+            Result right = new FilterTask(aStore, aCandidates, aFilters, middle, aTo).compute();
+            Result result = left.join();
+            result.aMatches.or(right.aMatches);
+            for (int i = 0; i < aFilters.length; i++) result.aPassed[i] += right.aPassed[i];
+            return result;
+        }
+    }
+
+    /**
+     * Task summing the profit of the Events w/ an index in [aFrom, aTo) of a list.
+     */
+    private static final class ProfitTask extends RecursiveTask<Double>
+    {
+        private static final long serialVersionUID = 1L;
+
+        final private List<Event> aEvents;
+        final private ProfitPercentages.Snapshot aSnapshot; // null for the current profit
+        final private int aFrom;
+        final private int aTo;
+
+        ProfitTask(List<Event> pEvents, ProfitPercentages.Snapshot pSnapshot, int pFrom, int pTo)
+        {
+            this.aEvents = pEvents;
+            this.aSnapshot = pSnapshot;
+            this.aFrom = pFrom;
+            this.aTo = pTo;
+        }
+
+        @Override
+        protected Double compute()
+        {
+            if (aTo - aFrom <= SEQUENTIAL_THRESHOLD) {
+                double profit = 0.0;
+                if (aSnapshot == null) {
+                    for (int i = aFrom; i < aTo; i++) profit += aEvents.get(i).getProfit();
+                } else {
+                    for (int i = aFrom; i < aTo; i++) profit += aSnapshot.getProfit(aEvents.get(i));
+                }
+                return profit;
+            }
+            int middle = (aFrom + aTo) >>> 1;
+            ProfitTask left = new ProfitTask(aEvents, aSnapshot, aFrom, middle);
+            left.fork();
+            double right = new ProfitTask(aEvents, aSnapshot, middle, aTo).compute();
+            return left.join() + right;
+        }
+    }
+}
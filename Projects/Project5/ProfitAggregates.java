@@ -0,0 +1,178 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Running aggregates of the Expected Profit of all the Events hosted on EventBrite, maintained incrementally
+ * when an Event is hosted or repriced, so that the total Expected Profit and the Expected Profit per type of Event
+ * and per Location are computed in constant time (whatever the number of hosted Events).
+ *
+ * For each group (= type of the hosted Event) and each type of Event reading its percentage from the table,
+ * the aggregates keep the sum of { aTicketPrice * aNumTickets } per Location. Changing the percentage of a type of
+ * Event therefore does not require any update (the percentage is applied when reading the aggregates).
+ * Events w/ a per-event override of their percentage are summed separately w/ their override already applied.
+ * N.B. A Festival counts in its own group and at its own Location, w/ the profit of all its Events (like Festival.getProfit).
+ *
+ * Thread-safety : the changes (add / percentageOverridden) are serialized by the override lock of the table of
+ * percentages, which is also held while an override is published (see AbstractEvent.updatePercentage). So an Event is
+ * marked as hosted atomically w/ adding its profit, and an override is either already applied when the Event is
+ * added or moved afterwards, never both. The sums are DoubleAdders in concurrent maps, so reading the Expected
+ * Profit never blocks (a read concurrent w/ a change may or may not include that change).
+ */
+public class ProfitAggregates implements ProfitPercentages.OverrideListener
+{
+    private static final int NUM_LOCATIONS = Location.values().length;
+    private static final int TOTAL = NUM_LOCATIONS; // index of the total (all Locations) in the arrays of sums
+
+    final private ProfitPercentages aPercentages;
+    // group -> type of Event -> sum of { price * tickets } per Location (+ total), for Events w/o override
+    private Map<Class<?>, Map<Class<?>, DoubleAdder[]>> aBaseSums = new ConcurrentHashMap<>();
+    // group -> sum of { price * tickets * override } per Location (+ total), for Events w/ an override
+    private Map<Class<?>, DoubleAdder[]> aOverriddenSums = new ConcurrentHashMap<>();
+
+    /**
+     * Creates empty aggregates and registers them as listener of the per-event overrides of the percentages.
+     * @param pPercentages
+     *              table of Profit Percentages of the hosted Events
+     * @pre pPercentages != null
+     */
+    public ProfitAggregates(ProfitPercentages pPercentages)
+    {
+        assert pPercentages != null;
+        this.aPercentages = pPercentages;
+        pPercentages.addListener(this);
+    }
+
+    /**
+     * Marks a newly hosted Event as hosted on EventBrite and adds its profit to the aggregates.
+     * @pre pEvent != null
+     */
+    public void add(Event pEvent)
+    {
+        assert pEvent != null;
+        synchronized (aPercentages.getOverrideLock()) {
+            if (pEvent instanceof AbstractEvent) ((AbstractEvent) pEvent).host(aPercentages);
+            contribute(pEvent, pEvent.getClass(), pEvent.getLocation().orElse(null), 1);
+        }
+    }
+
+    /**
+     * @return the Expected Profit of all the hosted Events.
+     */
+    public double getExpectedProfit()
+    {
+        return sum(null, TOTAL);
+    }
+
+    /**
+     * @return the Expected Profit of all the hosted Events at a Location.
+     * @pre pLocation != null
+     */
+    public double getExpectedProfit(Location pLocation)
+    {
+        assert pLocation != null;
+        return sum(null, pLocation.ordinal());
+    }
+
+    /**
+     * @return the Expected Profit of all the hosted Events of a type.
+     * @pre pClass != null
+     */
+    public double getExpectedProfit(Class<?> pClass)
+    {
+        assert pClass != null;
+        return sum(pClass, TOTAL);
+    }
+
+    /**
+     * Moves the profit of an Event from its previous percentage to its new override, for every hosted Event that
+     * counts it (the Event itself and every hosted Festival it is part of, directly or through nested Festivals).
+     * N.B. Called while holding the override lock (see ProfitPercentages.notifyOverride).
+     */
+    @Override
+    public void percentageOverridden(AbstractEvent pEvent, int pPreviousOverride, int pNewOverride)
+    {
+        if (pEvent instanceof Festival || !pEvent.getPrice().isPresent() || !pEvent.getNumTickets().isPresent()) return;
+        double priceTimesTickets = pEvent.getPrice().get() * pEvent.getNumTickets().get();
+        for (Event root : hostedRoots(pEvent)) {
+            Location location = root.getLocation().orElse(null);
+            add(pEvent.getClass(), root.getClass(), location, pPreviousOverride, -priceTimesTickets);
+            add(pEvent.getClass(), root.getClass(), location, pNewOverride, priceTimesTickets);
+        }
+    }
+
+    /**
+     * @return the hosted Events whose profit counts pEvent : pEvent itself if hosted, and every hosted Festival
+     *              it is part of (once per path from pEvent to that Festival).
+     */
+    private static List<Event> hostedRoots(AbstractEvent pEvent)
+    {
+        List<Event> roots = new ArrayList<>();
+        if (pEvent.isHosted()) roots.add(pEvent);
+        for (Festival festival : pEvent.getFestivals()) roots.addAll(hostedRoots(festival));
+        return roots;
+    }
+
+    /**
+     * Adds (pSign = 1) or removes (pSign = -1) the profit of an Event to the aggregates of a group and a Location.
+     */
+    private void contribute(Event pEvent, Class<?> pGroup, Location pLocation, int pSign)
+    {
+        if (pEvent instanceof Festival) {
+            for (Event event : ((Festival) pEvent).getFestivalEventsList()) contribute(event, pGroup, pLocation, pSign);
+        } else if (pEvent.getPrice().isPresent() && pEvent.getNumTickets().isPresent()) { // Concrete Event
+            int override = pEvent instanceof AbstractEvent ? ((AbstractEvent) pEvent).getOverride() : AbstractEvent.NO_OVERRIDE;
+            add(pEvent.getClass(), pGroup, pLocation, override, pSign * pEvent.getPrice().get() * pEvent.getNumTickets().get());
+        }
+    }
+
+    /**
+     * Adds { price * tickets } of an Event to the sums of its group and Location.
+     */
+    private void add(Class<?> pClass, Class<?> pGroup, Location pLocation, int pOverride, double pPriceTimesTickets)
+    {
+        DoubleAdder[] sums;
+        double value = pPriceTimesTickets;
+        if (pOverride == AbstractEvent.NO_OVERRIDE) {
+            sums = aBaseSums.computeIfAbsent(pGroup, group -> new ConcurrentHashMap<>()).computeIfAbsent(pClass, type -> newSums());
+        } else {
+            sums = aOverriddenSums.computeIfAbsent(pGroup, group -> newSums());
+            value *= pOverride;
+        }
+        if (pLocation != null) sums[pLocation.ordinal()].add(value);
+        sums[TOTAL].add(value);
+    }
+
+    private static DoubleAdder[] newSums()
+    {
+        DoubleAdder[] sums = new DoubleAdder[NUM_LOCATIONS + 1];
+        for (int i = 0; i < sums.length; i++) sums[i] = new DoubleAdder();
+        return sums;
+    }
+
+    /**
+     * @param pGroup
+     *              group to sum, or null for all groups
+     * @param pIndex
+     *              Location ordinal, or TOTAL
+     * @return the Expected Profit of a group at a Location (or in total), w/ the current percentages.
+     */
+    private double sum(Class<?> pGroup, int pIndex)
+    {
+        ProfitPercentages.Version percentages = aPercentages.getCurrentVersion();
+        double profit = 0.0;
+        for (Map.Entry<Class<?>, Map<Class<?>, DoubleAdder[]>> group : aBaseSums.entrySet()) {
+            if (pGroup != null && !pGroup.equals(group.getKey())) continue;
+            for (Map.Entry<Class<?>, DoubleAdder[]> type : group.getValue().entrySet()) {
+                profit += type.getValue()[pIndex].sum() * percentages.getPercentage(type.getKey());
+            }
+        }
+        for (Map.Entry<Class<?>, DoubleAdder[]> group : aOverriddenSums.entrySet()) {
+            if (pGroup != null && !pGroup.equals(group.getKey())) continue;
+            profit += group.getValue()[pIndex].sum();
+        }
+        return profit / 100;
+    }
+}
@@ -0,0 +1,264 @@
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongConsumer;
+
+/**
+ * Shared, versioned table of the Profit-per-Ticket Percentage of each type of Event (Concert / Gala / Screening / Workshop).
+ * Every Event hosted on EventBrite reads its percentage from this table when computing its profit, so changing
+ * the percentage of a type of Event is a single write instead of an update of every instance of that type.
+ * Each change publishes a new immutable version of the table (copy-on-write), so readers never see a partial update.
+ *
+ * Multi-version reads : every change (of the table or of the override of an Event) ticks a clock, and a Snapshot pins
+ * the version of the table and the clock, so the profits read through it never change afterwards (overrides made
+ * after the clock are ignored, see AbstractEvent). Old versions of the table are garbage-collected once no Snapshot
+ * references them, and the Events only keep the overrides still visible to the oldest pinned Snapshot.
+ */
+public class ProfitPercentages
+{
+    public static final int DEFAULT_PERCENTAGE = 20; // Default Percentage = 20% profit percentage per ticket.
+
+    /**
+     * Immutable version of the table.
+     */
+    public static final class Version
+    {
+        final private long aNumber;
+        final private Map<Class<?>, Integer> aPercentages;
+
+        private Version(long pNumber, Map<Class<?>, Integer> pPercentages)
+        {
+            this.aNumber = pNumber;
+            this.aPercentages = pPercentages;
+        }
+
+        /**
+         * @return number of the version (incremented on every change of the table).
+         */
+        public long getNumber()
+        {
+            return aNumber;
+        }
+
+        /**
+         * @return Profit Percentage of a type of Event in this version (DEFAULT_PERCENTAGE if never set).
+         * @pre pClass != null
+         */
+        public int getPercentage(Class<?> pClass)
+        {
+            assert pClass != null;
+            Integer percentage = aPercentages.get(pClass);
+            return percentage == null ? DEFAULT_PERCENTAGE : percentage;
+        }
+
+        /**
+         * @return (unmodifiable) Profit Percentages explicitly set in this version, per type of Event.
+         */
+        public Map<Class<?>, Integer> getPercentages()
+        {
+            return aPercentages;
+        }
+    }
+
+    /**
+     * Immutable view of the Profit Percentages at one point in time : a version of the table and the clock of the
+     * last change it includes (see pin).
+     */
+    public static final class Snapshot
+    {
+        final private Version aVersion;
+        final private long aClock;
+
+        private Snapshot(Version pVersion, long pClock)
+        {
+            this.aVersion = pVersion;
+            this.aClock = pClock;
+        }
+
+        /**
+         * @return version of the table of percentages pinned by the Snapshot.
+         */
+        public Version getVersion()
+        {
+            return aVersion;
+        }
+
+        /**
+         * @return clock of the last change (of the table or of an override) visible in the Snapshot.
+         */
+        public long getClock()
+        {
+            return aClock;
+        }
+
+        /**
+         * @return profit of an Event as of the Snapshot (= w/ the percentages and the overrides visible in it).
+         * @pre pEvent != null
+         */
+        public double getProfit(Event pEvent)
+        {
+            assert pEvent != null;
+            if (pEvent instanceof AbstractEvent) return ((AbstractEvent) pEvent).getProfit(this);
+            return pEvent.getProfit();
+        }
+    }
+
+    /**
+     * Listener notified when the Profit Percentage of a single Event is overridden (see AbstractEvent.updatePercentage).
+     */
+    public interface OverrideListener
+    {
+        /**
+         * Called once the override is published, while holding the monitor of the Event and the override lock.
+         */
+        void percentageOverridden(AbstractEvent pEvent, int pPreviousOverride, int pNewOverride);
+
+        /**
+         * Called once the override is done, w/o holding any lock (e.g. to wait for a slow I/O).
+         */
+        default void overrideDone(AbstractEvent pEvent) {}
+    }
+
+    private volatile Version aCurrent = new Version(0, Collections.emptyMap());
+    private List<OverrideListener> aListeners = new CopyOnWriteArrayList<>();
+    // Serializes the overrides (publication + notification of the listeners) w/ the changes the listeners make under
+    // it, so a listener sees an override either before or after such a change, never half-applied
+    final private Object aOverrideLock = new Object();
+
+    // Clock of the changes and pinned Snapshots (guarded by this) : a Snapshot is tracked by a weak reference, so it
+    // is released when the FilteredResult holding it is garbage-collected
+    private long aClock = 0;
+    private final ReferenceQueue<Snapshot> aReleased = new ReferenceQueue<>();
+    private final Map<Reference<Snapshot>, Long> aPins = new HashMap<>();
+    private final TreeMap<Long, Integer> aPinnedClocks = new TreeMap<>(); // number of pinned Snapshots per clock
+
+    /**
+     * Sets the Profit Percentage of a type of Event.
+     * @param pClass
+     *              type of Event
+     * @param pPercentage
+     *              new profit percentage
+     * @pre pClass != null && pPercentage >= 0 && pPercentage <= 100
+     */
+    public synchronized void setPercentage(Class<?> pClass, int pPercentage)
+    {
+        assert pClass != null && pPercentage >= 0 && pPercentage <= 100;
+        Map<Class<?>, Integer> percentages = new HashMap<>(aCurrent.aPercentages);
+        percentages.put(pClass, pPercentage);
+        aCurrent = new Version(aCurrent.aNumber + 1, Collections.unmodifiableMap(percentages));
+        aClock++;
+    }
+
+    /**
+     * Pins the current version of the table and of the overrides : profits read through the Snapshot do not change
+     * afterwards, until the Snapshot is no longer referenced.
+     * @return the Snapshot
+     */
+    public synchronized Snapshot pin()
+    {
+        expunge();
+        Snapshot snapshot = new Snapshot(aCurrent, aClock);
+        aPins.put(new WeakReference<>(snapshot, aReleased), aClock);
+        aPinnedClocks.merge(aClock, 1, Integer::sum);
+        return snapshot;
+    }
+
+    /**
+     * Publishes the override of the Profit Percentage of an Event atomically w/ ticking the clock, so a Snapshot
+     * pinned afterwards always sees it.
+     * @param pPublish
+     *              publishes the override, given the clock of the change
+     * @pre pPublish != null
+     */
+    synchronized void publishOverride(LongConsumer pPublish)
+    {
+        assert pPublish != null;
+        pPublish.accept(++aClock);
+    }
+
+    /**
+     * @return clock of the oldest Snapshot still referenced (the current clock if none) : changes older than it
+     * and hidden by a newer change are no longer visible to any reader.
+     */
+    synchronized long getOldestPinned()
+    {
+        expunge();
+        return aPinnedClocks.isEmpty() ? aClock : aPinnedClocks.firstKey();
+    }
+
+    /**
+     * Forgets the Snapshots that have been garbage-collected.
+     */
+    private void expunge()
+    {
+        Reference<? extends Snapshot> released;
+        while ((released = aReleased.poll()) != null) {
+            Long clock = aPins.remove(released);
+            if (clock != null) aPinnedClocks.computeIfPresent(clock, (k, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    /**
+     * @return Profit Percentage currently set for a type of Event.
+     * @pre pClass != null
+     */
+    public int getPercentage(Class<?> pClass)
+    {
+        return aCurrent.getPercentage(pClass);
+    }
+
+    /**
+     * @return the current version of the table.
+     */
+    public Version getCurrentVersion()
+    {
+        return aCurrent;
+    }
+
+    /**
+     * Registers a listener of the per-event overrides of the Profit Percentage.
+     * @pre pListener != null
+     */
+    public void addListener(OverrideListener pListener)
+    {
+        assert pListener != null;
+        aListeners.add(pListener);
+    }
+
+    /**
+     * @return the lock held while an override of an Event attached to this table is published and notified (see
+     * AbstractEvent.updatePercentage) : a listener holding it sees no override in progress.
+     */
+    Object getOverrideLock()
+    {
+        return aOverrideLock;
+    }
+
+    /**
+     * Notifies the listeners that the Profit Percentage of an Event attached to this table has been overridden.
+     * N.B. Called while holding the override lock.
+     * @param pPreviousOverride
+     *              previous override of the Event (AbstractEvent.NO_OVERRIDE if none)
+     * @param pNewOverride
+     *              new override of the Event
+     */
+    void notifyOverride(AbstractEvent pEvent, int pPreviousOverride, int pNewOverride)
+    {
+        for (OverrideListener listener : aListeners) listener.percentageOverridden(pEvent, pPreviousOverride, pNewOverride);
+    }
+
+    /**
+     * Notifies the listeners that the override of the Profit Percentage of an Event is done.
+     * N.B. Called w/o holding any lock.
+     */
+    void notifyOverrideDone(AbstractEvent pEvent)
+    {
+        for (OverrideListener listener : aListeners) listener.overrideDone(pEvent);
+    }
+}
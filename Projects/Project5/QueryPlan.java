@@ -0,0 +1,193 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Plan chosen by the QueryPlanner to filter the Events of an EventStore : an ordered list of steps, each
+ * w/ its access path, the estimated number of rows left after the step and (once executed) the actual number of rows.
+ */
+public class QueryPlan
+{
+    /**
+     * Access path of a step of the plan.
+     */
+    public enum Access { FULL_SCAN, INDEX_LOOKUP, INDEX_AND, FILTER }
+
+    /**
+     * A step of the plan : a filter (null for a FULL_SCAN) w/ its access path.
+     */
+    public static final class Step
+    {
+        final private Filter aFilter;
+        final private Access aAccess;
+        final private int aEstimatedRows;
+        private int aActualRows = -1; // -1 until the plan is executed
+
+        Step(Filter pFilter, Access pAccess, int pEstimatedRows)
+        {
+            this.aFilter = pFilter;
+            this.aAccess = pAccess;
+            this.aEstimatedRows = pEstimatedRows;
+        }
+
+        /**
+         * @return Filter applied by the step, or null for a FULL_SCAN.
+         */
+        public Filter getFilter()
+        {
+            return aFilter;
+        }
+
+        /**
+         * @return Access path of the step.
+         */
+        public Access getAccess()
+        {
+            return aAccess;
+        }
+
+        /**
+         * @return Estimated number of rows left after the step.
+         */
+        public int getEstimatedRows()
+        {
+            return aEstimatedRows;
+        }
+
+        /**
+         * @return Actual number of rows left after the step, or -1 if the step has not been executed.
+         */
+        public int getActualRows()
+        {
+            return aActualRows;
+        }
+    }
+
+    final private EventStore aStore;
+    final private int aNumEvents; // number of Events of the store when the plan was created
+    final private List<Step> aSteps;
+
+    QueryPlan(EventStore pStore, int pNumEvents, List<Step> pSteps)
+    {
+        assert pStore != null && pSteps != null && !pSteps.isEmpty();
+        this.aStore = pStore;
+        this.aNumEvents = pNumEvents;
+        this.aSteps = pSteps;
+    }
+
+    /**
+     * Executes the index steps (or the full scan) of the plan.
+     * @return bitmap of the ids of the candidate Events, that must still be tested w/ getFilters()
+     */
+    public BitSet candidates()
+    {
+        BitSet candidates = null;
+        for (Step step : aSteps) {
+            if (step.aAccess == Access.FULL_SCAN) {
+                candidates = new BitSet(aNumEvents);
+                candidates.set(0, aNumEvents);
+            } else if (step.aAccess == Access.INDEX_LOOKUP) {
+                candidates = step.aFilter.lookup(aStore);
+            } else if (step.aAccess == Access.INDEX_AND) {
+                candidates.and(step.aFilter.lookup(aStore));
+            } else {
+                break;
+            }
+            if (candidates.length() > aNumEvents) candidates.clear(aNumEvents, candidates.length()); // ignore Events added after planning
+            step.aActualRows = candidates.cardinality();
+        }
+        return candidates;
+    }
+
+    /**
+     * @return the filters that must be tested on each candidate Event, in order.
+     */
+    public Filter[] getFilters()
+    {
+        List<Filter> filters = new ArrayList<>();
+        for (Step step : aSteps) {
+            if (step.aAccess == Access.FILTER) filters.add(step.aFilter);
+        }
+        return filters.toArray(new Filter[0]);
+    }
+
+    /**
+     * Executes the plan (sequentially) and records the actual number of rows after each step.
+     * @return list of the matching Events, in order of creation
+     */
+    public List<Event> execute()
+    {
+        return execute(null);
+    }
+
+    /**
+     * Executes the plan and records the actual number of rows after each step.
+     * @param pPool
+     *              ForkJoinPool to test the candidate Events in parallel (only if there are enough candidates,
+     *              see ParallelExecution.SEQUENTIAL_THRESHOLD), OR null to test them sequentially
+     * @return list of the matching Events, in order of creation
+     */
+    public List<Event> execute(ForkJoinPool pPool)
+    {
+        BitSet candidates = candidates();
+        Filter[] filters = getFilters();
+        int[] passed = new int[filters.length]; // number of Events that passed each FILTER step
+        BitSet matches;
+        if (pPool != null && candidates.cardinality() >= ParallelExecution.SEQUENTIAL_THRESHOLD) {
+            matches = ParallelExecution.filter(pPool, aStore, candidates, filters, aNumEvents, passed);
+        } else {
+            matches = new BitSet();
+            filterRange(aStore, candidates, 0, aNumEvents, filters, matches, passed);
+        }
+        List<Event> result = new ArrayList<>(matches.cardinality());
+        for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+            result.add(aStore.getEvent(id));
+        }
+        int first = aSteps.size() - filters.length; // index of the first FILTER step
+        for (int i = 0; i < filters.length; i++) aSteps.get(first + i).aActualRows = passed[i];
+        return result;
+    }
+
+    /**
+     * Tests the candidate Events w/ an id in [pFrom, pTo) against the filters (stopping at the first filter that fails).
+     * @param pMatches
+     *              Output bitmap of the ids of the matching Events
+     * @param pPassed
+     *              Output number of Events that passed each filter
+     */
+    static void filterRange(EventStore pStore, BitSet pCandidates, int pFrom, int pTo, Filter[] pFilters, BitSet pMatches, int[] pPassed)
+    {
+        for (int id = pCandidates.nextSetBit(pFrom); id >= 0 && id < pTo; id = pCandidates.nextSetBit(id + 1)) {
+            Event event = pStore.getEvent(id);
+            int filter = 0;
+            while (filter < pFilters.length && pFilters[filter].test(event)) pPassed[filter++]++;
+            if (filter == pFilters.length) pMatches.set(id);
+        }
+    }
+
+    /**
+     * @return the steps of the plan, in order of execution.
+     */
+    public List<Step> getSteps()
+    {
+        return Collections.unmodifiableList(aSteps);
+    }
+
+    /**
+     * @return a readable description of the plan w/ the estimated and actual number of rows of each step.
+     */
+    public String explain()
+    {
+        StringBuilder builder = new StringBuilder("Query Plan ("+aNumEvents+" events) :\n");
+        int index = 1;
+        for (Step step : aSteps) {
+            builder.append(index++).append(" : ").append(step.aAccess);
+            if (step.aFilter != null) builder.append(" <").append(step.aFilter).append(">");
+            builder.append(" estimated rows: ").append(step.aEstimatedRows);
+            builder.append(" actual rows: ").append(step.aActualRows < 0 ? "-" : String.valueOf(step.aActualRows)).append("\n");
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,91 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Small cost-based Query Planner for the filtering of the Events of an EventStore.
+ * The planner estimates how many Events each filter matches (using the indexes of the store) and :
+ *      (1) orders the filters so that the most selective filter runs first,
+ *      (2) chooses for each filter its access path : an index look-up (bitmap AND) when the filter has an index
+ *          and its look-up is cheaper than testing the remaining candidates, OR a test on each candidate Event.
+ */
+public class QueryPlanner
+{
+    private QueryPlanner() {}
+
+    /**
+     * Creates the plan to filter all the Events of a store w/ a list of filters.
+     * @param pStore
+     *              Store of the Events to filter.
+     * @param pFilters
+     *              List of Filters to apply.
+     * @return the chosen plan (not executed yet)
+     * @pre pStore != null && pFilters != null
+     */
+    public static QueryPlan plan(EventStore pStore, List<Filter> pFilters)
+    {
+        assert pStore != null && pFilters != null;
+        return plan(pStore, pFilters, pStore.size());
+    }
+
+    /**
+     * Creates the plan to filter the first Events of a store (= a pinned version of the catalog) w/ a list of filters.
+     * @param pStore
+     *              Store of the Events to filter.
+     * @param pFilters
+     *              List of Filters to apply.
+     * @param pNumEvents
+     *              number of Events of the store to filter (Events added afterwards are ignored)
+     * @return the chosen plan (not executed yet)
+     * @pre pStore != null && pFilters != null && pNumEvents >= 0 && pNumEvents <= pStore.size()
+     */
+    public static QueryPlan plan(EventStore pStore, List<Filter> pFilters, int pNumEvents)
+    {
+        assert pStore != null && pFilters != null && pNumEvents >= 0 && pNumEvents <= pStore.size();
+        int numEvents = pNumEvents;
+
+        // (1) : Order the filters from the most selective to the least selective
+        List<Filter> filters = new ArrayList<>(pFilters);
+        List<Integer> estimates = new ArrayList<>();
+        for (Filter filter : filters) estimates.add(Math.min(numEvents, filter.estimate(pStore)));
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < filters.size(); i++) order.add(i);
+        order.sort(Comparator.comparingInt(estimates::get));
+
+        // (2) : Choose the access path of each filter. The most selective filter w/ an index is the access path,
+        // other filters w/ an index are intersected if their bitmap is smaller than the current candidates,
+        // all the remaining filters are tested on each candidate Event (in order of selectivity).
+        List<QueryPlan.Step> steps = new ArrayList<>();
+        List<Integer> tests = new ArrayList<>();
+        double rows = numEvents;
+        for (int i : order) {
+            Filter filter = filters.get(i);
+            int matches = estimates.get(i);
+            if (filter.hasIndex() && steps.isEmpty()) {
+                rows = matches;
+                steps.add(new QueryPlan.Step(filter, QueryPlan.Access.INDEX_LOOKUP, matches));
+            } else if (filter.hasIndex() && matches <= rows) {
+                rows = selectivity(rows, matches, numEvents);
+                steps.add(new QueryPlan.Step(filter, QueryPlan.Access.INDEX_AND, (int) Math.ceil(rows)));
+            } else {
+                tests.add(i);
+            }
+        }
+        if (steps.isEmpty()) steps.add(new QueryPlan.Step(null, QueryPlan.Access.FULL_SCAN, numEvents));
+        for (int i : tests) {
+            rows = selectivity(rows, estimates.get(i), numEvents);
+            steps.add(new QueryPlan.Step(filters.get(i), QueryPlan.Access.FILTER, (int) Math.ceil(rows)));
+        }
+        return new QueryPlan(pStore, numEvents, steps);
+    }
+
+    /**
+     * @return estimated number of rows left after applying a filter matching pMatches of pNumEvents Events
+     *              to pRows candidates (filters are assumed independent).
+     */
+    private static double selectivity(double pRows, int pMatches, int pNumEvents)
+    {
+        if (pNumEvents == 0) return 0;
+        return pRows * pMatches / pNumEvents;
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Order of the Events of a top-K query or of a paginated query (see FilteredResult.top / FilteredResult.page) :
+ * by profit, ticket price, date or remaining capacity, in ascending or descending order.
+ * Events w/o the key (e.g. the price of a 'ComingSoon' Event) rank after all the others, and Events w/ the same key
+ * rank in order of creation : the order is total, so a page always starts right after the last Event of the
+ * previous one.
+ */
+public final class Ranking
+{
+    public enum Key { PROFIT, PRICE, DATE, CAPACITY }
+
+    final private Key aKey;
+    final private boolean aDescending;
+    final private ProfitPercentages.Snapshot aSnapshot; // pinned percentages of the PROFIT key (null for the current ones)
+    final private int[] aCapacities; // pinned remaining capacity per id of the CAPACITY key (null for the number of Tickets)
+
+    /**
+     * Ranking by a key, w/ the current profit and the total number of Tickets as capacity.
+     * @param pKey
+     *              key of the Events to rank them by
+     * @param pDescending
+     *              TRUE to rank the highest keys first (e.g. most profitable), FALSE for the lowest first (e.g. cheapest)
+     * @pre pKey != null
+     */
+    public Ranking(Key pKey, boolean pDescending) throws IllegalArgumentException
+    {
+        this(pKey, pDescending, null, null);
+    }
+
+    /**
+     * Ranking by a key.
+     * @param pKey
+     *              key of the Events to rank them by
+     * @param pDescending
+     *              TRUE to rank the highest keys first (e.g. most profitable), FALSE for the lowest first (e.g. cheapest)
+     * @param pSnapshot
+     *              pinned Profit Percentages of the PROFIT key (null to use the current ones)
+     * @param pCapacities
+     *              pinned remaining capacity of the Events per id for the CAPACITY key, owned by the Ranking (null to
+     *              use their number of Tickets)
+     * @pre pKey != null && (pCapacities == null || pCapacities covers the ids ranked)
+     */
+    public Ranking(Key pKey, boolean pDescending, ProfitPercentages.Snapshot pSnapshot, int[] pCapacities) throws IllegalArgumentException
+    {
+        if (pKey == null) throw new IllegalArgumentException();
+        this.aKey = pKey;
+        this.aDescending = pDescending;
+        this.aSnapshot = pSnapshot;
+        this.aCapacities = pCapacities;
+    }
+
+    /**
+     * @return key of the Events to rank them by.
+     */
+    public Key getKey()
+    {
+        return aKey;
+    }
+
+    /**
+     * @return TRUE if the highest keys rank first.
+     */
+    public boolean isDescending()
+    {
+        return aDescending;
+    }
+
+    /**
+     * @return the key of the Event w/ id pId in a store, or NaN if the Event has none.
+     * @pre pStore != null && 0 <= pId < pStore.size()
+     */
+    double getKey(EventStore pStore, int pId)
+    {
+        Event event = pStore.getEvent(pId);
+        switch (aKey) {
+            case PROFIT:
+                if (!pStore.isConcrete(pId)) return Double.NaN; // N.B. the profit of a 'ComingSoon' Event is 0, not unknown
+                return aSnapshot == null ? event.getProfit() : aSnapshot.getProfit(event);
+            case PRICE: return pStore.hasPrice(pId) ? pStore.getPrice(pId) : Double.NaN;
+            case DATE: return event.getDate().toEpochDay();
+            default:
+                if (!pStore.isConcrete(pId)) return Double.NaN;
+                return aCapacities == null ? pStore.getNumTickets(pId) : aCapacities[pId];
+        }
+    }
+
+    /**
+     * Compares the rank of two Events from their key and id.
+     * @return a negative number if the first Event ranks before the second, a positive number if after, 0 if same id
+     */
+    int compare(double pKey1, int pId1, double pKey2, int pId2)
+    {
+        boolean none1 = Double.isNaN(pKey1), none2 = Double.isNaN(pKey2);
+        if (none1 != none2) return none1 ? 1 : -1;
+        if (!none1) {
+            int order = Double.compare(pKey1, pKey2);
+            if (order != 0) return aDescending ? -order : order;
+        }
+        return Integer.compare(pId1, pId2);
+    }
+
+    @Override
+    public String toString()
+    {
+        return aKey+(aDescending ? " (descending)" : " (ascending)");
+    }
+}
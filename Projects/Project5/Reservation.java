@@ -0,0 +1,82 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reservation of tickets of a hosted Event (see Command_BookTickets). A reservation holds its tickets until it is
+ * either confirmed (the tickets are sold) or released (the tickets are available again), and the first of the two
+ * wins : a reservation is confirmed or released exactly once, even if both are requested at the same time.
+ */
+public final class Reservation
+{
+    public enum State { RESERVED, CONFIRMED, RELEASED }
+
+    private static final State[] STATES = State.values();
+
+    final private long aId;
+    final private Event aEvent;
+    final private int aQuantity;
+    final private TicketInventory aInventory;
+    final private AtomicInteger aState = new AtomicInteger(State.RESERVED.ordinal());
+
+    Reservation(long pId, Event pEvent, int pQuantity, TicketInventory pInventory)
+    {
+        assert pEvent != null && pQuantity > 0 && pInventory != null;
+        this.aId = pId;
+        this.aEvent = pEvent;
+        this.aQuantity = pQuantity;
+        this.aInventory = pInventory;
+    }
+
+    /**
+     * Sells the tickets held by the reservation.
+     * @return TRUE if confirmed, FALSE if the reservation was already confirmed or released
+     */
+    boolean confirm()
+    {
+        if (!aState.compareAndSet(State.RESERVED.ordinal(), State.CONFIRMED.ordinal())) return false;
+        aInventory.sell(aQuantity);
+        return true;
+    }
+
+    /**
+     * Gives back the tickets held by the reservation.
+     * @return TRUE if released, FALSE if the reservation was already confirmed or released
+     */
+    boolean release()
+    {
+        if (!aState.compareAndSet(State.RESERVED.ordinal(), State.RELEASED.ordinal())) return false;
+        aInventory.giveBack(aQuantity);
+        return true;
+    }
+
+    /**
+     * @return unique id of the reservation.
+     */
+    public long getId()
+    {
+        return aId;
+    }
+
+    /**
+     * @return Event the tickets are reserved for.
+     */
+    public Event getEvent()
+    {
+        return aEvent;
+    }
+
+    /**
+     * @return number of tickets reserved.
+     */
+    public int getQuantity()
+    {
+        return aQuantity;
+    }
+
+    /**
+     * @return current state of the reservation.
+     */
+    public State getState()
+    {
+        return STATES[aState.get()];
+    }
+}
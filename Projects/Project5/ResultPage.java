@@ -0,0 +1,113 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Page of the Events matching a query, in the order of a Ranking (see FilteredResult.page), w/ the Cursor of the
+ * next page. A Cursor keeps the filters, the pinned version of the catalog (number of Events, Profit Percentages
+ * and, for the CAPACITY key, remaining capacity of the Events, see Ranking) and the position of the last Event of
+ * its page : the next page is computed on the same version, so no Event is skipped or repeated across the pages,
+ * whatever is hosted, repriced or booked in between.
+ */
+public final class ResultPage
+{
+    /**
+     * Position after the last Event of a page.
+     */
+    public static final class Cursor
+    {
+        final private List<Filter> aFilters;
+        final private int aNumEvents;
+        final private Ranking aRanking;
+        final private double aLastKey;
+        final private int aLastId; // -1 before the first page
+
+        Cursor(List<Filter> pFilters, int pNumEvents, Ranking pRanking, double pLastKey, int pLastId)
+        {
+            assert pFilters != null && pRanking != null;
+            this.aFilters = pFilters;
+            this.aNumEvents = pNumEvents;
+            this.aRanking = pRanking;
+            this.aLastKey = pLastKey;
+            this.aLastId = pLastId;
+        }
+
+        List<Filter> getFilters()
+        {
+            return aFilters;
+        }
+
+        int getNumEvents()
+        {
+            return aNumEvents;
+        }
+
+        /**
+         * @return Ranking of the pages.
+         */
+        public Ranking getRanking()
+        {
+            return aRanking;
+        }
+
+        /**
+         * @return TRUE if an Event w/ a key and an id ranks after the position of the Cursor.
+         */
+        boolean isAfter(double pKey, int pId)
+        {
+            return aLastId < 0 || aRanking.compare(pKey, pId, aLastKey, aLastId) > 0;
+        }
+    }
+
+    final private List<Event> aEvents;
+    final private Cursor aNext;
+
+    ResultPage(List<Event> pEvents, Cursor pNext)
+    {
+        assert pEvents != null;
+        this.aEvents = Collections.unmodifiableList(pEvents);
+        this.aNext = pNext;
+    }
+
+    /**
+     * @return (unmodifiable) Events of the page, in order.
+     */
+    public List<Event> getEvents()
+    {
+        return aEvents;
+    }
+
+    /**
+     * @return the Cursor of the next page, or null if this page is the last one.
+     */
+    public Cursor getNextCursor()
+    {
+        return aNext;
+    }
+
+    /**
+     * @return TRUE if there is a page after this one.
+     */
+    public boolean hasNext()
+    {
+        return aNext != null;
+    }
+
+    /**
+     * EXTRA METHOD FOR PRINTING :
+     * Prints in order all the events of the page.
+     */
+    public void printPage()
+    {
+        System.out.println("Print Page : ");
+        int index = 1;
+        for (Event event : aEvents) {
+            if (event.getLocation().isPresent() && event.getPrice().isPresent() && event.getNumTickets().isPresent()) {
+                System.out.print(index+" : <"+event.getName()+"> : @"+event.getDate()+" @"+event.getLocation().get()+" Ticket's price: "+event.getPrice().get()+" Number of Tickets: "+event.getNumTickets().get()+"\n");
+            } else {
+                System.out.print(index+" : 'ComingSoon' <"+event.getName()+"> : @"+event.getDate()+"\n");
+            }
+            index++;
+        }
+        System.out.println();
+    }
+}
@@ -0,0 +1,93 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ticket inventory of a hosted Event : how many of its tickets are taken (reserved or sold) and how many are sold.
+ * The counters are updated w/ compare-and-set only (no lock) : a reservation takes tickets only if the Event still
+ * has enough of them, so the Event is never oversold whatever the number of threads booking it at the same time.
+ */
+public final class TicketInventory
+{
+    final private int aCapacity; // total number of Tickets of the Event
+    final private AtomicInteger aTaken = new AtomicInteger(); // tickets reserved (not confirmed yet) or sold
+    final private AtomicInteger aSold = new AtomicInteger(); // tickets sold (confirmed reservations)
+
+    /**
+     * @param pCapacity
+     *              total number of Tickets of the Event
+     * @pre pCapacity >= 0
+     */
+    TicketInventory(int pCapacity)
+    {
+        assert pCapacity >= 0;
+        this.aCapacity = pCapacity;
+    }
+
+    /**
+     * Takes tickets if enough of them are available.
+     * @param pQuantity
+     *              number of tickets to take
+     * @return TRUE if the tickets have been taken, FALSE if fewer tickets are available
+     * @pre pQuantity > 0
+     */
+    boolean take(int pQuantity)
+    {
+        assert pQuantity > 0;
+        while (true) {
+            int taken = aTaken.get();
+            if (taken > aCapacity - pQuantity) return false; // N.B. no overflow : never above the capacity
+            if (aTaken.compareAndSet(taken, taken + pQuantity)) return true;
+        }
+    }
+
+    /**
+     * Sells tickets already taken.
+     * @pre pQuantity > 0 && pQuantity tickets have been taken and not sold / given back
+     */
+    void sell(int pQuantity)
+    {
+        assert pQuantity > 0;
+        aSold.addAndGet(pQuantity);
+    }
+
+    /**
+     * Gives back tickets taken and not sold.
+     * @pre pQuantity > 0 && pQuantity tickets have been taken and not sold / given back
+     */
+    void giveBack(int pQuantity)
+    {
+        assert pQuantity > 0;
+        aTaken.addAndGet(-pQuantity);
+    }
+
+    /**
+     * @return total number of Tickets of the Event.
+     */
+    public int getCapacity()
+    {
+        return aCapacity;
+    }
+
+    /**
+     * @return number of tickets neither reserved nor sold.
+     */
+    public int getAvailable()
+    {
+        return aCapacity - aTaken.get();
+    }
+
+    /**
+     * @return number of tickets reserved and not confirmed yet.
+     */
+    public int getReserved()
+    {
+        return aTaken.get() - aSold.get(); // N.B. read taken first : a reservation confirmed in between is not counted twice
+    }
+
+    /**
+     * @return number of tickets sold.
+     */
+    public int getSold()
+    {
+        return aSold.get();
+    }
+}
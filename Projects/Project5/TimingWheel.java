@@ -0,0 +1,204 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel of timeouts (e.g. the expiry of the holds of tickets, see Command_HoldTickets).
+ * Level 0 has NUM_SLOTS slots of one tick each, and each next level has NUM_SLOTS slots as wide as the whole level
+ * below it (levels are added when a timeout is further away than the existing levels cover). A timeout is kept in
+ * the slot of the coarsest level it needs, and moves down one level when the wheel reaches that slot, until it
+ * expires in a slot of level 0. So :
+ *      (1) scheduling and cancelling a timeout are O(1) (insertion / removal in a doubly-linked slot)
+ *      (2) advancing the wheel only visits the slots reached, never the timeouts that are not due yet
+ * A timeout expires at the first tick at or after its deadline : never early, at most one tick late.
+ *
+ * Thread-safety : the wheel is NOT thread-safe, callers serialize the accesses (see Command_HoldTickets).
+ */
+public class TimingWheel<T>
+{
+    private static final int NUM_SLOTS = 64;
+
+    /**
+     * Timeout scheduled in the wheel, in the doubly-linked list of its slot.
+     */
+    public static final class Timeout<T>
+    {
+        final private T aValue;
+        final private long aDeadline; // tick at which the Timeout expires
+        private Timeout<T> aPrevious;
+        private Timeout<T> aNext;
+        private Timeout<T>[] aSlots; // slots of the level the Timeout is in (null once expired or cancelled)
+        private int aSlot;
+
+        private Timeout(T pValue, long pDeadline)
+        {
+            this.aValue = pValue;
+            this.aDeadline = pDeadline;
+        }
+
+        /**
+         * @return value of the Timeout.
+         */
+        public T getValue()
+        {
+            return aValue;
+        }
+
+        /**
+         * @return TRUE while the Timeout is scheduled (= not expired nor cancelled).
+         */
+        public boolean isScheduled()
+        {
+            return aSlots != null;
+        }
+    }
+
+    final private long aTickMillis; // duration of a tick
+    final private List<Timeout<T>[]> aLevels = new ArrayList<>(); // slots (heads of the lists) of each level
+    private long aTick; // current tick (all the Timeouts w/ a deadline <= aTick have expired)
+    private int aSize = 0; // number of Timeouts scheduled
+
+    /**
+     * @param pTickMillis
+     *              duration of a tick in milliseconds (= precision of the Timeouts)
+     * @param pNowMillis
+     *              current time in milliseconds
+     * @pre pTickMillis > 0
+     */
+    public TimingWheel(long pTickMillis, long pNowMillis)
+    {
+        assert pTickMillis > 0;
+        this.aTickMillis = pTickMillis;
+        this.aTick = Math.floorDiv(pNowMillis, pTickMillis);
+    }
+
+    /**
+     * Schedules a Timeout.
+     * @param pValue
+     *              value returned by advance when the Timeout expires
+     * @param pDeadlineMillis
+     *              time at which the Timeout expires, in milliseconds
+     * @return the Timeout (to cancel it)
+     */
+    public Timeout<T> schedule(T pValue, long pDeadlineMillis)
+    {
+        Timeout<T> timeout = new Timeout<>(pValue, -Math.floorDiv(-pDeadlineMillis, aTickMillis)); // first tick at or after the deadline
+        aSize++;
+        insert(timeout);
+        return timeout;
+    }
+
+    /**
+     * Cancels a Timeout (no effect if it has expired or it was cancelled already).
+     * @return TRUE if the Timeout was scheduled
+     * @pre pTimeout != null
+     */
+    public boolean cancel(Timeout<T> pTimeout)
+    {
+        assert pTimeout != null;
+        if (pTimeout.aSlots == null) return false;
+        unlink(pTimeout);
+        aSize--;
+        return true;
+    }
+
+    /**
+     * Advances the wheel up to the current time and returns the values of the Timeouts that have expired.
+     * @param pNowMillis
+     *              current time in milliseconds (the wheel never moves backwards)
+     * @return values of the Timeouts expired, in order of their deadline (at the precision of a tick)
+     */
+    public List<T> advance(long pNowMillis)
+    {
+        List<T> expired = new ArrayList<>();
+        long now = Math.floorDiv(pNowMillis, aTickMillis);
+        while (aTick < now) {
+            if (aSize == 0) { // nothing to expire : jump to the current time
+                aTick = now;
+                break;
+            }
+            aTick++;
+            // Slots reached at this tick, from the coarsest level down : their Timeouts move to a finer level or expire
+            for (int level = aLevels.size() - 1; level >= 0; level--) {
+                long span = span(level);
+                if (aTick % span != 0) continue;
+                Timeout<T>[] slots = aLevels.get(level);
+                int slot = (int) ((aTick / span) % NUM_SLOTS);
+                Timeout<T> timeout = slots[slot];
+                slots[slot] = null;
+                while (timeout != null) {
+                    Timeout<T> next = timeout.aNext;
+                    timeout.aPrevious = timeout.aNext = null;
+                    timeout.aSlots = null;
+                    if (timeout.aDeadline <= aTick) {
+                        aSize--;
+                        expired.add(timeout.aValue);
+                    } else {
+                        insert(timeout);
+                    }
+                    timeout = next;
+                }
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * @return number of Timeouts scheduled.
+     */
+    public int size()
+    {
+        return aSize;
+    }
+
+    /**
+     * @return time (in milliseconds) of the next tick : no Timeout can expire before it.
+     */
+    public long getNextTickMillis()
+    {
+        return (aTick + 1) * aTickMillis;
+    }
+
+    /**
+     * Inserts a Timeout in the slot of the finest level whose slots ahead of the current tick cover its deadline
+     * (a deadline already reached goes to the next slot of level 0, so it expires at the next tick).
+     */
+    private void insert(Timeout<T> pTimeout)
+    {
+        long deadline = Math.max(pTimeout.aDeadline, aTick + 1);
+        int level = 0;
+        while (Math.floorDiv(deadline, span(level)) - Math.floorDiv(aTick, span(level)) > NUM_SLOTS) level++;
+        while (aLevels.size() <= level) aLevels.add(newSlots());
+        Timeout<T>[] slots = aLevels.get(level);
+        int slot = (int) Math.floorMod(Math.floorDiv(deadline, span(level)), (long) NUM_SLOTS);
+        pTimeout.aSlots = slots;
+        pTimeout.aSlot = slot;
+        pTimeout.aNext = slots[slot];
+        if (slots[slot] != null) slots[slot].aPrevious = pTimeout;
+        slots[slot] = pTimeout;
+    }
+
+    private void unlink(Timeout<T> pTimeout)
+    {
+        if (pTimeout.aPrevious != null) pTimeout.aPrevious.aNext = pTimeout.aNext;
+        else pTimeout.aSlots[pTimeout.aSlot] = pTimeout.aNext;
+        if (pTimeout.aNext != null) pTimeout.aNext.aPrevious = pTimeout.aPrevious;
+        pTimeout.aPrevious = pTimeout.aNext = null;
+        pTimeout.aSlots = null;
+    }
+
+    /**
+     * @return number of ticks covered by a slot of a level.
+     */
+    private static long span(int pLevel)
+    {
+        long span = 1;
+        for (int i = 0; i < pLevel; i++) span *= NUM_SLOTS;
+        return span;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Timeout<T>[] newSlots()
+    {
+        return (Timeout<T>[]) new Timeout<?>[NUM_SLOTS];
+    }
+}
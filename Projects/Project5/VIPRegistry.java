@@ -0,0 +1,119 @@
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Central registry of the VIPs invited to the Events : every VIP name is interned once and receives a dense id
+ * (= its position in order of registration), so the guest list of an Event is a bitmap of ids (see GuestList)
+ * instead of a list of names copied in every Event. Guest lists are also interned : the Events w/ the same list
+ * of VIPs (e.g. all the VIPs of EventBrite) share the same GuestList. The interned GuestLists are only weakly
+ * referenced : a GuestList no Event holds anymore is garbage collected.
+ * Ids are never reused : a VIP stays registered once it has been invited to an Event (the registry only grows
+ * w/ the number of distinct VIP names, not w/ the number of Events).
+ *
+ * Thread-safety : looking up a name or an id never blocks, registering a new name or a new guest list is serialized.
+ */
+public final class VIPRegistry
+{
+    private static final int INITIAL_CAPACITY = 16;
+    private static final VIPRegistry INSTANCE = new VIPRegistry();
+
+    private final ConcurrentHashMap<String, Integer> aIds = new ConcurrentHashMap<>(); // id of each VIP name
+    private volatile String[] aNames = new String[INITIAL_CAPACITY]; // name of each VIP id
+    private volatile int aSize = 0;
+    private final Map<GuestList, WeakReference<GuestList>> aGuestLists = new WeakHashMap<>(); // interned guest lists (guarded by itself)
+
+    private VIPRegistry() {}
+
+    /**
+     * @return the registry shared by all the Events.
+     */
+    public static VIPRegistry getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers a VIP name (if not registered yet).
+     * @param pName
+     *              name of the VIP
+     * @return the id of the VIP
+     * @pre pName != null
+     */
+    public int intern(String pName)
+    {
+        assert pName != null;
+        Integer id = aIds.get(pName);
+        if (id != null) return id;
+        synchronized (this) {
+            id = aIds.get(pName);
+            if (id != null) return id;
+            int newId = aSize;
+            if (newId == aNames.length) aNames = Arrays.copyOf(aNames, newId * 2);
+            aNames[newId] = pName;
+            aSize = newId + 1;
+            aIds.put(pName, newId); // published last : a reader that finds the id also finds its name
+            return newId;
+        }
+    }
+
+    /**
+     * @return the id of a VIP name, or -1 if the name was never registered.
+     * @pre pName != null
+     */
+    public int lookup(String pName)
+    {
+        assert pName != null;
+        Integer id = aIds.get(pName);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @return the name of the VIP of id pId.
+     * @pre 0 <= pId < size()
+     */
+    public String getName(int pId)
+    {
+        assert pId >= 0 && pId < aSize;
+        return aNames[pId];
+    }
+
+    /**
+     * @return number of VIPs registered.
+     */
+    public int size()
+    {
+        return aSize;
+    }
+
+    /**
+     * Registers the VIPs of a guest list and returns the shared GuestList w/ these VIPs.
+     * @param pNames
+     *              names of the VIPs invited, in order (duplicates are kept)
+     * @return the interned GuestList
+     * @throws IllegalArgumentException if a name is null (no VIP is registered then)
+     * @pre pNames != null
+     */
+    public GuestList guestList(Collection<String> pNames)
+    {
+        assert pNames != null;
+        if (pNames.isEmpty()) return GuestList.EMPTY;
+        for (String name : pNames) {
+            if (name == null) throw new IllegalArgumentException("null VIP");
+        }
+        int[] ids = new int[pNames.size()];
+        int i = 0;
+        for (String name : pNames) ids[i++] = intern(name);
+        GuestList guestList = new GuestList(ids);
+        synchronized (aGuestLists) {
+            WeakReference<GuestList> reference = aGuestLists.get(guestList);
+            GuestList interned = reference == null ? null : reference.get();
+            if (interned != null) return interned;
+            aGuestLists.put(guestList, new WeakReference<>(guestList)); // N.B. the value must not refer to its key strongly
+            return guestList;
+        }
+    }
+}
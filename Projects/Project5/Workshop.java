@@ -1,6 +1,11 @@
 import java.time.LocalDate;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NavigableMap;
 import java.util.Optional;
 
 /**
@@ -12,7 +17,12 @@ import java.util.Optional;
  */
 public class Workshop extends AbstractEvent {
 
-    private List<Workshop> aPrerequisites; // list of all pre-existing Workshops that a participant must have attended
+    // IMMUTABLE list of all pre-existing Workshops that a participant must have attended
+    // (copy-on-write : replaced as a whole when linked, so the getter hands out the current list w/o copying)
+    private volatile List<Event> aPrerequisites;
+    // Series (Workshops by Date) the Workshop was linked to, OR null : its prerequisites are then a view of the
+    // Workshops of the series w/ an earlier Date, so linking never copies them (see joinSeries)
+    private volatile NavigableMap<LocalDate, Workshop> aSeries;
 
     /**
      * Creates a Workshop Event with the following parameters :
@@ -33,26 +43,98 @@ public class Workshop extends AbstractEvent {
     protected Workshop(String pName, LocalDate pDate, Optional<Location> pLocation, Optional<Double> pTicketPrice, Optional<Integer> pNumTickets, List<Workshop> pPrerequisites) {
         super(pName, pDate, pLocation, pTicketPrice, pNumTickets);
         assert pPrerequisites != null;
-        this.aPrerequisites=pPrerequisites;
+        this.aPrerequisites=Collections.unmodifiableList(new ArrayList<>(pPrerequisites));
+    }
+
+    /**
+     * Links the Workshop to its series : its prerequisites become the Workshops of the series w/ an earlier Date
+     * (including those joining later), and it becomes a prerequisite of those w/ a later Date. O(log k) for a series
+     * of k Workshops, as nothing is copied.
+     * @param pSeries
+     *              concurrent map of the Workshops of the series by Date
+     * @pre pSeries != null && !isLinked() && !pSeries.containsKey(getDate())
+     */
+    void joinSeries(NavigableMap<LocalDate, Workshop> pSeries) {
+        assert pSeries != null && aSeries == null;
+        aSeries = pSeries;
+        pSeries.put(getDate(), this);
+    }
+
+    /**
+     * @return true if the Workshop is linked to its series (see joinSeries).
+     */
+    boolean isLinked() {
+        return aSeries != null;
     }
 
     /**
      * Add a Workshop to the prerequisite list of the current Workshop.
      * @param pWorkshop
-     * @pre pWorkshop != null
+     * @pre pWorkshop != null && !isLinked()
+     */
+    public synchronized void addPrerequisite(Workshop pWorkshop) {
+        assert pWorkshop != null && !isLinked();
+        List<Event> prerequisites = new ArrayList<>(aPrerequisites.size() + 1);
+        prerequisites.addAll(aPrerequisites);
+        prerequisites.add(pWorkshop);
+        aPrerequisites = Collections.unmodifiableList(prerequisites);
+    }
+
+    /**
+     * Add Workshops to the prerequisite list of the current Workshop (the list is replaced once for all of them).
+     * @param pWorkshops
+     * @pre pWorkshops != null && !isLinked()
      */
-    public void addPrerequisite(Workshop pWorkshop) {
-        assert pWorkshop != null;
-        aPrerequisites.add(pWorkshop);
+    public synchronized void addPrerequisites(List<Workshop> pWorkshops) {
+        assert pWorkshops != null && !isLinked();
+        if (pWorkshops.isEmpty()) return;
+        List<Event> prerequisites = new ArrayList<>(aPrerequisites.size() + pWorkshops.size());
+        prerequisites.addAll(aPrerequisites);
+        prerequisites.addAll(pWorkshops);
+        aPrerequisites = Collections.unmodifiableList(prerequisites);
     }
 
     /**
-     * @return List of all the prerequisites of the Workshop (OR empty List).
+     * @return List of all the prerequisites of the Workshop (OR empty List), in order of Date, w/o copying : unmodifiable
+     * snapshot, OR unmodifiable live view of the earlier Workshops of its series if linked (O(log k) to create, then
+     * walked by its iterator, size() and get(i)).
      */
     public List<Event> getPrerequisites() {
-        if (!aPrerequisites.isEmpty()) {
-            return new ArrayList<>(aPrerequisites);
+        NavigableMap<LocalDate, Workshop> series = aSeries;
+        if (series == null) return aPrerequisites;
+        return new SeriesView(series.headMap(getDate(), false).values());
+    }
+
+    /**
+     * Unmodifiable List view of the Workshops of a series (weakly consistent w/ a concurrent series).
+     */
+    private static final class SeriesView extends AbstractList<Event>
+    {
+        final private Collection<Event> aWorkshops;
+
+        SeriesView(Collection<Workshop> pWorkshops)
+        {
+            assert pWorkshops != null;
+            this.aWorkshops = Collections.unmodifiableCollection(pWorkshops);
+        }
+
+        @Override
+        public Iterator<Event> iterator() {
+            return aWorkshops.iterator();
+        }
+
+        @Override
+        public int size() {
+            return aWorkshops.size();
+        }
+
+        @Override
+        public Event get(int pIndex) {
+            if (pIndex < 0) throw new IndexOutOfBoundsException(pIndex);
+            Iterator<Event> iterator = aWorkshops.iterator();
+            for (int i = 0; i < pIndex && iterator.hasNext(); i++) iterator.next();
+            if (!iterator.hasNext()) throw new IndexOutOfBoundsException(pIndex);
+            return iterator.next();
         }
-        return new ArrayList<>();
     }
 }
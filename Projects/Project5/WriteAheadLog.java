@@ -0,0 +1,605 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of the changes made to an EventManagement (hosted Events, VIPs, Profit Percentages
+ * per type of Event and per-event overrides).
+ * On startup, the changes logged after the last snapshot (see EventSnapshot) are replayed on top of it.
+ *
+ * Records are appended to an in-memory batch and written by a background writer thread, which writes (and forces)
+ * every pending record at once (group commit). Appending a record never waits for the writer, so it can be done
+ * while holding a lock ; the caller then waits w/ awaitDurable (outside of its locks), which only waits in SYNC mode :
+ *      ASYNC   : the caller never waits, records are forced to disk when the log is flushed / closed only
+ *      BATCHED : the caller never waits, each batch of records is forced to disk by the writer
+ *      SYNC    : the caller waits until its record (and every record before it) is forced to disk
+ *
+ * Format of a record (big-endian) :
+ *      length of the payload (int) CRC32 of the payload (int) payload = { LSN (long) operation (byte) arguments }
+ * The LSN (log sequence number) of the records increases by 1 from one record to the next (also across checkpoints),
+ * so a snapshot records the LSN of the last change it contains and only the later records are replayed.
+ * A torn or corrupted record at the end of the log (crash during a write) is discarded, w/ everything after it.
+ */
+public class WriteAheadLog implements Closeable
+{
+    /**
+     * When a change is durable (= forced to disk) w/ respect to the call that made it.
+     */
+    public enum Durability
+    {
+        ASYNC, BATCHED, SYNC
+    }
+
+    private static final byte OP_EVENT = 1, OP_VIP = 2, OP_PROFIT = 3, OP_OVERRIDE = 4;
+    private static final byte INLINE = 0, HOSTED = 1; // how an Event of a Festival is logged
+    private static final byte HAS_LOCATION = 1, HAS_PRICE = 2, HAS_TICKETS = 4;
+    private static final int MAX_RECORD = 64 << 20; // larger lengths can only come from a corrupted record
+
+    final private FileChannel aChannel;
+    final private Durability aDurability;
+    final private Thread aWriter;
+    final private Object aLock = new Object();
+    // N.B. Fields below are guarded by aLock
+    private List<ByteBuffer> aPending = new ArrayList<>(); // records appended but not yet written
+    private long aLastLsn; // LSN of the last record appended
+    private long aWrittenLsn; // LSN of the last record written (and forced, unless ASYNC)
+    private IOException aFailure = null; // first failure of the writer (the log cannot be used anymore)
+    private boolean aClosed = false;
+
+    private WriteAheadLog(FileChannel pChannel, Durability pDurability, long pLastLsn)
+    {
+        this.aChannel = pChannel;
+        this.aDurability = pDurability;
+        this.aLastLsn = pLastLsn;
+        this.aWrittenLsn = pLastLsn;
+        this.aWriter = new Thread(this::writeLoop, "event-log-writer");
+        aWriter.setDaemon(true);
+        aWriter.start();
+    }
+
+    /* ****************************************************************************************************************
+                                                  OPENING + REPLAYING A LOG
+     **************************************************************************************************************** */
+    /**
+     * Opens a log (created if it does not exist), replays the records after pAppliedLsn, and positions the log after
+     * the last valid record so new records are appended to it.
+     * @param pFile
+     *              file of the log
+     * @param pDurability
+     *              durability of the records appended to the log
+     * @param pAppliedLsn
+     *              LSN of the last change already applied (e.g. by the snapshot), 0 if none
+     * @param pCommand
+     *              Add Event Command used to create the logged Events
+     * @param pHost
+     *              Callback hosting each Event created by the Add Event Command
+     * @param pVIPs
+     *              Callback adding each logged VIP
+     * @param pPercentages
+     *              table of Profit Percentages to update w/ the logged percentages
+     * @return the opened log
+     * @throws IOException if the log cannot be read or written, or a valid record holds a bad ordinal, index or percentage
+     * @pre pFile != null && pDurability != null && pAppliedLsn >= 0 && pCommand != null && pHost != null && pVIPs != null && pPercentages != null
+     */
+    public static WriteAheadLog open(Path pFile, Durability pDurability, long pAppliedLsn, Command_AddEvent pCommand,
+                                     Consumer<Event> pHost, Consumer<String> pVIPs, ProfitPercentages pPercentages) throws IOException
+    {
+        if (pFile == null || pDurability == null || pAppliedLsn < 0 || pCommand == null || pHost == null || pVIPs == null || pPercentages == null) {
+            throw new IllegalArgumentException();
+        }
+        FileChannel channel = FileChannel.open(pFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long lastLsn = pAppliedLsn;
+            long end = 0; // position after the last valid record
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(0)), 1 << 16));
+            CRC32 crc = new CRC32();
+            while (true) {
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    int checksum = in.readInt();
+                    if (length < 9 || length > MAX_RECORD) break;
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    crc.reset();
+                    crc.update(payload);
+                    if ((int) crc.getValue() != checksum) break;
+                } catch (EOFException e) { // torn record
+                    break;
+                }
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                long lsn = record.readLong();
+                if (lsn > pAppliedLsn) {
+                    try {
+                        replay(record, pCommand, pHost, pVIPs, pPercentages);
+                    } catch (DateTimeException e) {
+                        throw new IOException("Corrupted log : "+e.getMessage(), e);
+                    }
+                    lastLsn = lsn;
+                }
+                end += 8 + payload.length;
+            }
+            channel.truncate(end);
+            channel.position(end);
+            return new WriteAheadLog(channel, pDurability, lastLsn);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Applies the change of a record.
+     */
+    private static void replay(DataInputStream pRecord, Command_AddEvent pCommand, Consumer<Event> pHost,
+                               Consumer<String> pVIPs, ProfitPercentages pPercentages) throws IOException
+    {
+        byte operation = pRecord.readByte();
+        switch (operation) {
+            case OP_EVENT:
+                Event event = readEvent(pRecord, pCommand, true);
+                if (event != null) pHost.accept(event);
+                break;
+            case OP_VIP:
+                pVIPs.accept(pRecord.readUTF());
+                break;
+            case OP_PROFIT:
+                pPercentages.setPercentage(EventSnapshot.type(pRecord.readByte()), readIndex(pRecord.readInt(), 101, "percentage"));
+                break;
+            case OP_OVERRIDE:
+                readReference(pRecord, pCommand).updatePercentage(readIndex(pRecord.readInt(), 101, "percentage"));
+                break;
+            default:
+                throw new IOException("Corrupted log : unknown operation "+operation);
+        }
+    }
+
+    /**
+     * Reads a logged Event.
+     * @param pHost
+     *              TRUE to create the Event w/ the Add Event Command (= Event hosted by the record), FALSE to only
+     *              create it (= Event of a Festival, not hosted on EventBrite)
+     * @return the Event, or null if the Add Event Command rejects it (an Event is already planned at the same Date and Location)
+     */
+    private static Event readEvent(DataInputStream pIn, Command_AddEvent pCommand, boolean pHost) throws IOException
+    {
+        byte type = pIn.readByte();
+        String name = pIn.readUTF();
+        LocalDate date = LocalDate.ofEpochDay(pIn.readLong());
+        byte flags = pIn.readByte();
+        byte location = pIn.readByte();
+        double price = pIn.readDouble();
+        int tickets = pIn.readInt();
+        int override = pIn.readInt();
+        if (override != AbstractEvent.NO_OVERRIDE) readIndex(override, 101, "percentage");
+        Optional<Location> eventLocation = (flags & HAS_LOCATION) != 0 ? Optional.of(readLocation(location)) : Optional.empty();
+        Optional<Double> eventPrice = (flags & HAS_PRICE) != 0 ? Optional.of(price) : Optional.empty();
+        Optional<Integer> eventTickets = (flags & HAS_TICKETS) != 0 ? Optional.of(tickets) : Optional.empty();
+
+        Class<?> eventType = EventSnapshot.type(type);
+        if (eventType == Concert.class) {
+            String artist = pIn.readUTF();
+            List<String> vips = readStrings(pIn);
+            if (!pHost) return withOverride(new Concert(name, date, eventLocation, eventPrice, eventTickets, artist, vips), override);
+            return pCommand.addEvent_Concert(name, date, eventLocation, eventPrice, eventTickets, artist, vips);
+        } else if (eventType == Gala.class) {
+            List<String> vips = readStrings(pIn);
+            if (!pHost) return withOverride(new Gala(name, date, eventLocation, eventPrice, eventTickets, vips), override);
+            return pCommand.addEvent_Gala(name, date, eventLocation, eventPrice, eventTickets, vips);
+        } else if (eventType == Screening.class) {
+            Screening.Rating rating = Screening.Rating.values()[readIndex(pIn.readByte(), Screening.Rating.values().length, "rating")];
+            if (!pHost) return withOverride(new Screening(name, date, eventLocation, eventPrice, eventTickets, rating), override);
+            return pCommand.addEvent_Screening(name, date, eventLocation, eventPrice, eventTickets, rating);
+        } else if (eventType == Workshop.class) {
+            if (!pHost) return withOverride(new Workshop(name, date, eventLocation, eventPrice, eventTickets, new ArrayList<>()), override);
+            return pCommand.addEvent_Workshop(name, date, eventLocation, eventPrice, eventTickets);
+        } else {
+            int numEvents = readIndex(pIn.readInt(), pIn.available() + 1, "number of Events"); // N.B. >= 1 byte per Event
+            if (numEvents == 0) throw new IOException("Corrupted log : Festival "+name+" w/o events");
+            List<Event> events = new ArrayList<>(numEvents);
+            for (int i = 0; i < numEvents; i++) {
+                if (pIn.readByte() == HOSTED) {
+                    events.add(readHosted(pIn, pCommand));
+                } else {
+                    events.add(readEvent(pIn, pCommand, false));
+                }
+            }
+            if (!pHost) return withOverride(Festival.createFestival(name, events), override);
+            return pCommand.addEvent_Festival(name, events);
+        }
+    }
+
+    /**
+     * Overrides the Profit Percentage of an Event of a Festival (not hosted) as it was when logged.
+     */
+    private static Event withOverride(Event pEvent, int pOverride)
+    {
+        if (pOverride != AbstractEvent.NO_OVERRIDE) pEvent.updatePercentage(pOverride);
+        return pEvent;
+    }
+
+    /**
+     * Reads the Date and Location of a hosted Event.
+     * @return the hosted Event
+     */
+    private static Event readHosted(DataInputStream pIn, Command_AddEvent pCommand) throws IOException
+    {
+        LocalDate date = LocalDate.ofEpochDay(pIn.readLong());
+        byte location = pIn.readByte();
+        Event hosted = pCommand.findHosted(date, location < 0 ? Optional.empty() : Optional.of(readLocation(location)));
+        if (hosted == null) throw new IOException("Corrupted log : no Event hosted @"+date);
+        return hosted;
+    }
+
+    /**
+     * Reads the reference to an Event (see writeReference).
+     * @return the Event
+     */
+    private static Event readReference(DataInputStream pIn, Command_AddEvent pCommand) throws IOException
+    {
+        Event event = readHosted(pIn, pCommand);
+        int depth = pIn.readInt();
+        for (int i = 0; i < depth; i++) {
+            int index = pIn.readInt();
+            if (!(event instanceof Festival)) throw new IOException("Corrupted log : "+event.getName()+" is not a Festival");
+            List<Event> events = ((Festival) event).getFestivalEventsList();
+            event = events.get(readIndex(index, events.size(), "index in Festival"));
+        }
+        return event;
+    }
+
+    private static Location readLocation(byte pLocation) throws IOException
+    {
+        return Location.values()[readIndex(pLocation, Location.values().length, "location")];
+    }
+
+    /**
+     * Checks an index (or a count, an ordinal, a percentage) read from a record (see EventSnapshot.readIndex).
+     * @return pIndex
+     * @throws IOException if pIndex is not in [0, pBound)
+     */
+    private static int readIndex(int pIndex, int pBound, String pName) throws IOException
+    {
+        return EventSnapshot.readIndex("log", pIndex, pBound, pName);
+    }
+
+    private static List<String> readStrings(DataInputStream pIn) throws IOException
+    {
+        int size = readIndex(pIn.readInt(), pIn.available() / 2 + 1, "number of strings"); // N.B. >= 2 bytes per string
+        List<String> strings = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) strings.add(pIn.readUTF());
+        return strings;
+    }
+
+    /* ****************************************************************************************************************
+                                                     LOGGING A CHANGE
+     **************************************************************************************************************** */
+    /**
+     * Logs a newly hosted Event. The Events of a Festival already hosted on EventBrite are logged by Date and Location
+     * (they are hosted again before the Festival on replay), the others are logged w/ all their fields.
+     * @return LSN of the record
+     * @throws IOException if the log failed or is closed
+     * @pre pEvent != null
+     */
+    public long logEvent(Event pEvent) throws IOException
+    {
+        assert pEvent != null;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(OP_EVENT);
+        writeEvent(out, pEvent);
+        return append(bytes.toByteArray());
+    }
+
+    /**
+     * Logs a new VIP.
+     * @return LSN of the record
+     * @throws IOException if the log failed or is closed
+     * @pre pName != null
+     */
+    public long logVIP(String pName) throws IOException
+    {
+        assert pName != null;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(OP_VIP);
+        out.writeUTF(pName);
+        return append(bytes.toByteArray());
+    }
+
+    /**
+     * Logs a new Profit Percentage of a type of Event.
+     * @return LSN of the record
+     * @throws IOException if the log failed or is closed
+     * @pre pClass != null && pPercentage >= 0 && pPercentage <= 100
+     */
+    public long logProfit(Class<?> pClass, int pPercentage) throws IOException
+    {
+        assert pClass != null && pPercentage >= 0 && pPercentage <= 100;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(OP_PROFIT);
+        out.writeByte(EventSnapshot.type(pClass));
+        out.writeInt(pPercentage);
+        return append(bytes.toByteArray());
+    }
+
+    /**
+     * Logs the override of the Profit Percentage of an Event hosted on EventBrite, or part of a hosted Festival.
+     * Overrides of other Events are not logged (they are logged w/ the Event when it becomes part of a hosted Festival).
+     * @return LSN of the record, or 0 if the override is not logged
+     * @throws IOException if the log failed or is closed
+     * @pre pEvent != null && pPercentage >= 0 && pPercentage <= 100
+     */
+    public long logOverride(AbstractEvent pEvent, int pPercentage) throws IOException
+    {
+        assert pEvent != null && pPercentage >= 0 && pPercentage <= 100;
+        List<Event> chain = chainToHosted(pEvent);
+        if (chain == null) return 0;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(OP_OVERRIDE);
+        writeHosted(out, chain.get(chain.size() - 1));
+        out.writeInt(chain.size() - 1);
+        for (int i = chain.size() - 1; i > 0; i--) out.writeInt(indexOf(((Festival) chain.get(i)).getFestivalEventsList(), chain.get(i - 1)));
+        out.writeInt(pPercentage);
+        return append(bytes.toByteArray());
+    }
+
+    /**
+     * @return the Festivals from pEvent up to a hosted Event (pEvent first, the hosted Event last),
+     *              or null if pEvent is not part of any hosted Event.
+     */
+    private static List<Event> chainToHosted(AbstractEvent pEvent)
+    {
+        if (pEvent.isHosted()) {
+            List<Event> chain = new ArrayList<>();
+            chain.add(pEvent);
+            return chain;
+        }
+        for (Festival festival : pEvent.getFestivals()) {
+            List<Event> chain = chainToHosted(festival);
+            if (chain != null) {
+                chain.add(0, pEvent);
+                return chain;
+            }
+        }
+        return null;
+    }
+
+    private static int indexOf(List<Event> pEvents, Event pEvent)
+    {
+        for (int i = 0; i < pEvents.size(); i++) {
+            if (pEvents.get(i) == pEvent) return i;
+        }
+        throw new IllegalStateException(pEvent.getName()+" is not part of the Festival");
+    }
+
+    private static void writeHosted(DataOutputStream pOut, Event pEvent) throws IOException
+    {
+        pOut.writeLong(pEvent.getDate().toEpochDay());
+        pOut.writeByte(pEvent.getLocation().isPresent() ? pEvent.getLocation().get().ordinal() : -1);
+    }
+
+    private static void writeEvent(DataOutputStream pOut, Event pEvent) throws IOException
+    {
+        Optional<Location> location = pEvent.getLocation();
+        Optional<Double> price = pEvent.getPrice();
+        Optional<Integer> tickets = pEvent.getNumTickets();
+        pOut.writeByte(EventSnapshot.type(pEvent.getClass()));
+        pOut.writeUTF(pEvent.getName());
+        pOut.writeLong(pEvent.getDate().toEpochDay());
+        pOut.writeByte((location.isPresent() ? HAS_LOCATION : 0) | (price.isPresent() ? HAS_PRICE : 0) | (tickets.isPresent() ? HAS_TICKETS : 0));
+        pOut.writeByte(location.isPresent() ? location.get().ordinal() : -1);
+        pOut.writeDouble(price.orElse(0.0));
+        pOut.writeInt(tickets.orElse(0));
+        pOut.writeInt(pEvent instanceof AbstractEvent ? ((AbstractEvent) pEvent).getOverride() : AbstractEvent.NO_OVERRIDE);
+
+        if (pEvent instanceof Concert) {
+            pOut.writeUTF(((Concert) pEvent).getArtist());
+            writeStrings(pOut, ((Concert) pEvent).getVIPs());
+        } else if (pEvent instanceof Gala) {
+            writeStrings(pOut, ((Gala) pEvent).getVIPs());
+        } else if (pEvent instanceof Screening) {
+            pOut.writeByte(((Screening) pEvent).getRating().ordinal());
+        } else if (pEvent instanceof Festival) {
+            List<Event> events = ((Festival) pEvent).getFestivalEventsList();
+            pOut.writeInt(events.size());
+            for (Event event : events) {
+                if (event instanceof AbstractEvent && ((AbstractEvent) event).isHosted()) {
+                    pOut.writeByte(HOSTED);
+                    writeHosted(pOut, event);
+                } else {
+                    pOut.writeByte(INLINE);
+                    writeEvent(pOut, event);
+                }
+            }
+        }
+    }
+
+    private static void writeStrings(DataOutputStream pOut, List<String> pStrings) throws IOException
+    {
+        if (pStrings == null) pStrings = new ArrayList<>();
+        pOut.writeInt(pStrings.size());
+        for (String string : pStrings) pOut.writeUTF(string);
+    }
+
+    /**
+     * Waits until a record is durable according to the durability of the log (= only waits in SYNC mode).
+     * @param pLsn
+     *              LSN of the record
+     * @throws IOException if the log failed before writing the record
+     */
+    public void awaitDurable(long pLsn) throws IOException
+    {
+        if (aDurability != Durability.SYNC) return;
+        synchronized (aLock) {
+            awaitWritten(pLsn);
+        }
+    }
+
+    /**
+     * Appends a record to the pending batch (w/o waiting for the writer).
+     * @return LSN of the record
+     */
+    private long append(byte[] pRecord) throws IOException
+    {
+        synchronized (aLock) {
+            if (aFailure != null) throw new IOException("Log failed : "+aFailure.getMessage(), aFailure);
+            if (aClosed) throw new IOException("Log is closed");
+            long lsn = ++aLastLsn;
+            ByteBuffer record = ByteBuffer.allocate(8 + 8 + pRecord.length);
+            record.putInt(8 + pRecord.length).putInt(0).putLong(lsn).put(pRecord);
+            CRC32 crc = new CRC32();
+            crc.update(record.array(), 8, 8 + pRecord.length);
+            record.putInt(4, (int) crc.getValue());
+            record.flip();
+            aPending.add(record);
+            aLock.notifyAll();
+            return lsn;
+        }
+    }
+
+    /**
+     * Waits until the record of LSN pLsn is written by the writer.
+     * @pre Thread.holdsLock(aLock)
+     */
+    private void awaitWritten(long pLsn) throws IOException
+    {
+        boolean interrupted = false;
+        while (aWrittenLsn < pLsn && aFailure == null) {
+            try {
+                aLock.wait();
+            } catch (InterruptedException e) {
+                interrupted = true; // the record is already in the batch : finish waiting, then restore the interrupt
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        if (aFailure != null && aWrittenLsn < pLsn) throw new IOException("Log failed : "+aFailure.getMessage(), aFailure);
+    }
+
+    /**
+     * Writer thread : writes (and forces, unless ASYNC) all the pending records at once, until the log is closed.
+     */
+    private void writeLoop()
+    {
+        while (true) {
+            List<ByteBuffer> batch;
+            long lastLsn;
+            synchronized (aLock) {
+                while (aPending.isEmpty() && !aClosed) {
+                    try {
+                        aLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (aPending.isEmpty()) return; // closed and nothing left to write
+                batch = aPending;
+                aPending = new ArrayList<>();
+                lastLsn = aLastLsn;
+            }
+            try {
+                ByteBuffer[] buffers = batch.toArray(new ByteBuffer[0]);
+                long remaining = 0;
+                for (ByteBuffer buffer : buffers) remaining += buffer.remaining();
+                while (remaining > 0) remaining -= aChannel.write(buffers);
+                if (aDurability != Durability.ASYNC) aChannel.force(false);
+            } catch (IOException e) {
+                synchronized (aLock) {
+                    aFailure = e;
+                    aLock.notifyAll();
+                }
+                return;
+            }
+            synchronized (aLock) {
+                aWrittenLsn = lastLsn;
+                aLock.notifyAll();
+            }
+        }
+    }
+
+    /* ****************************************************************************************************************
+                                              FLUSH / CHECKPOINT / CLOSE
+     **************************************************************************************************************** */
+    /**
+     * @return LSN of the last record appended to the log.
+     */
+    public long getLastLsn()
+    {
+        synchronized (aLock) {
+            return aLastLsn;
+        }
+    }
+
+    /**
+     * Waits until all the records appended so far are written and forced to disk (whatever the durability).
+     * @throws IOException if the log failed
+     */
+    public void flush() throws IOException
+    {
+        synchronized (aLock) {
+            awaitWritten(aLastLsn);
+            aChannel.force(false);
+        }
+    }
+
+    /**
+     * Discards the records already contained in a snapshot. The log is emptied only if no change was logged after
+     * the snapshot (otherwise the records are kept and those up to pLsn are skipped on replay).
+     * @param pLsn
+     *              LSN of the last change contained in the snapshot (must be durable on disk)
+     * @throws IOException if the log failed
+     */
+    public void checkpoint(long pLsn) throws IOException
+    {
+        synchronized (aLock) {
+            awaitWritten(aLastLsn);
+            if (aLastLsn == pLsn) {
+                aChannel.truncate(0);
+                aChannel.force(false);
+            }
+        }
+    }
+
+    /**
+     * Writes and forces all the pending records, then closes the log.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        synchronized (aLock) {
+            if (aClosed) return;
+            aClosed = true;
+            aLock.notifyAll();
+        }
+        try {
+            aWriter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (aFailure == null) aChannel.force(false);
+        } finally {
+            aChannel.close();
+        }
+        if (aFailure != null) throw new IOException("Log failed : "+aFailure.getMessage(), aFailure);
+    }
+}